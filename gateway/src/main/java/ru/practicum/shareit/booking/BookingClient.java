@@ -1,39 +1,56 @@
 package ru.practicum.shareit.booking;
 
 
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ServerClientConfig;
 
 @Service
 public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
 
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                         @Qualifier(ServerClientConfig.SERVER_REQUEST_FACTORY)
+                         ClientHttpRequestFactory serverRequestFactory,
+                         @Qualifier(ServerClientConfig.STREAM_REQUEST_FACTORY)
+                         ClientHttpRequestFactory streamRequestFactory) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                        .requestFactory(() -> serverRequestFactory)
+                        .build(),
+                builder
+                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .requestFactory(() -> streamRequestFactory)
                         .build()
         );
     }
 
-    public ResponseEntity<Object> createBooking(long userId, BookItemRequestDto requestDto) {
+    public ResponseEntity<Object> createBooking(long userId, BookItemRequestDto requestDto, String idempotencyKey) {
         if (requestDto.getStart().isAfter(requestDto.getEnd())) {
             return ResponseEntity.badRequest().body("Дата начала бронирования не может быть позже конца бронирования");
         }
-        return post("", userId, requestDto);
+        return post("", userId, requestDto, idempotencyKey);
     }
 
     public ResponseEntity<Object> updateBookingStatus(Long bookingId, boolean approved, Long userId) {
@@ -43,11 +60,22 @@ public class BookingClient extends BaseClient {
         return patch("/" + bookingId + "?approved={approved}", userId, parameters, null);
     }
 
+    public ResponseEntity<Object> updateBookingStatuses(List<BookingDecisionDto> decisions, Long userId) {
+        return patch("/bulk", userId, decisions);
+    }
+
     public ResponseEntity<Object> getBooking(Long bookingId, Long userId) {
         return get("/" + bookingId, userId);
     }
 
 
+    public ResponseEntity<Object> getBookings(List<Long> ids, Long userId) {
+        Map<String, Object> parameters = Map.of(
+                "ids", StringUtils.collectionToCommaDelimitedString(ids)
+        );
+        return get("?ids={ids}", userId, parameters);
+    }
+
     public ResponseEntity<Object> getUserBookings(BookingState state, Long userId) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name()
@@ -62,6 +90,21 @@ public class BookingClient extends BaseClient {
         return get("/owner?state={state}", userId, parameters);
     }
 
+    public void exportOwnerBookings(BookingExportFormat format, Long userId, OutputStream out) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(format.getMediaType()));
+        stream("/owner/export?format=" + format.name(), userId, headers, out);
+    }
+
+    public void streamBookingEvents(Long userId, Long lastEventId, OutputStream out) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+        if (lastEventId != null) {
+            headers.set("Last-Event-ID", String.valueOf(lastEventId));
+        }
+        stream("/stream", userId, headers, out);
+    }
+
     public void deleteBooking(Long bookingId, Long userId) {
         delete("/" + bookingId, userId);
     }
@@ -1,17 +1,25 @@
 package ru.practicum.shareit.booking;
 
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
 import ru.practicum.shareit.booking.dto.BookingState;
+import ru.practicum.shareit.client.BaseClient;
 
+import java.util.List;
 
 
 @Controller
@@ -20,16 +28,28 @@ import ru.practicum.shareit.booking.dto.BookingState;
 @Slf4j
 @Validated
 public class BookingController {
+    private static final int BULK_LIMIT = 1000;
+    private static final int MULTI_GET_LIMIT = 100;
     private final BookingClient bookingClient;
 
     @PostMapping
     public ResponseEntity<Object> createBooking(@RequestBody @Valid BookItemRequestDto requestDto,
-                                                @RequestHeader("X-Sharer-User-Id") Long userId) {
+                                                @RequestHeader("X-Sharer-User-Id") Long userId,
+                                                @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY_HEADER,
+                                                        required = false) String idempotencyKey) {
         log.info("Запрос на создание нового бронирования от пользоватлея {}.", userId);
-        return bookingClient.createBooking(userId, requestDto);
+        return bookingClient.createBooking(userId, requestDto, idempotencyKey);
     }
 
 
+    @PatchMapping("/bulk")
+    public ResponseEntity<Object> updateBookingStatuses(@RequestBody @NotEmpty @Size(max = BULK_LIMIT)
+                                                        List<@Valid BookingDecisionDto> decisions,
+                                                        @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Запрос на обновление статусов {} бронирований от пользователя с id {}", decisions.size(), userId);
+        return bookingClient.updateBookingStatuses(decisions, userId);
+    }
+
     @PatchMapping("/{bookingId}")
     public ResponseEntity<Object> updateBookingStatus(@PathVariable Long bookingId,
                                                       @RequestParam boolean approved,
@@ -45,6 +65,13 @@ public class BookingController {
         return bookingClient.getBooking(bookingId, userId);
     }
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<Object> getBookings(@RequestParam @NotEmpty @Size(max = MULTI_GET_LIMIT) List<Long> ids,
+                                              @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Запрос на получение бронирований с id {}, от пользователя с id {}", ids, userId);
+        return bookingClient.getBookings(ids, userId);
+    }
+
     @GetMapping
     public ResponseEntity<Object> getUserBookings(@RequestParam(defaultValue = "ALL") String state,
                                                   @RequestHeader("X-Sharer-User-Id") Long userId) {
@@ -65,6 +92,28 @@ public class BookingController {
         return bookingClient.getOwnerBookings(stateParam, userId);
     }
 
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportOwnerBookings(
+            @RequestParam(defaultValue = "NDJSON") String format,
+            @RequestHeader("X-Sharer-User-Id") Long userId) {
+        BookingExportFormat formatParam = BookingExportFormat.from(format)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown format: " + format));
+        log.info("Запрос на выгрузку бронирований вещей пользователя с id {} в формате {}", userId, format);
+        return ResponseEntity.ok()
+                .contentType(formatParam.getMediaType())
+                .body(out -> bookingClient.exportOwnerBookings(formatParam, userId, out));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBookingEvents(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("Запрос на поток событий бронирований пользователя с id {}, последнее событие {}", userId, lastEventId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(out -> bookingClient.streamBookingEvents(userId, lastEventId, out));
+    }
+
     @DeleteMapping("/{bookingId}")
     public void deleteBooking(@PathVariable Long bookingId,
                               @RequestHeader("X-Sharer-User-Id") Long userId) {
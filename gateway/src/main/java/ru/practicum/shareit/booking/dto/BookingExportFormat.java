@@ -0,0 +1,30 @@
+package ru.practicum.shareit.booking.dto;
+
+import org.springframework.http.MediaType;
+
+import java.util.Optional;
+
+public enum BookingExportFormat {
+
+    NDJSON(MediaType.APPLICATION_NDJSON),
+    CSV(MediaType.parseMediaType("text/csv"));
+
+    private final MediaType mediaType;
+
+    BookingExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public static Optional<BookingExportFormat> from(String stringFormat) {
+        for (BookingExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(stringFormat)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -1,6 +1,8 @@
 package ru.practicum.shareit.client;
 
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -11,13 +13,24 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 public class BaseClient {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+
     protected final RestTemplate rest;
+    protected final RestTemplate streamRest;
 
     public BaseClient(RestTemplate rest) {
+        this(rest, rest);
+    }
+
+    public BaseClient(RestTemplate rest, RestTemplate streamRest) {
         this.rest = rest;
+        this.streamRest = streamRest;
     }
 
     protected ResponseEntity<Object> get(String path) {
@@ -40,6 +53,10 @@ public class BaseClient {
         return post(path, userId, null, body);
     }
 
+    protected <T> ResponseEntity<Object> post(String path, long userId, T body, @Nullable String idempotencyKey) {
+        return makeAndSendRequest(HttpMethod.POST, path, userId, null, body, idempotencyKey);
+    }
+
     protected <T> ResponseEntity<Object> post(String path, Long userId,
                                               @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
@@ -83,30 +100,85 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
+    protected void stream(String path, @Nullable Long userId, HttpHeaders headers, OutputStream out) {
+        streamRest.execute(path, HttpMethod.GET, request -> {
+            request.getHeaders().addAll(headers);
+            if (userId != null) {
+                request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId));
+            }
+        }, response -> {
+            // Пересылаем ответ по мере поступления, не накапливая его в памяти gateway.
+            InputStream in = response.getBody();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+            return null;
+        });
+    }
+
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId,
                                                           @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+        return makeAndSendRequest(method, path, userId, parameters, body, null);
+    }
 
-        ResponseEntity<Object> shareitServerResponse;
-        try {
-            if (parameters != null) {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
+    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId,
+                                                          @Nullable Map<String, Object> parameters, @Nullable T body,
+                                                          @Nullable String idempotencyKey) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId, idempotencyKey));
+        // Повторять запись безопасно только с ключом идемпотентности: сервер вернёт сохранённый ответ.
+        int attempts = idempotencyKey != null ? MAX_ATTEMPTS : 1;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return prepareGatewayResponse(exchange(method, path, parameters, requestEntity));
+            } catch (HttpStatusCodeException e) {
+                if (attempt >= attempts || !isRetryable(e)) {
+                    return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+                }
+            } catch (ResourceAccessException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
             }
-        } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+            backOff(attempt);
+        }
+    }
+
+    private <T> ResponseEntity<Object> exchange(HttpMethod method, String path,
+                                                @Nullable Map<String, Object> parameters,
+                                                HttpEntity<T> requestEntity) {
+        if (parameters != null) {
+            return rest.exchange(path, method, requestEntity, Object.class, parameters);
         }
-        return prepareGatewayResponse(shareitServerResponse);
+        return rest.exchange(path, method, requestEntity, Object.class);
+    }
+
+    private static boolean isRetryable(HttpStatusCodeException e) {
+        int status = e.getStatusCode().value();
+        return status == 502 || status == 503 || status == 504;
     }
 
-    private HttpHeaders defaultHeaders(Long userId) {
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Повтор запроса прерван.", e);
+        }
+    }
+
+    private HttpHeaders defaultHeaders(Long userId, @Nullable String idempotencyKey) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setAccept(List.of(MediaType.APPLICATION_JSON));
         if (userId != null) {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
         return headers;
     }
 
@@ -0,0 +1,77 @@
+package ru.practicum.shareit.client;
+
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Клиенты сервера с явными таймаутами: зависший сервер не держит поток gateway бесконечно,
+ * а запрос с ключом идемпотентности повторяется после таймаута чтения.
+ * Потоки событий и выгрузки держат соединение минутами, поэтому у них отдельный пул:
+ * открытые подписки не должны занимать соединения, через которые идут обычные запросы.
+ */
+@Configuration
+public class ServerClientConfig implements WebMvcConfigurer {
+
+    public static final String SERVER_REQUEST_FACTORY = "serverRequestFactory";
+    public static final String STREAM_REQUEST_FACTORY = "streamRequestFactory";
+
+    @Bean(SERVER_REQUEST_FACTORY)
+    public HttpComponentsClientHttpRequestFactory serverRequestFactory(
+            @Value("${shareit-server.max-connections:50}") int maxConnections,
+            @Value("${shareit-server.connect-timeout:PT2S}") Duration connectTimeout,
+            @Value("${shareit-server.read-timeout:PT10S}") Duration readTimeout,
+            @Value("${shareit-server.pool-timeout:PT2S}") Duration poolTimeout) {
+        return requestFactory(maxConnections, connectTimeout, readTimeout, poolTimeout);
+    }
+
+    @Bean(STREAM_REQUEST_FACTORY)
+    public HttpComponentsClientHttpRequestFactory streamRequestFactory(
+            @Value("${shareit-server.stream.max-connections:200}") int maxConnections,
+            @Value("${shareit-server.stream.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${shareit-server.stream.read-timeout:PT2M}") Duration readTimeout,
+            @Value("${shareit-server.stream.pool-timeout:PT1S}") Duration poolTimeout) {
+        // Тишина дольше readTimeout значит, что сервер завис: heartbeat приходит заметно чаще.
+        return requestFactory(maxConnections, connectTimeout, readTimeout, poolTimeout);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // StreamingResponseBody пишет ответ в асинхронном потоке; виртуальный поток не занимает пул сервлет-контейнера.
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stream-");
+        executor.setVirtualThreads(true);
+        configurer.setTaskExecutor(executor);
+    }
+
+    public static HttpComponentsClientHttpRequestFactory requestFactory(int maxConnections, Duration connectTimeout,
+                                                                        Duration readTimeout, Duration poolTimeout) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(connectTimeout))
+                .setSocketTimeout(Timeout.of(readTimeout))
+                .build();
+        // Когда пул исчерпан, запрос получает отказ через poolTimeout, а не ждёт освобождения соединения.
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+                .setResponseTimeout(Timeout.of(readTimeout))
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setDefaultConnectionConfig(connectionConfig)
+                        .build())
+                .setDefaultRequestConfig(requestConfig)
+                .build());
+    }
+}
@@ -1,17 +1,23 @@
 package ru.practicum.shareit.item;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ServerClientConfig;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemRequestDto;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -19,17 +25,23 @@ public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
 
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      @Qualifier(ServerClientConfig.SERVER_REQUEST_FACTORY)
+                      ClientHttpRequestFactory serverRequestFactory) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                        .requestFactory(() -> serverRequestFactory)
                         .build()
         );
     }
 
-    public ResponseEntity<Object> createItem(ItemRequestDto itemDto, Long ownerId) {
-        return post("", ownerId, itemDto);
+    public ResponseEntity<Object> createItem(ItemRequestDto itemDto, Long ownerId, String idempotencyKey) {
+        return post("", ownerId, itemDto, idempotencyKey);
+    }
+
+    public ResponseEntity<Object> createItems(List<ItemRequestDto> items, Long ownerId, String idempotencyKey) {
+        return post("/batch", ownerId, items, idempotencyKey);
     }
 
     public ResponseEntity<Object> updateItem(Map<String, String> update, Long itemId, Long ownerId) {
@@ -40,6 +52,13 @@ public class ItemClient extends BaseClient {
         return get("/" + id);
     }
 
+    public ResponseEntity<Object> getItems(List<Long> ids) {
+        Map<String, Object> parameters = Map.of(
+                "ids", StringUtils.collectionToCommaDelimitedString(ids)
+        );
+        return get("?ids={ids}", null, parameters);
+    }
+
     public ResponseEntity<Object> getAllOwnerItems(Long ownerId) {
         return get("", ownerId);
     }
@@ -55,12 +74,57 @@ public class ItemClient extends BaseClient {
         return get("/search?text={text}", userId, parameters);
     }
 
+    public ResponseEntity<Object> searchAvailableItems(String text, LocalDateTime from, LocalDateTime to,
+                                                       Long userId) {
+        if (text == null || text.isBlank()) {
+            return ResponseEntity.ok(Collections.emptyList());
+        }
+        Map<String, Object> parameters = Map.of(
+                "text", text,
+                "from", from,
+                "to", to
+        );
+
+        return get("/search/available?text={text}&from={from}&to={to}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> getItemAvailability(Long itemId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to
+        );
+
+        return get("/" + itemId + "/availability?from={from}&to={to}", null, parameters);
+    }
+
+    public ResponseEntity<Object> getMatchingRequests(Long itemId, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "size", size
+        );
+        return get("/" + itemId + "/matching-requests?size={size}", null, parameters);
+    }
+
     public void deleteItem(Long id, Long ownerId) {
         delete("/" + id, ownerId);
     }
 
-    public ResponseEntity<Object> createComment(CommentDto comment, Long itemId, Long ownerId) {
-        return post("/" + itemId + "/comment", ownerId, comment);
+    public ResponseEntity<Object> createComment(CommentDto comment, Long itemId, Long ownerId,
+                                                String idempotencyKey) {
+        return post("/" + itemId + "/comment", ownerId, comment, idempotencyKey);
     }
 
+    public ResponseEntity<Object> getComments(Long itemId, LocalDateTime before, Long beforeId, Integer size) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("size", size);
+        StringBuilder path = new StringBuilder("/" + itemId + "/comments?size={size}");
+        if (before != null) {
+            parameters.put("before", before);
+            path.append("&before={before}");
+        }
+        if (beforeId != null) {
+            parameters.put("beforeId", beforeId);
+            path.append("&beforeId={beforeId}");
+        }
+        return get(path.toString(), null, parameters);
+    }
 }
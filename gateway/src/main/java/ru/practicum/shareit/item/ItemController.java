@@ -1,15 +1,24 @@
 package ru.practicum.shareit.item;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemRequestDto;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 
@@ -19,13 +28,29 @@ import java.util.Map;
 @Slf4j
 @Validated
 public class ItemController {
+    private static final int BATCH_LIMIT = 1000;
+    private static final int MULTI_GET_LIMIT = 100;
+    private static final int MATCHING_REQUESTS_LIMIT = 100;
+    private static final int COMMENTS_PAGE_LIMIT = 100;
     private final ItemClient itemClient;
 
     @PostMapping
     public ResponseEntity<Object> createItem(@Valid @RequestBody ItemRequestDto itemDto,
-                                             @RequestHeader("X-Sharer-User-Id") Long ownerId) {
+                                             @RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                             @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY_HEADER,
+                                                     required = false) String idempotencyKey) {
         log.info("Запрос на создание новой вещи.");
-        return itemClient.createItem(itemDto, ownerId);
+        return itemClient.createItem(itemDto, ownerId, idempotencyKey);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<Object> createItems(@RequestBody @NotEmpty @Size(max = BATCH_LIMIT)
+                                              List<@Valid ItemRequestDto> items,
+                                              @RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                              @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY_HEADER,
+                                                      required = false) String idempotencyKey) {
+        log.info("Запрос на создание {} вещей.", items.size());
+        return itemClient.createItems(items, ownerId, idempotencyKey);
     }
 
     @PatchMapping("/{id}")
@@ -42,6 +67,12 @@ public class ItemController {
         return itemClient.getItem(id);
     }
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<Object> getItems(@RequestParam @NotEmpty @Size(max = MULTI_GET_LIMIT) List<Long> ids) {
+        log.info("Запрос на получение вещей с id {}", ids);
+        return itemClient.getItems(ids);
+    }
+
     @GetMapping
     public ResponseEntity<Object> getAllOwnerItems(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
         log.info("Запрос на получение  всех вещий пользоватля с id {}", ownerId);
@@ -55,6 +86,39 @@ public class ItemController {
         return itemClient.searchItems(text, userId);
     }
 
+    @GetMapping("/search/available")
+    public ResponseEntity<Object> searchAvailableItems(@RequestParam String text,
+                                                       @RequestParam @NotNull
+                                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                       LocalDateTime from,
+                                                       @RequestParam @NotNull
+                                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                       LocalDateTime to,
+                                                       @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Запрос на поиск вещей с текстом {}, свободных с {} по {}", text, from, to);
+        return itemClient.searchAvailableItems(text, from, to, userId);
+    }
+
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<Object> getItemAvailability(@PathVariable("id") Long itemId,
+                                                      @RequestParam @NotNull
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                      LocalDateTime from,
+                                                      @RequestParam @NotNull
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                      LocalDateTime to) {
+        log.info("Запрос на расписание вещи с id {} с {} по {}", itemId, from, to);
+        return itemClient.getItemAvailability(itemId, from, to);
+    }
+
+    @GetMapping("/{id}/matching-requests")
+    public ResponseEntity<Object> getMatchingRequests(@PathVariable("id") Long itemId,
+                                                      @RequestParam(defaultValue = "20") @Positive
+                                                      @Max(MATCHING_REQUESTS_LIMIT) Integer size) {
+        log.info("Запрос на подбор запросов для вещи с id {}", itemId);
+        return itemClient.getMatchingRequests(itemId, size);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteItem(@PathVariable("id") Long id, @RequestHeader("X-Sharer-User-Id") Long ownerId) {
         log.info("Запрос на удалние вещи с id {}", id);
@@ -64,8 +128,21 @@ public class ItemController {
     @PostMapping("/{id}/comment")
     public ResponseEntity<Object> createComment(@RequestBody CommentDto comment,
                                                 @PathVariable("id") Long itemId,
-                                                @RequestHeader("X-Sharer-User-Id") Long ownerId) {
+                                                @RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY_HEADER,
+                                                        required = false) String idempotencyKey) {
         log.info("Запрос на создание нового отзыва.");
-        return itemClient.createComment(comment, itemId, ownerId);
+        return itemClient.createComment(comment, itemId, ownerId, idempotencyKey);
+    }
+
+    @GetMapping("/{id}/comments")
+    public ResponseEntity<Object> getComments(@PathVariable("id") Long itemId,
+                                              @RequestParam(required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                                              @RequestParam(required = false) @Positive Long beforeId,
+                                              @RequestParam(defaultValue = "20") @Positive
+                                              @Max(COMMENTS_PAGE_LIMIT) Integer size) {
+        log.info("Запрос на отзывы вещи с id {} раньше {}", itemId, before);
+        return itemClient.getComments(itemId, before, beforeId, size);
     }
 }
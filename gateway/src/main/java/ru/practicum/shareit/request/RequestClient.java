@@ -1,26 +1,32 @@
 package ru.practicum.shareit.request;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ServerClientConfig;
 import ru.practicum.shareit.request.dto.RequestDto;
 
+import java.util.Map;
+
 @Service
 public class RequestClient extends BaseClient {
     private static final String API_PREFIX = "/requests";
 
     @Autowired
-    public RequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public RequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                         @Qualifier(ServerClientConfig.SERVER_REQUEST_FACTORY)
+                         ClientHttpRequestFactory serverRequestFactory) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                        .requestFactory(() -> serverRequestFactory)
                         .build()
         );
     }
@@ -46,6 +52,13 @@ public class RequestClient extends BaseClient {
         return get("/" + requestId, userId);
     }
 
+    public ResponseEntity<Object> getSuggestions(Long requestId, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "size", size
+        );
+        return get("/" + requestId + "/suggestions?size={size}", null, parameters);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteRequestById(@PathVariable("id") Long requestId, @RequestHeader("X-Sharer-User-Id") Long ownerId) {
         delete("/" + requestId, ownerId);
@@ -2,6 +2,8 @@ package ru.practicum.shareit.request;
 
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +18,7 @@ import ru.practicum.shareit.request.dto.RequestDto;
 @Slf4j
 @Validated
 public class RequestController {
+    private static final int SUGGESTIONS_LIMIT = 100;
     private final RequestClient requestClient;
 
     @PostMapping
@@ -44,6 +47,14 @@ public class RequestController {
         return requestClient.getRequestById(requestId, userId);
     }
 
+    @GetMapping("/{requestId}/suggestions")
+    public ResponseEntity<Object> getSuggestions(@PathVariable Long requestId,
+                                                 @RequestParam(defaultValue = "20") @Positive
+                                                 @Max(SUGGESTIONS_LIMIT) Integer size) {
+        log.info("Запрос на подбор вещей для запроса с id {}.", requestId);
+        return requestClient.getSuggestions(requestId, size);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteRequestById(@PathVariable("id") Long requestId, @RequestHeader("X-Sharer-User-Id") Long ownerId) {
         log.info("Запрос на удаление запроса с id {}, от пользователя с id {}.", requestId, ownerId);
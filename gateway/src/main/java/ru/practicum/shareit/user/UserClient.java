@@ -1,15 +1,22 @@
 package ru.practicum.shareit.user;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ServerClientConfig;
 import ru.practicum.shareit.user.dto.UserRequestDto;
 
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -17,18 +24,43 @@ public class UserClient extends BaseClient {
     private static final String API_PREFIX = "/users";
 
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      @Qualifier(ServerClientConfig.SERVER_REQUEST_FACTORY)
+                      ClientHttpRequestFactory serverRequestFactory,
+                      @Qualifier(ServerClientConfig.STREAM_REQUEST_FACTORY)
+                      ClientHttpRequestFactory streamRequestFactory) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                        .requestFactory(() -> serverRequestFactory)
+                        .build(),
+                builder
+                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .requestFactory(() -> streamRequestFactory)
                         .build()
         );
     }
 
 
-    public ResponseEntity<Object> findAll() {
-        return get("");
+    public ResponseEntity<Object> findUsers(List<Long> ids) {
+        Map<String, Object> parameters = Map.of(
+                "ids", StringUtils.collectionToCommaDelimitedString(ids)
+        );
+        return get("?ids={ids}", null, parameters);
+    }
+
+    public ResponseEntity<Object> findAll(Long afterId, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "afterId", afterId,
+                "size", size
+        );
+        return get("?afterId={afterId}&size={size}", null, parameters);
+    }
+
+    public void exportUsers(OutputStream out) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        stream("/export", null, headers, out);
     }
 
     public ResponseEntity<Object> findUser(Long id) {
@@ -39,11 +71,18 @@ public class UserClient extends BaseClient {
         return post("", userDto);
     }
 
+    public ResponseEntity<Object> createBatch(List<UserRequestDto> users) {
+        return post("/batch", users);
+    }
+
     public ResponseEntity<Object> update(Map<String, String> update, Long id) {
         return patch("/" + id, update);
     }
 
-    public ResponseEntity<Object> deleteUser(Long id) {
-        return delete("/" + id);
+    public ResponseEntity<Object> deleteUser(Long id, boolean async) {
+        Map<String, Object> parameters = Map.of(
+                "async", async
+        );
+        return delete("/" + id + "?async={async}", null, parameters);
     }
 }
@@ -1,14 +1,22 @@
 package ru.practicum.shareit.user;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.user.dto.UserRequestDto;
 
+import java.util.List;
 import java.util.Map;
 
 
@@ -18,12 +26,31 @@ import java.util.Map;
 @Slf4j
 @Validated
 public class UserController {
+    private static final int BATCH_LIMIT = 1000;
+    private static final int MULTI_GET_LIMIT = 100;
+    private static final int PAGE_LIMIT = 1000;
     private final UserClient userClient;
 
     @GetMapping
-    public ResponseEntity<Object> findAll() {
-        log.info("Запрос на получение списка всех пользователя");
-        return userClient.findAll();
+    public ResponseEntity<Object> findAll(@RequestParam(defaultValue = "0") @PositiveOrZero Long afterId,
+                                          @RequestParam(defaultValue = "100") @Positive @Max(PAGE_LIMIT)
+                                          Integer size) {
+        log.info("Запрос на получение {} пользователей после id {}", size, afterId);
+        return userClient.findAll(afterId, size);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("Запрос на выгрузку всех пользователей");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(userClient::exportUsers);
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<Object> findUsers(@RequestParam @NotEmpty @Size(max = MULTI_GET_LIMIT) List<Long> ids) {
+        log.info("Запрос на получение пользователей с id {}", ids);
+        return userClient.findUsers(ids);
     }
 
     @GetMapping("/{id}")
@@ -38,6 +65,13 @@ public class UserController {
         return userClient.create(userDto);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Object> createBatch(@RequestBody @NotEmpty @Size(max = BATCH_LIMIT)
+                                              List<@Valid UserRequestDto> users) {
+        log.info("Запрос на добавление {} пользователей", users.size());
+        return userClient.createBatch(users);
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<Object> update(@RequestBody Map<String, String> update, @PathVariable("id") Long id) {
         log.info("Запрос на обновление пользователя с id {}", id);
@@ -45,8 +79,9 @@ public class UserController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Object> deleteUser(@PathVariable("id") Long id) {
-        log.info("Запрос на удаление пользователя c id {}", id);
-        return userClient.deleteUser(id);
+    public ResponseEntity<Object> deleteUser(@PathVariable("id") Long id,
+                                             @RequestParam(defaultValue = "false") boolean async) {
+        log.info("Запрос на удаление пользователя c id {}, асинхронно: {}", id, async);
+        return userClient.deleteUser(id, async);
     }
 }
@@ -0,0 +1,134 @@
+package ru.practicum.shareit.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BaseClientTest {
+
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(300);
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private TestClient client;
+    // Ответ сервера на каждую попытку по порядку: код статуса или -1, если сервер зависает.
+    private List<Integer> responses;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+        String serverUrl = "http://localhost:" + server.getAddress().getPort();
+        client = new TestClient(new RestTemplateBuilder()
+                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
+                .requestFactory(() -> ServerClientConfig.requestFactory(5, Duration.ofSeconds(1), READ_TIMEOUT,
+                        Duration.ofSeconds(1)))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void hungServerShouldTimeOutAndRequestWithKeyShouldBeRetried() {
+        responses = List.of(-1, 201);
+
+        ResponseEntity<Object> response = client.create("key-1");
+
+        assertEquals(201, response.getStatusCode().value());
+        assertEquals(2, requests.get());
+        assertEquals(List.of("key-1", "key-1"), idempotencyKeys);
+    }
+
+    @Test
+    void hungServerShouldTimeOutWithoutRetryWhenRequestHasNoKey() {
+        responses = List.of(-1, 201);
+
+        assertThrows(ResourceAccessException.class, () -> client.create(null));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void unavailableServerShouldBeRetriedUntilAttemptsRunOut() {
+        responses = List.of(503, 503, 503, 201);
+
+        ResponseEntity<Object> response = client.create("key-1");
+
+        assertEquals(503, response.getStatusCode().value());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void clientErrorShouldNotBeRetried() {
+        responses = List.of(409, 201);
+
+        ResponseEntity<Object> response = client.create("key-1");
+
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals(1, requests.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int attempt = requests.getAndIncrement();
+        String key = exchange.getRequestHeaders().getFirst(BaseClient.IDEMPOTENCY_KEY_HEADER);
+        if (key != null) {
+            idempotencyKeys.add(key);
+        }
+        int status = responses.get(attempt);
+        if (status == -1) {
+            try {
+                Thread.sleep(READ_TIMEOUT.multipliedBy(5).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            status = 201;
+        }
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private static class TestClient extends BaseClient {
+
+        TestClient(RestTemplate rest) {
+            super(rest);
+        }
+
+        ResponseEntity<Object> create(String idempotencyKey) {
+            if (idempotencyKey == null) {
+                return post("/items", 1L, Map.of("name", "Дрель"));
+            }
+            return post("/items", 1L, Map.of("name", "Дрель"), idempotencyKey);
+        }
+    }
+}
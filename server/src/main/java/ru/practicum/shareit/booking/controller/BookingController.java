@@ -1,13 +1,31 @@
 package ru.practicum.shareit.booking.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
+import ru.practicum.shareit.booking.mapper.BookingCsvMapper;
 import ru.practicum.shareit.booking.dto.RequestBookingDto;
 import ru.practicum.shareit.booking.service.BookingService;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -15,6 +33,7 @@ import java.util.Collection;
 @RequestMapping(path = "/bookings")
 public class BookingController {
     private final BookingService bookingService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public BookingDto createBooking(@RequestBody RequestBookingDto bookingDto,
@@ -32,6 +51,13 @@ public class BookingController {
         return bookingService.updateBookingStatus(bookingId, approved, userId);
     }
 
+    @PatchMapping("/bulk")
+    public Collection<BookingDecisionResultDto> updateBookingStatuses(@RequestBody List<BookingDecisionDto> decisions,
+                                                                      @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Запрос из gateway на обновление статусов {} бронирований", decisions.size());
+        return bookingService.updateBookingStatuses(decisions, userId);
+    }
+
     @GetMapping("/{bookingId}")
     public BookingDto getBooking(@PathVariable Long bookingId,
                                  @RequestHeader("X-Sharer-User-Id") Long userId) {
@@ -39,6 +65,13 @@ public class BookingController {
         return bookingService.getBooking(bookingId, userId);
     }
 
+    @GetMapping(params = "ids")
+    public List<BookingDto> getBookings(@RequestParam List<Long> ids,
+                                        @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Запрос из gateway на получение бронирований с id {}", ids);
+        return bookingService.getBookings(ids, userId);
+    }
+
     @GetMapping
     public Collection<BookingDto> getUserBookings(@RequestParam(defaultValue = "ALL") String state,
                                                   @RequestHeader("X-Sharer-User-Id") Long userId) {
@@ -53,10 +86,58 @@ public class BookingController {
         return bookingService.getOwnerBookings(state, userId);
     }
 
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportOwnerBookings(
+            @RequestParam(defaultValue = "NDJSON") BookingExportFormat format,
+            @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Запрос из gateway на выгрузку бронирований вещей пользователя с id {} в формате {}", userId, format);
+        if (format == BookingExportFormat.CSV) {
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .body(out -> writeCsv(userId, out));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> writeNdjson(userId, out));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBookingEvents(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("Запрос из gateway на поток событий бронирований пользователя с id {}", userId);
+        return bookingService.streamBookingEvents(userId, lastEventId);
+    }
+
     @DeleteMapping("/{bookingId}")
     public void deleteBooking(@PathVariable Long bookingId,
                               @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("Запрос из gateway на удаление бронирования с id {}, от пользователя с id{}", bookingId, userId);
         bookingService.deleteBooking(bookingId, userId);
     }
+
+    private void writeNdjson(Long userId, OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            bookingService.exportOwnerBookings(userId, booking -> {
+                try {
+                    writer.write(booking);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void writeCsv(Long userId, OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.write(BookingCsvMapper.HEADER);
+            bookingService.exportOwnerBookings(userId, booking -> {
+                try {
+                    writer.write("\n");
+                    writer.write(BookingCsvMapper.toCsvRow(booking));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
 }
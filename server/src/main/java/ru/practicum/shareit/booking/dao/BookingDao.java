@@ -1,19 +1,38 @@
 package ru.practicum.shareit.booking.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingExportDto;
+import ru.practicum.shareit.booking.dto.BookingInterval;
+import ru.practicum.shareit.booking.dto.ItemBookingBoundaries;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.event.dto.BookingEventPayload;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookingDao extends JpaRepository<Booking, Long> {
 
+    @Override
+    @EntityGraph(attributePaths = {"item", "booker"})
+    Optional<Booking> findById(Long id);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.booker.id = :userId ORDER BY b.start DESC")
     Collection<Booking> findAllUserBookingByUserId(@Param("userId") Long userId);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.booker.id = :userId " +
             "AND (b.start < :currentDate AND b.end > :currentDate) " +
             "AND b.status = 'APPROVED' " +
@@ -21,6 +40,7 @@ public interface BookingDao extends JpaRepository<Booking, Long> {
     Collection<Booking> findCurrentUserBookingByUserId(@Param("userId") Long userId,
                                                        @Param("currentDate") LocalDateTime currentDate);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.booker.id = :userId " +
             "AND  b.end < :currentDate " +
             "AND b.status = 'APPROVED' " +
@@ -28,6 +48,7 @@ public interface BookingDao extends JpaRepository<Booking, Long> {
     Collection<Booking> findPastUserBookingByUserId(@Param("userId") Long userId,
                                                     @Param("currentDate") LocalDateTime currentDate);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.booker.id = :userId " +
             "AND  b.start > :currentDate " +
             "AND b.status = 'APPROVED' " +
@@ -35,27 +56,48 @@ public interface BookingDao extends JpaRepository<Booking, Long> {
     Collection<Booking> findFutureUserBookingByUserId(@Param("userId") Long userId,
                                                       @Param("currentDate") LocalDateTime currentDate);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.booker.id = :userId " +
             "AND b.status = 'WAITING' " +
             "ORDER BY b.start DESC")
     Collection<Booking> findWaitingUserBookingByUserId(@Param("userId") Long userId);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.booker.id = :userId " +
             "AND b.status = 'REJECTED' " +
             "ORDER BY b.start DESC")
     Collection<Booking> findRejectedUserBookingByUserId(@Param("userId") Long userId);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.item.id IN :itemIds ORDER BY b.start DESC")
     Collection<Booking> findAllOwnerItemsBookingById(@Param("itemIds") Collection<Long> itemIds);
 
-    @Query("SELECT b FROM Booking b WHERE b.item.id IN :itemIds " +
-            "AND b.status = 'APPROVED' " +
-            "AND (b.start > :now OR b.end < :now) " +
-            "ORDER BY b.item.id, b.start ASC, b.end DESC")
-    Collection<Booking> findAllRelevantApprovedOwnerItemsBookingsById(@Param("itemIds") Collection<Long> itemIds,
-                                                                      @Param("now") LocalDateTime now);
-
-
+    @EntityGraph(attributePaths = {"item", "booker"})
+    @Query("SELECT b FROM Booking b WHERE b.id IN :ids")
+    Collection<Booking> findAllWithItemAndBookerByIdIn(@Param("ids") Collection<Long> ids);
+
+    // По каждой вещи не больше трёх строк: последнее, следующее и текущее одобренное бронирование.
+    @Query("SELECT new ru.practicum.shareit.booking.dto.ItemBookingBoundaries(r.itemId, " +
+            "MAX(CASE WHEN r.kind = 1 THEN r.id END), MAX(CASE WHEN r.kind = 2 THEN r.id END), " +
+            "MAX(CASE WHEN r.kind = 2 THEN r.boundary END), MAX(CASE WHEN r.kind = 3 THEN r.boundary END)) " +
+            "FROM (" +
+            "SELECT b.item.id AS itemId, b.id AS id, 1 AS kind, b.end AS boundary, " +
+            "ROW_NUMBER() OVER (PARTITION BY b.item.id ORDER BY b.end DESC, b.id DESC) AS rn " +
+            "FROM Booking b WHERE b.item.id IN :itemIds AND b.status = 'APPROVED' AND b.end < :now " +
+            "UNION ALL " +
+            "SELECT b.item.id, b.id, 2, b.start, " +
+            "ROW_NUMBER() OVER (PARTITION BY b.item.id ORDER BY b.start, b.id) " +
+            "FROM Booking b WHERE b.item.id IN :itemIds AND b.status = 'APPROVED' AND b.start > :now " +
+            "UNION ALL " +
+            "SELECT b.item.id, b.id, 3, b.end, " +
+            "ROW_NUMBER() OVER (PARTITION BY b.item.id ORDER BY b.end, b.id) " +
+            "FROM Booking b WHERE b.item.id IN :itemIds AND b.status = 'APPROVED' " +
+            "AND b.start <= :now AND b.end >= :now" +
+            ") r WHERE r.rn = 1 GROUP BY r.itemId")
+    Collection<ItemBookingBoundaries> findApprovedBookingBoundaries(@Param("itemIds") Collection<Long> itemIds,
+                                                                    @Param("now") LocalDateTime now);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.item.id IN :itemIds " +
             "AND (b.start < :currentDate AND b.end > :currentDate) " +
             "AND b.status = 'APPROVED' " +
@@ -63,6 +105,7 @@ public interface BookingDao extends JpaRepository<Booking, Long> {
     Collection<Booking> findCurrentOwnerItemsBookingById(@Param("itemIds") Collection<Long> itemIds,
                                                          @Param("currentDate") LocalDateTime currentDate);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.item.id IN :itemIds " +
             "AND  b.end < :currentDate " +
             "AND b.status = 'APPROVED' " +
@@ -70,6 +113,7 @@ public interface BookingDao extends JpaRepository<Booking, Long> {
     Collection<Booking> findPastOwnerItemsBookingById(@Param("itemIds") Collection<Long> itemIds,
                                                       @Param("currentDate") LocalDateTime currentDate);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.item.id IN :itemIds " +
             "AND  b.start > :currentDate " +
             "AND b.status = 'APPROVED' " +
@@ -77,17 +121,84 @@ public interface BookingDao extends JpaRepository<Booking, Long> {
     Collection<Booking> findFutureOwnerItemsBookingById(@Param("itemIds") Collection<Long> itemIds,
                                                         @Param("currentDate") LocalDateTime currentDate);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.item.id IN :itemIds " +
             "AND b.status = 'WAITING' " +
             "ORDER BY b.start DESC")
     Collection<Booking> findWaitingOwnerItemsBookingById(@Param("itemIds") Collection<Long> itemIds);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b WHERE b.item.id IN :itemIds " +
             "AND b.status = 'REJECTED' " +
             "ORDER BY b.start DESC")
     Collection<Booking> findRejectedOwnerItemsBookingById(@Param("itemIds") Collection<Long> itemIds);
 
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingExportDto(b.id, i.id, i.name, b.booker.id, " +
+            "b.start, b.end, b.status) FROM Booking b JOIN b.item i WHERE i.owner.id = :ownerId ORDER BY b.start DESC")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<BookingExportDto> streamOwnerBookings(@Param("ownerId") Long ownerId);
+
     @Query("SELECT b FROM Booking b WHERE b.booker.id = :userId AND b.item.id = :itemId")
     Optional<Booking> findBookingByUserIdAndItemId(@Param("userId") Long userId,
                                                    @Param("itemId") Long itemId);
+
+    @Query("SELECT new ru.practicum.shareit.event.dto.BookingEventPayload(b.id, i.id, i.owner.id, b.booker.id, " +
+            "b.start, b.end, b.status) FROM Booking b JOIN b.item i WHERE i.id = :itemId")
+    List<BookingEventPayload> findEventPayloadsByItemId(@Param("itemId") Long itemId);
+
+    @Query("SELECT new ru.practicum.shareit.event.dto.BookingEventPayload(b.id, i.id, i.owner.id, b.booker.id, " +
+            "b.start, b.end, b.status) FROM Booking b JOIN b.item i WHERE b.booker.id = :userId OR i.owner.id = :userId")
+    List<BookingEventPayload> findEventPayloadsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT DISTINCT b.item.id FROM Booking b WHERE b.booker.id = :bookerId AND b.status = 'APPROVED'")
+    Collection<Long> findApprovedItemIdsByBookerId(@Param("bookerId") Long bookerId);
+
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingInterval(b.id, b.item.id, b.start, b.end) " +
+            "FROM Booking b WHERE b.item.id = :itemId AND b.status = 'APPROVED' ORDER BY b.start")
+    Collection<BookingInterval> findApprovedIntervalsByItemId(@Param("itemId") Long itemId);
+
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingInterval(b.id, b.item.id, b.start, b.end) " +
+            "FROM Booking b WHERE b.item.id IN :itemIds AND b.status = 'APPROVED'")
+    Collection<BookingInterval> findApprovedIntervalsByItemIds(@Param("itemIds") Collection<Long> itemIds);
+
+    @Query("SELECT COUNT(b) > 0 FROM Booking b WHERE b.item.id = :itemId " +
+            "AND b.status = 'APPROVED' " +
+            "AND b.start < :end AND b.end > :start " +
+            "AND (:bookingId IS NULL OR b.id <> :bookingId)")
+    boolean existsApprovedOverlap(@Param("itemId") Long itemId,
+                                  @Param("start") LocalDateTime start,
+                                  @Param("end") LocalDateTime end,
+                                  @Param("bookingId") Long bookingId);
+
+    @Query("SELECT COUNT(b) > 0 FROM Booking b WHERE b.item.id = :itemId " +
+            "AND b.status = 'APPROVED' " +
+            "AND b.start < :end AND b.end > :start " +
+            "AND b.id NOT IN :bookingIds")
+    boolean existsApprovedOverlapExcluding(@Param("itemId") Long itemId,
+                                           @Param("start") LocalDateTime start,
+                                           @Param("end") LocalDateTime end,
+                                           @Param("bookingIds") Collection<Long> bookingIds);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = :target " +
+            "WHERE b.id = :bookingId AND b.status IN :sources " +
+            "AND b.item.id IN (SELECT i.id FROM Item i WHERE i.owner.id = :ownerId)")
+    int updateStatus(@Param("bookingId") Long bookingId,
+                     @Param("ownerId") Long ownerId,
+                     @Param("sources") Collection<Status> sources,
+                     @Param("target") Status target);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = CASE WHEN b.id IN :approveIds " +
+            "THEN ru.practicum.shareit.booking.model.Status.APPROVED " +
+            "ELSE ru.practicum.shareit.booking.model.Status.REJECTED END " +
+            "WHERE b.id IN :bookingIds AND (b.id IN :approveIds AND b.status IN :approveSources " +
+            "OR b.id NOT IN :approveIds AND b.status IN :rejectSources)")
+    int updateStatuses(@Param("bookingIds") Collection<Long> bookingIds,
+                       @Param("approveIds") Collection<Long> approveIds,
+                       @Param("approveSources") Collection<Status> approveSources,
+                       @Param("rejectSources") Collection<Status> rejectSources);
 }
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking.dto;
+
+public enum BookingDecisionOutcome {
+    APPROVED,
+    REJECTED,
+    NOT_FOUND,
+    FORBIDDEN,
+    INVALID_STATUS,
+    CONFLICT,
+    DUPLICATE
+}
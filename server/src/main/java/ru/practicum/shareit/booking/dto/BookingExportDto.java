@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class BookingExportDto {
+    private Long id;
+    private Long itemId;
+    private String itemName;
+    private Long bookerId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private Status status;
+}
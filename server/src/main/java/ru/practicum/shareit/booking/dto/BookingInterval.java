@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class BookingInterval {
+    private Long bookingId;
+    private Long itemId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
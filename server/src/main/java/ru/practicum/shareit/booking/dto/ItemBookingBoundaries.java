@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class ItemBookingBoundaries {
+    private Long itemId;
+    private Long lastBookingId;
+    private Long nextBookingId;
+    private LocalDateTime nextStart;
+    private LocalDateTime currentEnd;
+}
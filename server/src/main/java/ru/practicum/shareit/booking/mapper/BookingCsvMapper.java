@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking.mapper;
+
+import ru.practicum.shareit.booking.dto.BookingExportDto;
+
+public class BookingCsvMapper {
+
+    public static final String HEADER = "id,itemId,itemName,bookerId,start,end,status";
+
+    public static String toCsvRow(BookingExportDto booking) {
+        return booking.getId() + "," +
+                booking.getItemId() + "," +
+                escape(booking.getItemName()) + "," +
+                booking.getBookerId() + "," +
+                booking.getStart() + "," +
+                booking.getEnd() + "," +
+                booking.getStatus();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -3,6 +3,7 @@ package ru.practicum.shareit.booking.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.hibernate.annotations.SQLRestriction;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.model.User;
 
@@ -10,12 +11,17 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "bookings", schema = "public")
+// Бронирование скрыто, если удалён автор или владелец вещи.
+@SQLRestriction("booker_id NOT IN (SELECT u.id FROM users u WHERE u.deleted = TRUE) "
+        + "AND item_id NOT IN (SELECT i.id FROM items i JOIN users u ON u.id = i.owner_id WHERE u.deleted = TRUE)")
+@Table(name = "bookings", schema = "public",
+        indexes = @Index(name = "ix_bookings_item_start", columnList = "item_id, start_date"))
 @AllArgsConstructor
 public class Booking {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "start_date")
@@ -1,9 +1,35 @@
 package ru.practicum.shareit.booking.model;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 public enum Status {
 
     WAITING,
     APPROVED,
     REJECTED,
-    CANCELED
+    CANCELED;
+
+    /**
+     * Владелец решает только по ожидающей заявке, иначе отклонение, проигравшее гонку одобрению,
+     * незаметно отменило бы его.
+     */
+    public boolean canBecome(Status target) {
+        return switch (this) {
+            case WAITING -> target == APPROVED || target == REJECTED || target == CANCELED;
+            case APPROVED -> target == CANCELED;
+            case REJECTED, CANCELED -> false;
+        };
+    }
+
+    /**
+     * Статусы, из которых разрешён переход в этот; условие атомарного UPDATE строится по ним.
+     */
+    public Set<Status> sources() {
+        return Arrays.stream(values())
+                .filter(source -> source.canBecome(this))
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(Status.class)));
+    }
 }
@@ -0,0 +1,244 @@
+package ru.practicum.shareit.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.event.dao.OutboxEventDao;
+import ru.practicum.shareit.event.dto.BookingEventPayload;
+import ru.practicum.shareit.event.dto.DomainEvent;
+import ru.practicum.shareit.event.mapper.EventMapper;
+import ru.practicum.shareit.event.model.AggregateType;
+import ru.practicum.shareit.event.model.OutboxEvent;
+import ru.practicum.shareit.event.model.OutboxStatus;
+import ru.practicum.shareit.event.service.OutboxSubscriber;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class BookingEventStream implements OutboxSubscriber {
+
+    public static final String RESET_EVENT = "RESET";
+
+    private final OutboxEventDao outboxEventDao;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final int maxConnectionsPerUser;
+    private final int replayLimit;
+    private final int queueCapacity;
+    // Отправкой в каждое соединение занимается свой виртуальный поток: медленный клиент задерживает только себя.
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("booking-stream-", 0).factory());
+    private final Map<Long, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    public BookingEventStream(OutboxEventDao outboxEventDao,
+                              ObjectMapper objectMapper,
+                              @Value("${shareit.booking-stream.timeout:PT30M}") Duration timeout,
+                              @Value("${shareit.booking-stream.max-connections-per-user:5}") int maxConnectionsPerUser,
+                              @Value("${shareit.booking-stream.replay-limit:1000}") int replayLimit,
+                              @Value("${shareit.booking-stream.queue-capacity:256}") int queueCapacity) {
+        this.outboxEventDao = outboxEventDao;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.replayLimit = replayLimit;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        register(userId, emitter, lastEventId);
+        return emitter;
+    }
+
+    public void register(Long userId, SseEmitter emitter, Long lastEventId) {
+        Subscription subscription = new Subscription(userId, emitter);
+        List<Subscription> evicted = new ArrayList<>();
+        subscriptions.compute(userId, (id, userSubscriptions) -> {
+            List<Subscription> result = userSubscriptions != null ? userSubscriptions : new CopyOnWriteArrayList<>();
+            result.add(subscription);
+            while (result.size() > maxConnectionsPerUser) {
+                evicted.add(result.removeFirst());
+            }
+            return result;
+        });
+        evicted.forEach(Subscription::close);
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(e -> remove(subscription));
+        // Новые события копятся в очереди, пока соединению не отправлены пропущенные.
+        if (lastEventId != null) {
+            replay(subscription, lastEventId);
+        }
+        subscription.start();
+    }
+
+    @Override
+    public void onEvent(DomainEvent event) {
+        if (event.getAggregateType() != AggregateType.BOOKING) {
+            return;
+        }
+        BookingEventPayload payload = readPayload(event.getPayload());
+        sendToUser(payload.getOwnerId(), event);
+        if (!payload.getBookerId().equals(payload.getOwnerId())) {
+            sendToUser(payload.getBookerId(), event);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${shareit.booking-stream.heartbeat:PT15S}")
+    public void heartbeat() {
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(subscription ->
+                subscription.enqueue(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    public int getConnectionCount() {
+        return subscriptions.values().stream().mapToInt(List::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private void replay(Subscription subscription, Long lastEventId) {
+        // Порядок отправки задаёт время доставки, а не id: id из пула последовательности не упорядочены.
+        OutboxEvent last = outboxEventDao.findById(lastEventId)
+                .filter(event -> event.getStatus() == OutboxStatus.DISPATCHED)
+                .orElse(null);
+        if (last == null) {
+            subscription.send(resetEvent());
+            return;
+        }
+        List<OutboxEvent> missed = outboxEventDao.findDispatchedFor(AggregateType.BOOKING, subscription.userId,
+                last.getDispatched(), lastEventId, PageRequest.of(0, replayLimit));
+        missed.forEach(event -> subscription.send(toSseEvent(EventMapper.toDomainEvent(event))));
+        // Пропущено больше, чем можем повторить: клиенту нужно заново запросить бронирования.
+        if (missed.size() == replayLimit) {
+            subscription.send(resetEvent());
+        }
+    }
+
+    private void sendToUser(Long userId, DomainEvent event) {
+        List<Subscription> userSubscriptions = subscriptions.get(userId);
+        if (userSubscriptions != null) {
+            userSubscriptions.forEach(subscription -> subscription.enqueue(toSseEvent(event)));
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toSseEvent(DomainEvent event) {
+        return SseEmitter.event()
+                .id(String.valueOf(event.getId()))
+                .name(event.getType().name())
+                .data(event.getPayload(), MediaType.APPLICATION_JSON);
+    }
+
+    private SseEmitter.SseEventBuilder resetEvent() {
+        return SseEmitter.event().name(RESET_EVENT).data("{}", MediaType.APPLICATION_JSON);
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId, (id, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    private BookingEventPayload readPayload(String payload) {
+        try {
+            return objectMapper.readValue(payload, BookingEventPayload.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать событие бронирования: " + e.getMessage(), e);
+        }
+    }
+
+    private final class Subscription {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Пока флаг поднят, очередь разбирает один поток; до start() его держит регистрация.
+        private final AtomicBoolean draining = new AtomicBoolean(true);
+
+        private Subscription(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                // Клиент не успевает читать: закрываем соединение, он переподключится с Last-Event-ID.
+                log.info("Очередь событий пользователя с id {} переполнена, закрываем соединение.", userId);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void start() {
+            draining.set(false);
+            scheduleDrain();
+        }
+
+        boolean send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Соединение пользователя с id {} закрыто: {}", userId, e.getMessage());
+                remove(this);
+                return false;
+            }
+        }
+
+        void close() {
+            remove(this);
+            queue.clear();
+            emitter.complete();
+        }
+
+        private void scheduleDrain() {
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while ((event = queue.poll()) != null) {
+                    if (!send(event)) {
+                        queue.clear();
+                        return;
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // Событие могло прийти между последним poll и сбросом флага.
+            scheduleDrain();
+        }
+    }
+}
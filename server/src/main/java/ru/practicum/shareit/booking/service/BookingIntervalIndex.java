@@ -0,0 +1,270 @@
+package ru.practicum.shareit.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.BookingInterval;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class BookingIntervalIndex {
+
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private final BookingDao bookingDao;
+    private final Cache<Long, ItemIntervals> items;
+    private final Map<Long, List<BookingInterval>> inFlight = new ConcurrentHashMap<>();
+
+    public BookingIntervalIndex(BookingDao bookingDao,
+                                @Value("${shareit.booking-index.maximum-items:10000}") long maximumItems,
+                                @Value("${shareit.booking-index.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.bookingDao = bookingDao;
+        this.items = Caffeine.newBuilder()
+                .maximumSize(maximumItems)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    public boolean hasConflict(Long itemId, LocalDateTime start, LocalDateTime end, Long bookingId) {
+        Set<Long> ignoredIds = bookingId != null ? Set.of(bookingId) : Set.of();
+        if (intervals(itemId).findConflict(start, end, ignoredIds) == null) {
+            return false;
+        }
+        return confirmConflict(itemId, start, end, ignoredIds);
+    }
+
+    public List<BookingInterval> findBusyIntervals(Long itemId, LocalDateTime from, LocalDateTime to) {
+        return intervals(itemId).overlapping(from, to);
+    }
+
+    public Set<Long> findBusyItems(Collection<Long> itemIds, LocalDateTime start, LocalDateTime end) {
+        Map<Long, ItemIntervals> loaded = items.getAll(itemIds, this::loadAll);
+        return loaded.entrySet().stream()
+                .filter(entry -> entry.getValue().findConflict(start, end, Set.of()) != null)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Занимает интервал бронирования до конца транзакции. Незакоммиченные резервы хранятся отдельно от кэша
+     * одобренных интервалов: сброс устаревшей записи по вещи не должен терять резервы соседних транзакций,
+     * иначе две пересекающиеся заявки, одобряемые одновременно, обе пройдут проверку.
+     */
+    public boolean reserve(Booking booking) {
+        return reserve(booking, Set.of());
+    }
+
+    /**
+     * То же, но одобренные брони из releasedIds не считаются помехой: их отклоняют в той же транзакции,
+     * и интервал освободится одновременно с коммитом нового резерва.
+     */
+    public boolean reserve(Booking booking, Set<Long> releasedIds) {
+        BookingInterval interval = new BookingInterval(booking.getId(), booking.getItem().getId(),
+                booking.getStart(), booking.getEnd());
+        Set<Long> ignoredIds = new HashSet<>(releasedIds);
+        ignoredIds.add(booking.getId());
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            ItemIntervals committed = intervals(interval.getItemId());
+            if (committed.findConflict(interval.getStart(), interval.getEnd(), ignoredIds) != null) {
+                if (confirmConflict(interval.getItemId(), interval.getStart(), interval.getEnd(), ignoredIds)) {
+                    return false;
+                }
+                continue;
+            }
+            Claim claim = claim(committed, interval, ignoredIds);
+            if (claim == Claim.CLAIMED) {
+                afterCompletion(isCommitted -> complete(interval, isCommitted));
+                return true;
+            }
+            if (claim == Claim.CONFLICT) {
+                return false;
+            }
+        }
+        log.warn("Не удалось занять интервал бронирования с id {}: индекс вещи с id {} постоянно меняется.",
+                interval.getBookingId(), interval.getItemId());
+        return false;
+    }
+
+    public void release(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        afterCompletion(committed -> {
+            ItemIntervals itemIntervals = items.getIfPresent(itemId);
+            if (committed && itemIntervals != null) {
+                itemIntervals.remove(booking.getId(), booking.getStart());
+            }
+        });
+    }
+
+    public void evict(Long itemId) {
+        items.invalidate(itemId);
+    }
+
+    /**
+     * Сбрасывает вещи после завершения транзакции: чтение, успевшее загрузить старые интервалы до коммита,
+     * не переживёт сброс.
+     */
+    public void evictAfterCompletion(Collection<Long> itemIds) {
+        if (!itemIds.isEmpty()) {
+            afterCompletion(committed -> items.invalidateAll(itemIds));
+        }
+    }
+
+    private ItemIntervals intervals(Long itemId) {
+        return items.get(itemId, id -> new ItemIntervals(bookingDao.findApprovedIntervalsByItemId(id)));
+    }
+
+    private Map<Long, ItemIntervals> loadAll(Set<? extends Long> itemIds) {
+        Map<Long, List<BookingInterval>> approved = bookingDao.findApprovedIntervalsByItemIds(List.copyOf(itemIds))
+                .stream()
+                .collect(Collectors.groupingBy(BookingInterval::getItemId));
+        return itemIds.stream()
+                .collect(Collectors.toMap(Function.identity(),
+                        itemId -> new ItemIntervals(approved.getOrDefault(itemId, List.of()))));
+    }
+
+    private boolean confirmConflict(Long itemId, LocalDateTime start, LocalDateTime end, Set<Long> ignoredIds) {
+        boolean overlaps = ignoredIds.size() > 1
+                ? bookingDao.existsApprovedOverlapExcluding(itemId, start, end, ignoredIds)
+                : bookingDao.existsApprovedOverlap(itemId, start, end,
+                ignoredIds.isEmpty() ? null : ignoredIds.iterator().next());
+        if (overlaps) {
+            return true;
+        }
+        log.info("Индекс бронирований вещи с id {} устарел, перечитываем его из базы.", itemId);
+        evict(itemId);
+        return false;
+    }
+
+    private Claim claim(ItemIntervals committed, BookingInterval interval, Set<Long> ignoredIds) {
+        Claim[] claim = {Claim.RETRY};
+        inFlight.compute(interval.getItemId(), (itemId, pending) -> {
+            // Запись по вещи могли сбросить или пополнить после проверки: тогда проверяем заново.
+            if (items.getIfPresent(itemId) != committed
+                    || committed.findConflict(interval.getStart(), interval.getEnd(), ignoredIds) != null) {
+                return pending;
+            }
+            List<BookingInterval> reserved = pending != null ? pending : new ArrayList<>();
+            boolean overlaps = reserved.stream().anyMatch(other -> !Objects.equals(other.getBookingId(),
+                    interval.getBookingId()) && other.getStart().isBefore(interval.getEnd())
+                    && other.getEnd().isAfter(interval.getStart()));
+            if (overlaps) {
+                claim[0] = Claim.CONFLICT;
+                return pending;
+            }
+            reserved.add(interval);
+            claim[0] = Claim.CLAIMED;
+            return reserved;
+        });
+        return claim[0];
+    }
+
+    private void complete(BookingInterval interval, boolean committed) {
+        inFlight.computeIfPresent(interval.getItemId(), (itemId, pending) -> {
+            if (committed) {
+                items.asMap().computeIfPresent(itemId, (id, itemIntervals) -> {
+                    itemIntervals.add(interval);
+                    return itemIntervals;
+                });
+            } else {
+                // Запись могли перечитать внутри откатившейся транзакции, поэтому она может содержать её изменения.
+                evict(itemId);
+            }
+            pending.removeIf(other -> Objects.equals(other.getBookingId(), interval.getBookingId()));
+            return pending.isEmpty() ? null : pending;
+        });
+    }
+
+    private void afterCompletion(CompletionCallback callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.onCompletion(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.onCompletion(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private enum Claim {
+        CLAIMED, CONFLICT, RETRY
+    }
+
+    private interface CompletionCallback {
+        void onCompletion(boolean committed);
+    }
+
+    private static class ItemIntervals {
+
+        private static final Comparator<BookingInterval> BY_START = Comparator
+                .comparing(BookingInterval::getStart)
+                .thenComparing(BookingInterval::getBookingId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        private final TreeSet<BookingInterval> byStart = new TreeSet<>(BY_START);
+        // Одобренные бронирования, созданные до ограничения в базе, могут пересекаться, поэтому соседнего интервала
+        // недостаточно: пересечь окно может любой интервал, начавшийся не раньше чем за longest до его начала.
+        private Duration longest = Duration.ZERO;
+
+        ItemIntervals(Collection<BookingInterval> approved) {
+            approved.forEach(this::add);
+        }
+
+        synchronized BookingInterval findConflict(LocalDateTime start, LocalDateTime end, Set<Long> ignoredIds) {
+            return candidates(start, end).stream()
+                    .filter(interval -> !ignoredIds.contains(interval.getBookingId()))
+                    .filter(interval -> interval.getEnd().isAfter(start))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        synchronized List<BookingInterval> overlapping(LocalDateTime from, LocalDateTime to) {
+            return candidates(from, to).stream()
+                    .filter(interval -> interval.getEnd().isAfter(from))
+                    .toList();
+        }
+
+        synchronized void add(BookingInterval interval) {
+            byStart.add(interval);
+            Duration length = Duration.between(interval.getStart(), interval.getEnd());
+            if (length.compareTo(longest) > 0) {
+                longest = length;
+            }
+        }
+
+        synchronized void remove(Long bookingId, LocalDateTime start) {
+            byStart.remove(new BookingInterval(bookingId, null, start, start));
+        }
+
+        // Интервалы с началом в (from - longest, to): только они могут заканчиваться позже from.
+        private Collection<BookingInterval> candidates(LocalDateTime from, LocalDateTime to) {
+            LocalDateTime earliest = from.minus(longest);
+            if (!earliest.isBefore(to)) {
+                return List.of();
+            }
+            return byStart.subSet(new BookingInterval(null, null, earliest, earliest), true,
+                    new BookingInterval(null, null, to, to), false);
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportDto;
 import ru.practicum.shareit.booking.dto.RequestBookingDto;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface BookingService {
 
@@ -11,11 +17,19 @@ public interface BookingService {
 
     BookingDto updateBookingStatus(Long bookingId, boolean approved, Long userId);
 
+    Collection<BookingDecisionResultDto> updateBookingStatuses(Collection<BookingDecisionDto> decisions, Long userId);
+
     BookingDto getBooking(Long bookingId, Long userId);
 
+    List<BookingDto> getBookings(List<Long> bookingIds, Long userId);
+
     Collection<BookingDto> getUserBookings(String state, Long userId);
 
     Collection<BookingDto> getOwnerBookings(String state, Long userId);
 
+    void exportOwnerBookings(Long userId, Consumer<BookingExportDto> consumer);
+
     void deleteBooking(Long bookingId, Long userId);
+
+    SseEmitter streamBookingEvents(Long userId, Long lastEventId);
 }
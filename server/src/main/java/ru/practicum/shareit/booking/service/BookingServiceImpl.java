@@ -3,22 +3,46 @@ package ru.practicum.shareit.booking.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionOutcome;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportDto;
 import ru.practicum.shareit.booking.dto.RequestBookingDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.event.mapper.EventMapper;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.ForbiddenException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dao.ItemDao;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -27,8 +51,13 @@ public class BookingServiceImpl implements BookingService {
     private final BookingDao bookingDao;
     private final UserDao userDao;
     private final ItemDao itemDao;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+    private final OutboxPublisher outboxPublisher;
+    private final BookingEventStream bookingEventStream;
 
     @Override
+    @Transactional
     public BookingDto createBooking(RequestBookingDto bookingDto, Long userId) {
         Item item = itemDao.findById(bookingDto.getItemId())
                 .orElseThrow(() -> new NotFoundException("Вещь c id " + bookingDto.getItemId() + " не найдена."));
@@ -36,6 +65,9 @@ public class BookingServiceImpl implements BookingService {
             throw new ValidationException("Бронирование невозможно, вещь с id " + item.getId() +
                     " недоступна для бронирования.");
         }
+        if (bookingIntervalIndex.hasConflict(item.getId(), bookingDto.getStart(), bookingDto.getEnd(), null)) {
+            throw new ValidationException("Вещь с id " + item.getId() + " уже забронирована на это время.");
+        }
 
         User user = findUserById(userId);
 
@@ -47,27 +79,84 @@ public class BookingServiceImpl implements BookingService {
         booking.setStatus(Status.WAITING);
 
         log.info("Передаём запрос на создание бронирования в bookingDao.");
-        return BookingMapper.toBookingDto(bookingDao.save(booking));
+        Booking saved = bookingDao.save(booking);
+        outboxPublisher.publish(EventType.BOOKING_CREATED, saved.getId(), EventMapper.toBookingEventPayload(saved));
+        return BookingMapper.toBookingDto(saved);
     }
 
     @Override
+    @Transactional
     public BookingDto updateBookingStatus(Long bookingId, boolean approveState, Long userId) {
-        Booking oldBooking = findBookingById(bookingId);
-        if (oldBooking.getItem().getOwner().getId().equals(userId)) {
-            if (approveState) {
-                oldBooking.setStatus(Status.APPROVED);
+        Status target = approveState ? Status.APPROVED : Status.REJECTED;
+        log.info("Передаём запрос на обновление статуса бронирования с id{} в bookingDao.", bookingId);
+        // Условие на исходный статус берётся из Status: из двух одновременных решений побеждает одно.
+        if (bookingDao.updateStatus(bookingId, userId, target.sources(), target) != 1) {
+            throw transitionFailure(bookingId, userId, target);
+        }
+
+        Booking booking = findBookingById(bookingId);
+        if (target == Status.APPROVED && !bookingIntervalIndex.reserve(booking)) {
+            throw new ConflictException("Бронирование с id " + bookingId +
+                    " пересекается с уже одобренным бронированием этой вещи.");
+        }
+        if (target == Status.APPROVED) {
+            itemBookingSummaryUpdater.refresh(booking.getItem().getId());
+        }
+        outboxPublisher.publish(target == Status.APPROVED ? EventType.BOOKING_APPROVED : EventType.BOOKING_REJECTED,
+                bookingId, EventMapper.toBookingEventPayload(booking));
+        return BookingMapper.toBookingDto(booking);
+    }
+
+    @Override
+    @Transactional
+    public Collection<BookingDecisionResultDto> updateBookingStatuses(Collection<BookingDecisionDto> decisions,
+                                                                      Long userId) {
+        findUserById(userId);
+        log.info("Передаём запрос на обновление статусов {} бронирований в bookingDao.", decisions.size());
+        Set<Long> bookingIds = decisions.stream()
+                .map(BookingDecisionDto::getBookingId)
+                .collect(Collectors.toSet());
+        Map<Long, Booking> bookings = bookingDao.findAllWithItemAndBookerByIdIn(bookingIds).stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        List<BookingDecisionResultDto> results = new ArrayList<>();
+        Map<Long, Status> targets = new LinkedHashMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (BookingDecisionDto decision : decisions) {
+            Long bookingId = decision.getBookingId();
+            Status target = Boolean.TRUE.equals(decision.getApproved()) ? Status.APPROVED : Status.REJECTED;
+            Booking booking = bookings.get(bookingId);
+            if (!seen.add(bookingId)) {
+                results.add(new BookingDecisionResultDto(bookingId, BookingDecisionOutcome.DUPLICATE,
+                        "Бронирование с id " + bookingId + " указано в запросе несколько раз."));
+            } else if (booking == null) {
+                results.add(new BookingDecisionResultDto(bookingId, BookingDecisionOutcome.NOT_FOUND,
+                        "Бронь c id " + bookingId + " не найдена."));
+            } else if (!booking.getItem().getOwner().getId().equals(userId)) {
+                results.add(new BookingDecisionResultDto(bookingId, BookingDecisionOutcome.FORBIDDEN,
+                        "Только владелец вещи может менять статус бронирования!"));
+            } else if (!booking.getStatus().canBecome(target)) {
+                results.add(new BookingDecisionResultDto(bookingId, BookingDecisionOutcome.INVALID_STATUS,
+                        "Бронирование с id " + bookingId + " нельзя перевести из статуса " +
+                                booking.getStatus() + " в статус " + target + "."));
+            } else if (target == Status.APPROVED && !bookingIntervalIndex.reserve(booking)) {
+                results.add(new BookingDecisionResultDto(bookingId, BookingDecisionOutcome.CONFLICT,
+                        "Бронирование с id " + bookingId +
+                                " пересекается с уже одобренным бронированием этой вещи."));
             } else {
-                oldBooking.setStatus(Status.REJECTED);
+                targets.put(bookingId, target);
+                results.add(new BookingDecisionResultDto(bookingId, target == Status.APPROVED ?
+                        BookingDecisionOutcome.APPROVED : BookingDecisionOutcome.REJECTED, null));
             }
-        } else {
-            throw new ValidationException("Только владелец вещи может менять статус бронирования!");
         }
-        log.info("Передаём запрос на обновление статуса бронирования с id{} в bookingDao.", bookingId);
-        bookingDao.save(oldBooking);
-        return BookingMapper.toBookingDto(oldBooking);
+        if (!targets.isEmpty()) {
+            applyStatuses(targets, bookings);
+        }
+        return results;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BookingDto getBooking(Long bookingId, Long userId) {
         log.info("Передаём запрос на получение информации о бронирование с id{} в bookingDao.", bookingId);
         findUserById(userId);
@@ -75,11 +164,30 @@ public class BookingServiceImpl implements BookingService {
         if (booking.getItem().getOwner().getId().equals(userId) || booking.getBooker().getId().equals(userId)) {
             return BookingMapper.toBookingDto(booking);
         }
-        throw new ValidationException("Только автор бронирования или владелец вещи " +
+        throw new ForbiddenException("Только автор бронирования или владелец вещи " +
                 "могут получить данные о бронировании");
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<BookingDto> getBookings(List<Long> bookingIds, Long userId) {
+        log.info("Передаём запрос на получение {} бронирований в bookingDao.", bookingIds.size());
+        findUserById(userId);
+        // Чужие бронирования, как и несуществующие, в ответ не попадают.
+        Map<Long, Booking> bookings = bookingDao.findAllWithItemAndBookerByIdIn(bookingIds).stream()
+                .filter(booking -> booking.getItem().getOwner().getId().equals(userId)
+                        || booking.getBooker().getId().equals(userId))
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+        return bookingIds.stream()
+                .distinct()
+                .map(bookings::get)
+                .filter(Objects::nonNull)
+                .map(BookingMapper::toBookingDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Collection<BookingDto> getUserBookings(String state, Long userId) {
         findUserById(userId);
         log.info("Передаём запрос на получение информации о бронирование пользователя с id{} в bookingDao.", userId);
@@ -98,6 +206,7 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Collection<BookingDto> getOwnerBookings(String state, Long userId) {
         findUserById(userId);
         Collection<Long> userItems = itemDao.findByOwnerId(userId).stream()
@@ -122,14 +231,76 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void exportOwnerBookings(Long userId, Consumer<BookingExportDto> consumer) {
+        findUserById(userId);
+        log.info("Передаём запрос на выгрузку бронирований вещей владельца с id {} в bookingDao.", userId);
+        try (Stream<BookingExportDto> bookings = bookingDao.streamOwnerBookings(userId)) {
+            bookings.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional
     public void deleteBooking(Long bookingId, Long userId) {
         log.info("Передаём запрос на удаление бронирования с id{} в bookingDao.", bookingId);
         Booking booking = findBookingById(bookingId);
         findUserById(userId);
         if (!booking.getBooker().getId().equals(userId)) {
-            throw new ValidationException("Только создателя бронирования может его удалить");
+            throw new ForbiddenException("Только создателя бронирования может его удалить");
         }
         bookingDao.deleteById(bookingId);
+        if (booking.getStatus() == Status.APPROVED) {
+            bookingIntervalIndex.release(booking);
+            itemBookingSummaryUpdater.refresh(booking.getItem().getId());
+        }
+        outboxPublisher.publish(EventType.BOOKING_DELETED, bookingId, EventMapper.toBookingEventPayload(booking));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SseEmitter streamBookingEvents(Long userId, Long lastEventId) {
+        log.info("Подписываем пользователя с id {} на события бронирований, последнее событие {}.",
+                userId, lastEventId);
+        findUserById(userId);
+        return bookingEventStream.subscribe(userId, lastEventId);
+    }
+
+    /**
+     * Одобренные брони, которые этот же запрос отклоняет. Их интервалы освобождаются раньше, чем занимаются новые,
+     * иначе одобрение пересекающейся заявки в том же запросе получило бы ложный конфликт.
+     */
+    private void applyStatuses(Map<Long, Status> targets, Map<Long, Booking> bookings) {
+        Set<Long> approveIds = targets.entrySet().stream()
+                .filter(entry -> entry.getValue() == Status.APPROVED)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        // Условие на исходный статус отсекает строки, изменённые параллельно после чтения.
+        if (bookingDao.updateStatuses(targets.keySet(), approveIds, Status.APPROVED.sources(),
+                Status.REJECTED.sources()) != targets.size()) {
+            throw new ConflictException("Статусы бронирований изменились во время обработки, повторите запрос.");
+        }
+
+        Set<Long> changedItems = new LinkedHashSet<>();
+        targets.forEach((bookingId, target) -> {
+            Booking booking = bookings.get(bookingId);
+            if (target == Status.APPROVED) {
+                changedItems.add(booking.getItem().getId());
+            }
+            booking.setStatus(target);
+            outboxPublisher.publish(target == Status.APPROVED ? EventType.BOOKING_APPROVED :
+                    EventType.BOOKING_REJECTED, bookingId, EventMapper.toBookingEventPayload(booking));
+        });
+        changedItems.forEach(itemBookingSummaryUpdater::refresh);
+    }
+
+    private RuntimeException transitionFailure(Long bookingId, Long userId, Status target) {
+        Booking booking = findBookingById(bookingId);
+        if (!booking.getItem().getOwner().getId().equals(userId)) {
+            return new ForbiddenException("Только владелец вещи может менять статус бронирования!");
+        }
+        return new ValidationException("Бронирование с id " + bookingId + " нельзя перевести из статуса " +
+                booking.getStatus() + " в статус " + target + ".");
     }
 
     private User findUserById(Long userId) {
@@ -0,0 +1,138 @@
+package ru.practicum.shareit.common;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Запускает независимые чтения на виртуальных потоках, каждое в своей read-only транзакции и со своим соединением,
+ * если параллельный режим включён свойством shareit.parallel-queries.enabled.
+ * Вызывающий метод не должен держать транзакцию, иначе он займёт лишнее соединение пула на время ожидания.
+ */
+@Component
+public class ParallelQueries {
+
+    private final TransactionTemplate readOnly;
+    private final boolean enabled;
+
+    /**
+     * При enabled = false чтения выполняются по очереди в вызывающем потоке, каждое в своей read-only транзакции.
+     * Это режим по умолчанию: параллельные чтения сокращают задержку одиночного запроса, но под нагрузкой
+     * занимают больше соединений пула и процессора и снижают пропускную способность (OwnerItemsBenchmarkTest).
+     */
+    public ParallelQueries(PlatformTransactionManager transactionManager,
+                           @Value("${shareit.parallel-queries.enabled:false}") boolean enabled) {
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    public Scope open() {
+        return new Scope();
+    }
+
+    /**
+     * Область по образцу StructuredTaskScope.ShutdownOnFailure: ошибка одного чтения отменяет остальные,
+     * прерывание ожидающего потока отменяет все.
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final ThreadFactory threadFactory = Thread.ofVirtual().name("parallel-query-", 0).factory();
+        private final List<Thread> threads = new CopyOnWriteArrayList<>();
+        private final List<CompletableFuture<?>> results = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private Scope() {
+        }
+
+        public <T> Supplier<T> fork(Supplier<T> query) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            results.add(result);
+            if (failure.get() != null) {
+                result.cancel(false);
+                return result::resultNow;
+            }
+            Runnable task = () -> {
+                try {
+                    result.complete(readOnly.execute(status -> query.get()));
+                } catch (RuntimeException | Error e) {
+                    // Ошибка фиксируется до завершения future, иначе join может дождаться его и не увидеть failure.
+                    boolean first = failure.compareAndSet(null, e);
+                    result.completeExceptionally(e);
+                    if (first) {
+                        cancelAll();
+                    }
+                }
+            };
+            if (!enabled) {
+                task.run();
+                return result::resultNow;
+            }
+            Thread thread = threadFactory.newThread(task);
+            threads.add(thread);
+            thread.start();
+            return result::resultNow;
+        }
+
+        public void join() {
+            try {
+                for (CompletableFuture<?> result : results) {
+                    if (failure.get() != null) {
+                        break;
+                    }
+                    try {
+                        result.get();
+                    } catch (ExecutionException | CancellationException e) {
+                        // Причину первой ошибки хранит failure.
+                    }
+                }
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Ожидание параллельных запросов прервано.");
+            }
+            Throwable error = failure.get();
+            if (error instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (error instanceof Error fatal) {
+                throw fatal;
+            }
+        }
+
+        /**
+         * Прерывает незавершённые чтения и ждёт их потоки: после выхода из области ни одна транзакция не продолжается.
+         */
+        @Override
+        public void close() {
+            cancelAll();
+            boolean interrupted = false;
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void cancelAll() {
+            threads.forEach(Thread::interrupt);
+        }
+    }
+}
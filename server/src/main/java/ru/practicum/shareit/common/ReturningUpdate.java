@@ -0,0 +1,82 @@
+package ru.practicum.shareit.common;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.hibernate.CacheMode;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Обновляет переданные колонки одной строки одним запросом и сразу возвращает её новое состояние:
+ * UPDATE ... RETURNING в PostgreSQL и SELECT ... FROM FINAL TABLE (UPDATE ...) в H2.
+ */
+public class ReturningUpdate {
+
+    private static final String COLUMN_PREFIX = "set_";
+
+    public static <T> Optional<T> execute(EntityManager entityManager, Class<T> entityClass, String table, Long id,
+                                          Map<String, Object> columns, String condition,
+                                          Map<String, Object> conditionParameters) {
+        String where = " WHERE id = :id" + (condition != null ? " AND " + condition : "");
+        String sql;
+        if (columns.isEmpty()) {
+            sql = "SELECT * FROM " + table + where;
+        } else {
+            String assignments = columns.keySet().stream()
+                    .map(column -> column + " = :" + COLUMN_PREFIX + column)
+                    .collect(Collectors.joining(", "));
+            sql = returning(dialect(entityManager), "UPDATE " + table + " SET " + assignments + where);
+        }
+
+        Query query = entityManager.createNativeQuery(sql, entityClass)
+                // Строка ещё не закоммичена, поэтому в кэш второго уровня её не кладём.
+                .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .setParameter("id", id);
+        columns.forEach((column, value) -> query.setParameter(COLUMN_PREFIX + column, value));
+        conditionParameters.forEach(query::setParameter);
+        @SuppressWarnings("unchecked")
+        List<T> rows = query.getResultList();
+
+        if (!columns.isEmpty() && !rows.isEmpty()) {
+            evictAfterCompletion(entityManager, entityClass, id);
+        }
+        return rows.stream().findFirst();
+    }
+
+    private static String returning(Dialect dialect, String update) {
+        if (dialect instanceof PostgreSQLDialect) {
+            return update + " RETURNING *";
+        }
+        return "SELECT * FROM FINAL TABLE (" + update + ")";
+    }
+
+    private static Dialect dialect(EntityManager entityManager) {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+    }
+
+    private static void evictAfterCompletion(EntityManager entityManager, Class<?> entityClass, Long id) {
+        // Нативный запрос проходит мимо кэша сущностей, поэтому старое состояние строки убираем вручную.
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.evict(entityClass, id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cache.evict(entityClass, id);
+            }
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.shareit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.entity-cache")
+public class EntityCacheProperties {
+
+    private Region users = new Region(10_000, Duration.ofMinutes(30));
+
+    private Region items = new Region(50_000, Duration.ofMinutes(30));
+
+    private Region queries = new Region(10_000, Duration.ofMinutes(5));
+
+    @Data
+    public static class Region {
+
+        private long maximumSize;
+
+        private Duration expireAfterWrite;
+
+        public Region() {
+        }
+
+        public Region(long maximumSize, Duration expireAfterWrite) {
+            this.maximumSize = maximumSize;
+            this.expireAfterWrite = expireAfterWrite;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private String driverClassName;
+
+    private Duration retryAfterFailure = Duration.ofSeconds(30);
+}
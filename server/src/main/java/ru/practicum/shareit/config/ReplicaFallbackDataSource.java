@@ -0,0 +1,63 @@
+package ru.practicum.shareit.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+@Slf4j
+public class ReplicaFallbackDataSource extends DelegatingDataSource {
+
+    private final DataSource primary;
+    private final Duration retryAfterFailure;
+    private final Clock clock;
+    private volatile Instant replicaUnavailableUntil = Instant.MIN;
+
+    public ReplicaFallbackDataSource(DataSource replica, DataSource primary, Duration retryAfterFailure) {
+        this(replica, primary, retryAfterFailure, Clock.systemUTC());
+    }
+
+    ReplicaFallbackDataSource(DataSource replica, DataSource primary, Duration retryAfterFailure, Clock clock) {
+        super(replica);
+        this.primary = primary;
+        this.retryAfterFailure = retryAfterFailure;
+        this.clock = clock;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (clock.instant().isBefore(replicaUnavailableUntil)) {
+            return primary.getConnection();
+        }
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            markReplicaUnavailable(e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (clock.instant().isBefore(replicaUnavailableUntil)) {
+            return primary.getConnection(username, password);
+        }
+        try {
+            return super.getConnection(username, password);
+        } catch (SQLException e) {
+            markReplicaUnavailable(e);
+            return primary.getConnection(username, password);
+        }
+    }
+
+    private void markReplicaUnavailable(SQLException e) {
+        replicaUnavailableUntil = clock.instant().plus(retryAfterFailure);
+        log.warn("Реплика недоступна, чтение переключено на основную базу до {}: {}",
+                replicaUnavailableUntil, e.getMessage());
+    }
+}
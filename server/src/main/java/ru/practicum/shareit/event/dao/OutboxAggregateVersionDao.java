@@ -0,0 +1,8 @@
+package ru.practicum.shareit.event.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.shareit.event.model.OutboxAggregateVersion;
+
+public interface OutboxAggregateVersionDao extends JpaRepository<OutboxAggregateVersion, String>,
+        OutboxAggregateVersionDaoCustom {
+}
@@ -0,0 +1,6 @@
+package ru.practicum.shareit.event.dao;
+
+public interface OutboxAggregateVersionDaoCustom {
+
+    long nextVersion(String aggregateKey);
+}
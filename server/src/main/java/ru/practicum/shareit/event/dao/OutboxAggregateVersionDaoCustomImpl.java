@@ -0,0 +1,28 @@
+package ru.practicum.shareit.event.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.event.model.OutboxAggregateVersion;
+
+public class OutboxAggregateVersionDaoCustomImpl implements OutboxAggregateVersionDaoCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Первую строку счётчика могут одновременно создавать несколько транзакций, поэтому конфликт пропускаем.
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long nextVersion(String aggregateKey) {
+        entityManager.createQuery("INSERT INTO OutboxAggregateVersion (aggregateKey, version) "
+                        + "VALUES (:aggregateKey, 0L) ON CONFLICT DO NOTHING")
+                .setParameter("aggregateKey", aggregateKey)
+                .executeUpdate();
+        OutboxAggregateVersion counter = entityManager.find(OutboxAggregateVersion.class, aggregateKey,
+                LockModeType.PESSIMISTIC_WRITE);
+        counter.setVersion(counter.getVersion() + 1);
+        return counter.getVersion();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.shareit.event.dao;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.event.model.AggregateType;
+import ru.practicum.shareit.event.model.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventDao extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("SELECT e FROM OutboxEvent e " +
+            "WHERE e.status = ru.practicum.shareit.event.model.OutboxStatus.PENDING ORDER BY e.created, e.id")
+    List<OutboxEvent> findPending(Pageable pageable);
+
+    // Все ожидающие события агрегатов подряд и по версиям: обрезка страницы оставляет у агрегата только начало.
+    @Query("SELECT e FROM OutboxEvent e WHERE e.aggregateType = :aggregateType AND e.aggregateId IN :aggregateIds " +
+            "AND e.status = ru.practicum.shareit.event.model.OutboxStatus.PENDING " +
+            "ORDER BY e.aggregateId, e.aggregateVersion")
+    List<OutboxEvent> findPendingByAggregates(@Param("aggregateType") AggregateType aggregateType,
+                                             @Param("aggregateIds") Collection<Long> aggregateIds,
+                                             Pageable pageable);
+
+    // События одной рассылки имеют общее время доставки, поэтому рассылка последнего события повторяется целиком.
+    @Query("SELECT e FROM OutboxEvent e JOIN e.recipients r WHERE e.aggregateType = :aggregateType " +
+            "AND r = :userId AND e.status = ru.practicum.shareit.event.model.OutboxStatus.DISPATCHED " +
+            "AND e.dispatched >= :since AND e.id <> :lastEventId ORDER BY e.dispatched, e.id")
+    List<OutboxEvent> findDispatchedFor(@Param("aggregateType") AggregateType aggregateType,
+                                        @Param("userId") Long userId,
+                                        @Param("since") LocalDateTime since,
+                                        @Param("lastEventId") Long lastEventId,
+                                        Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.dispatched = :now, " +
+            "e.status = ru.practicum.shareit.event.model.OutboxStatus.DISPATCHED WHERE e.id IN :ids")
+    int markDispatched(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // После maxAttempts неудачных попыток событие откладывается, чтобы не блокировать агрегат навсегда.
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, " +
+            "e.status = CASE WHEN e.attempts + 1 >= :maxAttempts " +
+            "THEN ru.practicum.shareit.event.model.OutboxStatus.PARKED ELSE e.status END " +
+            "WHERE e.id IN :ids")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("maxAttempts") int maxAttempts);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e " +
+            "WHERE e.status = ru.practicum.shareit.event.model.OutboxStatus.DISPATCHED AND e.dispatched < :before")
+    int deleteDispatchedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.event.dto;
+
+import java.util.Set;
+
+/**
+ * Событие, у которого есть конкретные получатели. Метод не является геттером и в JSON не попадает.
+ */
+public interface AddressedPayload {
+
+    Set<Long> recipients();
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingEventPayload implements AddressedPayload {
+    private Long bookingId;
+    private Long itemId;
+    private Long ownerId;
+    private Long bookerId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private Status status;
+
+    @Override
+    public Set<Long> recipients() {
+        return ownerId.equals(bookerId) ? Set.of(ownerId) : Set.of(ownerId, bookerId);
+    }
+}
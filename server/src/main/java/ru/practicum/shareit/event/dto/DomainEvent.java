@@ -0,0 +1,19 @@
+package ru.practicum.shareit.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.shareit.event.model.AggregateType;
+import ru.practicum.shareit.event.model.EventType;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class DomainEvent {
+    private Long id;
+    private AggregateType aggregateType;
+    private Long aggregateId;
+    private EventType type;
+    private String payload;
+    private LocalDateTime created;
+}
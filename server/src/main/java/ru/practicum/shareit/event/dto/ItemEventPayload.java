@@ -0,0 +1,17 @@
+package ru.practicum.shareit.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemEventPayload {
+    private Long itemId;
+    private Long ownerId;
+    private String name;
+    private String description;
+    private boolean available;
+    private Long requestId;
+}
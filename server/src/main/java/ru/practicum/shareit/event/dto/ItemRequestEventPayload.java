@@ -0,0 +1,14 @@
+package ru.practicum.shareit.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemRequestEventPayload {
+    private Long requestId;
+    private Long requesterId;
+    private String description;
+}
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.event.mapper;
+
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.event.dto.BookingEventPayload;
+import ru.practicum.shareit.event.dto.DomainEvent;
+import ru.practicum.shareit.event.dto.ItemEventPayload;
+import ru.practicum.shareit.event.dto.ItemRequestEventPayload;
+import ru.practicum.shareit.event.model.OutboxEvent;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+public class EventMapper {
+
+    public static DomainEvent toDomainEvent(OutboxEvent event) {
+        return new DomainEvent(
+                event.getId(),
+                event.getAggregateType(),
+                event.getAggregateId(),
+                event.getType(),
+                event.getPayload(),
+                event.getCreated()
+        );
+    }
+
+    public static BookingEventPayload toBookingEventPayload(Booking booking) {
+        return new BookingEventPayload(
+                booking.getId(),
+                booking.getItem().getId(),
+                booking.getItem().getOwner().getId(),
+                booking.getBooker().getId(),
+                booking.getStart(),
+                booking.getEnd(),
+                booking.getStatus()
+        );
+    }
+
+    public static ItemEventPayload toItemEventPayload(Item item) {
+        return new ItemEventPayload(
+                item.getId(),
+                item.getOwner().getId(),
+                item.getName(),
+                item.getDescription(),
+                item.isAvailable(),
+                item.getRequest() != null ? item.getRequest().getId() : null
+        );
+    }
+
+    public static ItemRequestEventPayload toItemRequestEventPayload(ItemRequest request) {
+        return new ItemRequestEventPayload(
+                request.getId(),
+                request.getRequestor().getId(),
+                request.getDescription()
+        );
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.event.model;
+
+public enum AggregateType {
+
+    BOOKING,
+    ITEM,
+    ITEM_REQUEST
+}
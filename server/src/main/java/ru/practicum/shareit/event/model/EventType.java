@@ -0,0 +1,21 @@
+package ru.practicum.shareit.event.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum EventType {
+
+    BOOKING_CREATED(AggregateType.BOOKING),
+    BOOKING_APPROVED(AggregateType.BOOKING),
+    BOOKING_REJECTED(AggregateType.BOOKING),
+    BOOKING_DELETED(AggregateType.BOOKING),
+    ITEM_CREATED(AggregateType.ITEM),
+    ITEM_UPDATED(AggregateType.ITEM),
+    ITEM_DELETED(AggregateType.ITEM),
+    ITEM_REQUEST_CREATED(AggregateType.ITEM_REQUEST),
+    ITEM_REQUEST_DELETED(AggregateType.ITEM_REQUEST);
+
+    private final AggregateType aggregateType;
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.event.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Счётчик событий агрегата. Публикация блокирует его строку до конца транзакции, поэтому версии событий
+ * одного агрегата идут в порядке коммитов, а не в порядке выдачи идентификаторов из пула.
+ */
+@Data
+@Entity
+@Table(name = "outbox_aggregate_versions", schema = "public")
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxAggregateVersion {
+
+    @Id
+    @Column(name = "aggregate_key")
+    private String aggregateKey;
+    @Column(name = "version")
+    private long version;
+}
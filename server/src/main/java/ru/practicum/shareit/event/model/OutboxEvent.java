@@ -0,0 +1,56 @@
+package ru.practicum.shareit.event.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+@Data
+@Entity
+@Table(name = "outbox_events", schema = "public")
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "aggregate_type")
+    private AggregateType aggregateType;
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type")
+    private EventType type;
+    @Column(name = "payload", length = 10000)
+    private String payload;
+    @Column(name = "created")
+    private LocalDateTime created;
+    @Column(name = "dispatched")
+    private LocalDateTime dispatched;
+    @Column(name = "attempts")
+    private int attempts;
+    // Порядковый номер события внутри агрегата, по нему события агрегата и доставляются.
+    @Column(name = "aggregate_version")
+    private long aggregateVersion;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private OutboxStatus status;
+    // Пользователи, которым адресовано событие: по ним SSE-поток повторяет пропущенное без разбора чужих событий.
+    @ElementCollection
+    @CollectionTable(name = "outbox_event_recipients", schema = "public",
+            joinColumns = @JoinColumn(name = "event_id"))
+    @Column(name = "user_id")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Set<Long> recipients = new HashSet<>();
+
+    public OutboxEvent() {
+    }
+}
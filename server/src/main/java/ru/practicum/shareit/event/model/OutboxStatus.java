@@ -0,0 +1,9 @@
+package ru.practicum.shareit.event.model;
+
+public enum OutboxStatus {
+
+    PENDING,
+    DISPATCHED,
+    // Событие так и не удалось доставить за maxAttempts попыток: его больше не отправляют, но и не удаляют.
+    PARKED
+}
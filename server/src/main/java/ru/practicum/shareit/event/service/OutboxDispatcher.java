@@ -0,0 +1,120 @@
+package ru.practicum.shareit.event.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.event.dao.OutboxEventDao;
+import ru.practicum.shareit.event.dto.DomainEvent;
+import ru.practicum.shareit.event.mapper.EventMapper;
+import ru.practicum.shareit.event.model.AggregateType;
+import ru.practicum.shareit.event.model.OutboxEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private final OutboxEventDao outboxEventDao;
+    private final List<OutboxSubscriber> subscribers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retention;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter dispatched;
+    private final Counter failed;
+    private final Counter parked;
+
+    public OutboxDispatcher(OutboxEventDao outboxEventDao,
+                            List<OutboxSubscriber> subscribers,
+                            MeterRegistry meterRegistry,
+                            @Value("${shareit.outbox.batch-size:200}") int batchSize,
+                            @Value("${shareit.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${shareit.outbox.retention:P7D}") Duration retention) {
+        this.outboxEventDao = outboxEventDao;
+        this.subscribers = subscribers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retention = retention;
+        TimeGauge.builder("shareit.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Возраст самого старого недоставленного события")
+                .register(meterRegistry);
+        this.dispatched = Counter.builder("shareit.outbox.dispatched").register(meterRegistry);
+        this.failed = Counter.builder("shareit.outbox.failed").register(meterRegistry);
+        this.parked = Counter.builder("shareit.outbox.parked").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.outbox.poll-delay:PT1S}")
+    public void dispatch() {
+        List<OutboxEvent> oldest = outboxEventDao.findPending(PageRequest.of(0, batchSize));
+        LocalDateTime now = LocalDateTime.now();
+        lagMillis.set(oldest.isEmpty() ? 0 : Duration.between(oldest.getFirst().getCreated(), now).toMillis());
+        if (oldest.isEmpty()) {
+            return;
+        }
+
+        // Самые старые события выбирают агрегаты, а доставляем все их ожидающие события по версиям:
+        // идентификаторы из пула последовательности не отражают порядок коммитов.
+        List<Long> delivered = new ArrayList<>();
+        List<Long> undelivered = new ArrayList<>();
+        Map<AggregateType, Set<Long>> aggregates = oldest.stream()
+                .collect(Collectors.groupingBy(OutboxEvent::getAggregateType,
+                        Collectors.mapping(OutboxEvent::getAggregateId, Collectors.toCollection(LinkedHashSet::new))));
+        aggregates.forEach((aggregateType, aggregateIds) -> deliver(outboxEventDao.findPendingByAggregates(
+                aggregateType, aggregateIds, PageRequest.of(0, batchSize)), delivered, undelivered));
+        if (!delivered.isEmpty()) {
+            outboxEventDao.markDispatched(delivered, now);
+            dispatched.increment(delivered.size());
+        }
+        if (!undelivered.isEmpty()) {
+            outboxEventDao.markFailed(undelivered, maxAttempts);
+            failed.increment(undelivered.size());
+        }
+    }
+
+    private void deliver(List<OutboxEvent> events, List<Long> delivered, List<Long> undelivered) {
+        // Порядок внутри агрегата сохраняем: после сбоя его остальные события ждут следующего прохода.
+        Set<Long> blocked = new HashSet<>();
+        for (OutboxEvent event : events) {
+            if (blocked.contains(event.getAggregateId())) {
+                continue;
+            }
+            try {
+                DomainEvent domainEvent = EventMapper.toDomainEvent(event);
+                subscribers.forEach(subscriber -> subscriber.onEvent(domainEvent));
+                delivered.add(event.getId());
+            } catch (RuntimeException e) {
+                log.warn("Не удалось доставить событие {} с id {}, попытка {}: {}",
+                        event.getType(), event.getId(), event.getAttempts() + 1, e.getMessage());
+                blocked.add(event.getAggregateId());
+                undelivered.add(event.getId());
+                if (event.getAttempts() + 1 >= maxAttempts) {
+                    log.error("Событие {} с id {} отложено после {} попыток.", event.getType(), event.getId(),
+                            maxAttempts);
+                    parked.increment();
+                }
+            }
+        }
+    }
+
+    @Scheduled(cron = "${shareit.outbox.cleanup-cron:0 30 3 * * *}")
+    public void cleanup() {
+        int deleted = outboxEventDao.deleteDispatchedBefore(LocalDateTime.now().minus(retention));
+        log.info("Удалено {} доставленных событий старше {}.", deleted, retention);
+    }
+}
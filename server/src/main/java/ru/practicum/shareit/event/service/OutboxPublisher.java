@@ -0,0 +1,40 @@
+package ru.practicum.shareit.event.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.event.dao.OutboxAggregateVersionDao;
+import ru.practicum.shareit.event.dao.OutboxEventDao;
+import ru.practicum.shareit.event.dto.AddressedPayload;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.model.OutboxEvent;
+import ru.practicum.shareit.event.model.OutboxStatus;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+public class OutboxPublisher {
+
+    private final OutboxEventDao outboxEventDao;
+    private final OutboxAggregateVersionDao outboxAggregateVersionDao;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(EventType type, Long aggregateId, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateType(type.getAggregateType());
+        event.setAggregateId(aggregateId);
+        event.setAggregateVersion(outboxAggregateVersionDao.nextVersion(type.getAggregateType() + ":" + aggregateId));
+        event.setType(type);
+        event.setPayload(objectMapper.valueToTree(payload).toString());
+        event.setCreated(LocalDateTime.now());
+        event.setStatus(OutboxStatus.PENDING);
+        if (payload instanceof AddressedPayload addressed) {
+            event.getRecipients().addAll(addressed.recipients());
+        }
+        outboxEventDao.save(event);
+    }
+}
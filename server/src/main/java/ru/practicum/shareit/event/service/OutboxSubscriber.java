@@ -0,0 +1,9 @@
+package ru.practicum.shareit.event.service;
+
+import ru.practicum.shareit.event.dto.DomainEvent;
+
+public interface OutboxSubscriber {
+
+    // Доставка не реже одного раза: обработчик должен спокойно переносить повторы.
+    void onEvent(DomainEvent event);
+}
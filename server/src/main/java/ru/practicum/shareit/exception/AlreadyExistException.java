@@ -1,6 +1,7 @@
 package ru.practicum.shareit.exception;
 
-public class AlreadyExistException extends RuntimeException {
+public class AlreadyExistException extends ShareItException {
+
     public AlreadyExistException(String message) {
         super(message);
     }
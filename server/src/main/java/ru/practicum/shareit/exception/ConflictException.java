@@ -0,0 +1,11 @@
+package ru.practicum.shareit.exception;
+
+/**
+ * Данные изменились параллельно с запросом. Повтор того же запроса может пройти.
+ */
+public class ConflictException extends ShareItException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.exception;
+
+public class ForbiddenException extends ShareItException {
+
+    public ForbiddenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.exception;
+
+/**
+ * Базовое исключение предметной области. Такие ошибки ожидаемы и обрабатываются ErrorHandler,
+ * поэтому стек вызовов не собирается: на частых путях (неизвестный id, чужая вещь) он стоит дороже самого ответа.
+ */
+public abstract class ShareItException extends RuntimeException {
+
+    protected ShareItException(String message) {
+        super(message, null, false, false);
+    }
+}
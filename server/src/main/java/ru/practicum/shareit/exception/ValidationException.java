@@ -1,6 +1,7 @@
 package ru.practicum.shareit.exception;
 
-public class ValidationException extends RuntimeException {
+public class ValidationException extends ShareItException {
+
     public ValidationException(String message) {
         super(message);
     }
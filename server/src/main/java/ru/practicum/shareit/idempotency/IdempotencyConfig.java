@@ -0,0 +1,28 @@
+package ru.practicum.shareit.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyStore idempotencyStore(
+            @Value("${shareit.idempotency.maximum-size:64MB}") DataSize maximumSize,
+            @Value("${shareit.idempotency.expire-after-write:PT24H}") Duration expireAfterWrite) {
+        return new IdempotencyStore(maximumSize, expireAfterWrite);
+    }
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore idempotencyStore) {
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyStore));
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
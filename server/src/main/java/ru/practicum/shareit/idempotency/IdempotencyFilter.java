@@ -0,0 +1,170 @@
+package ru.practicum.shareit.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    "Ключ идемпотентности должен быть непустым и не длиннее " + MAX_KEY_LENGTH + " символов.");
+            return;
+        }
+        // Ключи разных пользователей и разных ресурсов не должны пересекаться.
+        String key = request.getHeader(USER_HEADER) + ":" + request.getRequestURI() + ":" + idempotencyKey;
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String fingerprint = fingerprint(cachedRequest.body);
+        Optional<StoredResponse> stored = idempotencyStore.reserve(key, fingerprint);
+        if (stored.isPresent()) {
+            if (!stored.get().getFingerprint().equals(fingerprint)) {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Ключ идемпотентности " + idempotencyKey + " уже использован для запроса с другим телом.");
+                return;
+            }
+            if (idempotencyStore.isInProgress(stored.get())) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                writeError(response, HttpStatus.SERVICE_UNAVAILABLE,
+                        "Запрос с ключом идемпотентности " + idempotencyKey + " ещё выполняется.");
+                return;
+            }
+            log.info("Повторный запрос с ключом идемпотентности {}, возвращаем сохранённый ответ.", idempotencyKey);
+            replay(response, stored.get());
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            chain.doFilter(cachedRequest, wrapper);
+            // Ошибки сервера не сохраняем, чтобы повтор выполнил запрос заново.
+            if (!HttpStatus.valueOf(wrapper.getStatus()).is5xxServerError()) {
+                idempotencyStore.complete(key, new StoredResponse(wrapper.getStatus(), wrapper.getContentType(),
+                        wrapper.getContentAsByteArray(), fingerprint));
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                idempotencyStore.release(key);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void replay(HttpServletResponse response, StoredResponse stored) throws IOException {
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    private static String fingerprint(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен.", e);
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message);
+    }
+
+    /**
+     * Тело запроса читается заранее ради отпечатка, поэтому дальше по цепочке отдаётся его копия.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.shareit.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public class IdempotencyStore {
+
+    private static final int IN_PROGRESS = 0;
+
+    private final Cache<String, StoredResponse> responses;
+
+    public IdempotencyStore(DataSize maximumSize, Duration expireAfterWrite) {
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String key, StoredResponse response) ->
+                        key.length() + response.getBody().length + response.getFingerprint().length())
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    /**
+     * Занимает ключ за текущим запросом. Пустой результат означает, что запрос нужно выполнить,
+     * иначе возвращается сохранённый ответ или признак того, что запрос с этим ключом ещё выполняется.
+     */
+    public Optional<StoredResponse> reserve(String key, String fingerprint) {
+        return Optional.ofNullable(responses.asMap().putIfAbsent(key,
+                new StoredResponse(IN_PROGRESS, null, new byte[0], fingerprint)));
+    }
+
+    public boolean isInProgress(StoredResponse response) {
+        return response.getStatus() == IN_PROGRESS;
+    }
+
+    public void complete(String key, StoredResponse response) {
+        responses.put(key, response);
+    }
+
+    public void release(String key) {
+        responses.asMap().computeIfPresent(key, (k, response) -> isInProgress(response) ? null : response);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StoredResponse {
+    private int status;
+    private String contentType;
+    private byte[] body;
+    // SHA-256 тела запроса: ключ нельзя переиспользовать для другого запроса.
+    private String fingerprint;
+}
@@ -2,13 +2,20 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWhitBooking;
 import ru.practicum.shareit.item.dto.ItemDtoWhitComments;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.request.dto.RequestMatchDto;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +26,7 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ItemController {
     private final ItemService itemService;
+    private final ItemViewCache itemViewCache;
 
     @PostMapping
     public ItemDto createItem(@RequestBody ItemDto itemDto, @RequestHeader("X-Sharer-User-Id") Long ownerId) {
@@ -26,6 +34,13 @@ public class ItemController {
         return itemService.createItem(itemDto, ownerId);
     }
 
+    @PostMapping("/batch")
+    public List<ItemDto> createItems(@RequestBody List<ItemDto> items,
+                                     @RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        log.info("Запрос из gateway на создание {} вещей.", items.size());
+        return itemService.createItems(items, ownerId);
+    }
+
     @PatchMapping("/{id}")
     public ItemDto updateItem(@RequestBody Map<String, String> update,
                               @PathVariable("id") Long itemId,
@@ -35,9 +50,17 @@ public class ItemController {
     }
 
     @GetMapping("/{id}")
-    public ItemDtoWhitComments getItem(@PathVariable("id") Long id) {
+    public ResponseEntity<byte[]> getItem(@PathVariable("id") Long id) {
         log.info("Запрос из gateway на получение вещи с id {}", id);
-        return itemService.getItem(id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(itemViewCache.get(id, itemService::getItem));
+    }
+
+    @GetMapping(params = "ids")
+    public List<ItemDtoWhitComments> getItems(@RequestParam List<Long> ids) {
+        log.info("Запрос из gateway на получение вещей с id {}", ids);
+        return itemService.getItems(ids);
     }
 
     @GetMapping
@@ -52,6 +75,33 @@ public class ItemController {
         return itemService.searchItems(text);
     }
 
+    @GetMapping("/search/available")
+    public List<ItemDto> searchAvailableItems(@RequestParam String text,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                              LocalDateTime from,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                              LocalDateTime to) {
+        log.info("Запрос из gateway на поиск вещей с текстом {}, свободных с {} по {}", text, from, to);
+        return itemService.searchAvailableItems(text, from, to);
+    }
+
+    @GetMapping("/{id}/availability")
+    public ItemAvailabilityDto getItemAvailability(@PathVariable("id") Long itemId,
+                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                   LocalDateTime from,
+                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                   LocalDateTime to) {
+        log.info("Запрос из gateway на расписание вещи с id {} с {} по {}", itemId, from, to);
+        return itemService.getItemAvailability(itemId, from, to);
+    }
+
+    @GetMapping("/{id}/matching-requests")
+    public List<RequestMatchDto> getMatchingRequests(@PathVariable("id") Long itemId,
+                                                     @RequestParam(defaultValue = "20") int size) {
+        log.info("Запрос из gateway на подбор запросов для вещи с id {}.", itemId);
+        return itemService.getMatchingRequests(itemId, size);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteItem(@PathVariable("id") Long id, @RequestHeader("X-Sharer-User-Id") Long ownerId) {
         log.info("Запрос из gateway на удалние вещи с id {}", id);
@@ -65,4 +115,14 @@ public class ItemController {
         log.info("Запрос из gateway на создание нового отзыва.");
         return itemService.createComment(comment, itemId, ownerId);
     }
+
+    @GetMapping("/{id}/comments")
+    public List<CommentDto> getComments(@PathVariable("id") Long itemId,
+                                        @RequestParam(required = false)
+                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                                        @RequestParam(required = false) Long beforeId,
+                                        @RequestParam(defaultValue = "20") int size) {
+        log.info("Запрос из gateway на отзывы вещи с id {} раньше {}.", itemId, before);
+        return itemService.getComments(itemId, before, beforeId, size);
+    }
 }
@@ -1,17 +1,46 @@
 package ru.practicum.shareit.item.dao;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.item.dto.CommentCount;
 import ru.practicum.shareit.item.model.Comment;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 
 public interface CommentDao extends JpaRepository<Comment, Long> {
 
-    @Query("SELECT c FROM Comment c WHERE c.item.id = :itemId")
-    Collection<Comment> findAllCommentsByItemId(@Param("itemId") Long itemId);
+    @EntityGraph(attributePaths = {"author"})
+    @Query("SELECT c FROM Comment c WHERE c.item.id = :itemId ORDER BY c.created DESC, c.id DESC")
+    List<Comment> findLatestByItemId(@Param("itemId") Long itemId, Pageable pageable);
 
-    @Query("SELECT c FROM Comment c WHERE c.item.id IN :itemIds")
-    Collection<Comment> findAllCommentsForAllItemsById(@Param("itemIds") Collection<Long> itemIds);
+    @EntityGraph(attributePaths = {"author"})
+    @Query("SELECT c FROM Comment c WHERE c.item.id = :itemId " +
+            "AND (c.created < :created OR (c.created = :created AND c.id < :id)) " +
+            "ORDER BY c.created DESC, c.id DESC")
+    List<Comment> findByItemIdBefore(@Param("itemId") Long itemId,
+                                     @Param("created") LocalDateTime created,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+
+    // Окно по каждой вещи отбирает только id последних отзывов, сами отзывы дочитываются одним запросом.
+    @Query(value = "SELECT id FROM (SELECT c.id, ROW_NUMBER() OVER (PARTITION BY c.item_id " +
+            "ORDER BY c.created DESC, c.id DESC) AS rn FROM comments c WHERE c.item_id IN :itemIds) ranked " +
+            "WHERE rn <= :limit", nativeQuery = true)
+    List<Long> findLatestIdsByItemIds(@Param("itemIds") Collection<Long> itemIds, @Param("limit") int limit);
+
+    @EntityGraph(attributePaths = {"author"})
+    @Query("SELECT c FROM Comment c WHERE c.id IN :ids ORDER BY c.created DESC, c.id DESC")
+    List<Comment> findAllWithAuthorByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(c) FROM Comment c WHERE c.item.id = :itemId")
+    long countByItemId(@Param("itemId") Long itemId);
+
+    @Query("SELECT new ru.practicum.shareit.item.dto.CommentCount(c.item.id, COUNT(c)) FROM Comment c " +
+            "WHERE c.item.id IN :itemIds GROUP BY c.item.id")
+    List<CommentCount> countByItemIds(@Param("itemIds") Collection<Long> itemIds);
 }
@@ -0,0 +1,37 @@
+package ru.practicum.shareit.item.dao;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ItemBookingSummaryDao extends JpaRepository<ItemBookingSummary, Long>, ItemBookingSummaryDaoCustom {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ItemBookingSummary s WHERE s.itemId = :itemId")
+    Optional<ItemBookingSummary> findForUpdate(@Param("itemId") Long itemId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ItemBookingSummary s WHERE s.itemId IN :itemIds ORDER BY s.itemId")
+    List<ItemBookingSummary> findAllForUpdate(@Param("itemIds") Collection<Long> itemIds);
+
+    // Строки, занятые другой копией приложения, пропускаем: их обновит она.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT s FROM ItemBookingSummary s WHERE s.validUntil IS NULL OR s.validUntil <= :now ORDER BY s.itemId")
+    List<ItemBookingSummary> findStaleForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT i.id FROM Item i WHERE NOT EXISTS " +
+            "(SELECT s.itemId FROM ItemBookingSummary s WHERE s.itemId = i.id)")
+    List<Long> findItemIdsWithoutSummary(Pageable pageable);
+}
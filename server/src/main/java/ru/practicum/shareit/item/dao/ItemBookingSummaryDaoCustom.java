@@ -0,0 +1,8 @@
+package ru.practicum.shareit.item.dao;
+
+import java.util.Collection;
+
+public interface ItemBookingSummaryDaoCustom {
+
+    int insertMissing(Collection<Long> itemIds);
+}
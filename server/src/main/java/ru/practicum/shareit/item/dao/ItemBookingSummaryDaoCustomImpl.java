@@ -0,0 +1,27 @@
+package ru.practicum.shareit.item.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+public class ItemBookingSummaryDaoCustomImpl implements ItemBookingSummaryDaoCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Строку могла уже создать другая копия приложения: конфликт по ключу пропускаем, а не падаем на нём.
+    @Override
+    @Transactional
+    public int insertMissing(Collection<Long> itemIds) {
+        int inserted = 0;
+        for (Long itemId : itemIds) {
+            inserted += entityManager.createQuery("INSERT INTO ItemBookingSummary (itemId, version) "
+                            + "VALUES (:itemId, 0L) ON CONFLICT DO NOTHING")
+                    .setParameter("itemId", itemId)
+                    .executeUpdate();
+        }
+        return inserted;
+    }
+}
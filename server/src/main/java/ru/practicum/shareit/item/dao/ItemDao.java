@@ -1,25 +1,49 @@
 package ru.practicum.shareit.item.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.event.dto.ItemEventPayload;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemDtoForRequest;
 import ru.practicum.shareit.item.model.Item;
 
 import java.util.Collection;
+import java.util.List;
 
-public interface ItemDao extends JpaRepository<Item, Long> {
+public interface ItemDao extends JpaRepository<Item, Long>, ItemDaoCustom {
 
-    @Query("SELECT i FROM Item i WHERE (LOWER(i.name) LIKE LOWER(CONCAT('%', :text, '%')) " +
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemDto(i.id, i.name, i.description, i.available, " +
+            "i.request.id) FROM Item i WHERE (LOWER(i.name) LIKE LOWER(CONCAT('%', :text, '%')) " +
             "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :text, '%'))) AND i.available = TRUE")
-    Collection<Item> findByNameContainingOrDescriptionContaining(@Param("text") String text);
+    Collection<ItemDto> findByNameContainingOrDescriptionContaining(@Param("text") String text);
 
     @Query("SELECT i FROM Item i WHERE i.owner.id = :id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Collection<Item> findByOwnerId(Long id);
 
-    @Query("SELECT i FROM Item i WHERE i.request.id = :id")
-    Collection<Item> findAllItemsByItemRequestId(Long id);
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemDtoForRequest(i.id, i.name, i.owner.id, i.request.id) " +
+            "FROM Item i WHERE i.request.id = :id")
+    Collection<ItemDtoForRequest> findAllItemsByItemRequestId(Long id);
 
-    @Query("SELECT i FROM Item i WHERE i.request.id IN :itemIds")
-    Collection<Item> findAllItemsByItemsRequestIds(@Param("itemIds") Collection<Long> itemIds);
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemDtoForRequest(i.id, i.name, i.owner.id, i.request.id) " +
+            "FROM Item i WHERE i.request.id IN :itemIds")
+    Collection<ItemDtoForRequest> findAllItemsByItemsRequestIds(@Param("itemIds") Collection<Long> itemIds);
 
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemDtoForRequest(i.id, i.name, i.owner.id, i.request.id) " +
+            "FROM Item i WHERE i.request.requestor.id = :requesterId")
+    Collection<ItemDtoForRequest> findAllItemsByRequesterId(Long requesterId);
+
+
+    @Query("SELECT new ru.practicum.shareit.event.dto.ItemEventPayload(i.id, i.owner.id, i.name, i.description, " +
+            "i.available, r.id) FROM Item i LEFT JOIN i.request r WHERE i.id > :afterId ORDER BY i.id")
+    List<ItemEventPayload> findEventPayloadsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new ru.practicum.shareit.event.dto.ItemEventPayload(i.id, i.owner.id, i.name, i.description, " +
+            "i.available, r.id) FROM Item i LEFT JOIN i.request r WHERE i.owner.id = :ownerId")
+    List<ItemEventPayload> findEventPayloadsByOwnerId(@Param("ownerId") Long ownerId);
 }
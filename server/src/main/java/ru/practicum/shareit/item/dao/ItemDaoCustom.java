@@ -0,0 +1,11 @@
+package ru.practicum.shareit.item.dao;
+
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface ItemDaoCustom {
+
+    Optional<Item> updateOwnedColumns(Long id, Long ownerId, Map<String, Object> columns);
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.item.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ru.practicum.shareit.common.ReturningUpdate;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.Map;
+import java.util.Optional;
+
+public class ItemDaoCustomImpl implements ItemDaoCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Item> updateOwnedColumns(Long id, Long ownerId, Map<String, Object> columns) {
+        return ReturningUpdate.execute(entityManager, Item.class, "items", id, columns,
+                "owner_id = :ownerId AND owner_id NOT IN (SELECT u.id FROM users u WHERE u.deleted = TRUE)",
+                Map.of("ownerId", ownerId));
+    }
+}
@@ -1,5 +1,7 @@
 package ru.practicum.shareit.item.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -12,4 +14,11 @@ public class ItemDtoForRequest {
     private Long id;
     private String name;
     private Long ownerId;
+    @JsonIgnore
+    private Long requestId;
+
+    @JsonCreator
+    public ItemDtoForRequest(Long id, String name, Long ownerId) {
+        this(id, name, ownerId, null);
+    }
 }
@@ -18,4 +18,5 @@ public class ItemDtoWhitBooking {
     private BookingDto lastBooking;
     private BookingDto nextBooking;
     private Collection<CommentDto> comments;
+    private long commentsCount;
 }
@@ -37,7 +37,8 @@ public class ItemMapper {
     public static ItemDtoWhitBooking toItemDtoWhitBooking(Item item,
                                                           Booking lastBooking,
                                                           Booking nextBooking,
-                                                          Collection<Comment> comments) {
+                                                          Collection<Comment> comments,
+                                                          long commentsCount) {
         BookingDto lastBookingDto = lastBooking != null ? BookingMapper.toBookingDto(lastBooking) : null;
         BookingDto nextBookingDto = nextBooking != null ? BookingMapper.toBookingDto(nextBooking) : null;
 
@@ -48,7 +49,8 @@ public class ItemMapper {
                 item.isAvailable(),
                 lastBookingDto,
                 nextBookingDto,
-                comments.stream().map(CommentMapper::toCommentDto).toList()
+                comments.stream().map(CommentMapper::toCommentDto).toList(),
+                commentsCount
         );
     }
 
@@ -62,7 +64,8 @@ public class ItemMapper {
     }
 
     public static ItemDtoWhitComments toItemDtoWhitComments(Item item,
-                                                            Collection<Comment> comments) {
+                                                            Collection<Comment> comments,
+                                                            long commentsCount) {
         return new ItemDtoWhitComments(
                 item.getId(),
                 item.getName(),
@@ -70,7 +73,8 @@ public class ItemMapper {
                 item.isAvailable(),
                 null,
                 null,
-                comments.stream().map(CommentMapper::toCommentDto).toList()
+                comments.stream().map(CommentMapper::toCommentDto).toList(),
+                commentsCount
         );
     }
 
@@ -78,7 +82,8 @@ public class ItemMapper {
         return new ItemDtoForRequest(
                 item.getId(),
                 item.getName(),
-                item.getOwner().getId());
+                item.getOwner().getId(),
+                item.getRequest() != null ? item.getRequest().getId() : null);
 
     }
 }
@@ -3,18 +3,22 @@ package ru.practicum.shareit.item.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.hibernate.annotations.SQLRestriction;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 
 @Data
 @Entity
+@SQLRestriction("author_id NOT IN (SELECT u.id FROM users u WHERE u.deleted = TRUE) "
+        + "AND item_id NOT IN (SELECT i.id FROM items i JOIN users u ON u.id = i.owner_id WHERE u.deleted = TRUE)")
 @Table(name = "comments", schema = "public")
 @AllArgsConstructor
 public class Comment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
     private Long id;
     @Column(name = "text")
     private String text;
@@ -3,17 +3,26 @@ package ru.practicum.shareit.item.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+import ru.practicum.shareit.config.EntityCacheConfig;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfig.ITEMS_REGION)
+// Вещи удалённого пользователя скрыты вместе с ним, пока фоновая очистка не удалит их.
+@SQLRestriction("owner_id NOT IN (SELECT u.id FROM users u WHERE u.deleted = TRUE)")
 @Table(name = "items", schema = "public")
 @AllArgsConstructor
 public class Item {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", sequenceName = "items_seq", allocationSize = 50)
     private Long id;
     @Column(name = "name")
     private String name;
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.item.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "item_booking_summary", schema = "public",
+        indexes = @Index(name = "ix_item_booking_summary_valid_until", columnList = "valid_until"))
+@NoArgsConstructor
+public class ItemBookingSummary {
+
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+    @Column(name = "last_booking_id")
+    private Long lastBookingId;
+    @Column(name = "next_booking_id")
+    private Long nextBookingId;
+    // Ближайший момент, когда одно из одобренных бронирований начнётся или закончится. Пустое значение
+    // у ещё не посчитанной строки: её пересчитывают при первом же обращении.
+    @Column(name = "valid_until")
+    private LocalDateTime validUntil;
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public ItemBookingSummary(Long itemId, Long lastBookingId, Long nextBookingId, LocalDateTime validUntil) {
+        this.itemId = itemId;
+        this.lastBookingId = lastBookingId;
+        this.nextBookingId = nextBookingId;
+        this.validUntil = validUntil;
+    }
+
+    public boolean isStaleAt(LocalDateTime now) {
+        return validUntil == null || !validUntil.isAfter(now);
+    }
+}
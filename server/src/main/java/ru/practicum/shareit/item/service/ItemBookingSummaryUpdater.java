@@ -0,0 +1,158 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.ItemBookingBoundaries;
+import ru.practicum.shareit.item.dao.ItemBookingSummaryDao;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class ItemBookingSummaryUpdater {
+
+    private final ItemBookingSummaryDao summaryDao;
+    private final BookingDao bookingDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int sweepBatchSize;
+    private final int sweepMaxBatches;
+    private final Duration maxAge;
+
+    public ItemBookingSummaryUpdater(ItemBookingSummaryDao summaryDao,
+                                     BookingDao bookingDao,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${shareit.booking-summary.sweep-batch-size:500}") int sweepBatchSize,
+                                     @Value("${shareit.booking-summary.sweep-max-batches:20}") int sweepMaxBatches,
+                                     @Value("${shareit.booking-summary.max-age:P1D}") Duration maxAge) {
+        this.summaryDao = summaryDao;
+        this.bookingDao = bookingDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sweepBatchSize = sweepBatchSize;
+        this.sweepMaxBatches = sweepMaxBatches;
+        this.maxAge = maxAge;
+    }
+
+    public Map<Long, ItemBookingSummary> findSummaries(Collection<Long> itemIds, LocalDateTime now) {
+        Map<Long, ItemBookingSummary> summaries = summaryDao.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(ItemBookingSummary::getItemId, Function.identity()));
+        // Устаревшие строки досчитываем на лету, а в базе их обновит фоновый проход.
+        List<Long> outdated = itemIds.stream()
+                .filter(itemId -> summaries.get(itemId) == null || summaries.get(itemId).isStaleAt(now))
+                .toList();
+        if (!outdated.isEmpty()) {
+            summaries.putAll(compute(outdated, now));
+        }
+        return summaries;
+    }
+
+    @Transactional
+    public void track(Collection<Long> itemIds) {
+        summaryDao.saveAll(itemIds.stream()
+                .map(itemId -> new ItemBookingSummary(itemId, null, null, null))
+                .toList());
+    }
+
+    @Transactional
+    public void refresh(Long itemId) {
+        refreshAll(List.of(itemId));
+    }
+
+    /**
+     * Пересчитывает сводки под блокировкой строк, поэтому расчёт видит все бронирования, закоммиченные до него.
+     */
+    @Transactional
+    public void refreshAll(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        List<ItemBookingSummary> summaries = summaryDao.findAllForUpdate(itemIds);
+        Map<Long, ItemBookingSummary> actual = compute(itemIds, LocalDateTime.now());
+        summaries.forEach(summary -> update(summary, actual.get(summary.getItemId())));
+    }
+
+    /**
+     * Вещи, чьи сводки могут ссылаться на одобренные бронирования пользователя. Их нужно пересчитать после
+     * того, как бронирования удалит каскад или очистка в обход Hibernate.
+     */
+    @Transactional(readOnly = true)
+    public Collection<Long> findItemIdsBookedBy(Long bookerId) {
+        return bookingDao.findApprovedItemIdsByBookerId(bookerId);
+    }
+
+    @Transactional
+    public void forget(Long itemId) {
+        summaryDao.deleteAllByIdInBatch(List.of(itemId));
+    }
+
+    /**
+     * Обходит устаревшие сводки порциями, каждую в своей транзакции. Порция блокирует свои строки
+     * с пропуском занятых, поэтому несколько копий приложения не обновляют одни и те же строки.
+     */
+    @Scheduled(fixedDelayString = "${shareit.booking-summary.sweep-delay:PT1M}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> missing = summaryDao.findItemIdsWithoutSummary(PageRequest.of(0, sweepBatchSize));
+        int created = missing.isEmpty() ? 0 : summaryDao.insertMissing(missing);
+        int refreshed = 0;
+        for (int batch = 0; batch < sweepMaxBatches; batch++) {
+            int rows = Objects.requireNonNull(transactionTemplate.execute(status -> sweepBatch(now)));
+            refreshed += rows;
+            if (rows < sweepBatchSize) {
+                break;
+            }
+        }
+        if (created > 0 || refreshed > 0) {
+            log.info("Обновили сводку бронирований: создано {}, пересчитано {}.", created, refreshed);
+        }
+    }
+
+    private int sweepBatch(LocalDateTime now) {
+        List<ItemBookingSummary> stale = summaryDao.findStaleForUpdate(now, PageRequest.of(0, sweepBatchSize));
+        if (stale.isEmpty()) {
+            return 0;
+        }
+        Map<Long, ItemBookingSummary> actual = compute(stale.stream().map(ItemBookingSummary::getItemId).toList(),
+                now);
+        stale.forEach(summary -> update(summary, actual.get(summary.getItemId())));
+        return stale.size();
+    }
+
+    private Map<Long, ItemBookingSummary> compute(Collection<Long> itemIds, LocalDateTime now) {
+        // Без предстоящих границ сводка всё равно перепроверяется раз в maxAge: так её догонят изменения,
+        // прошедшие мимо refresh.
+        LocalDateTime recheckAt = now.plus(maxAge);
+        Map<Long, ItemBookingSummary> result = new HashMap<>();
+        itemIds.forEach(itemId -> result.put(itemId, new ItemBookingSummary(itemId, null, null, recheckAt)));
+        for (ItemBookingBoundaries boundaries : bookingDao.findApprovedBookingBoundaries(itemIds, now)) {
+            // Одобренные бронирования не пересекаются: ближайшая граница - конец текущего или начало следующего.
+            LocalDateTime boundary = boundaries.getCurrentEnd() != null
+                    ? boundaries.getCurrentEnd() : boundaries.getNextStart();
+            LocalDateTime validUntil = boundary != null && boundary.isBefore(recheckAt) ? boundary : recheckAt;
+            result.put(boundaries.getItemId(), new ItemBookingSummary(boundaries.getItemId(),
+                    boundaries.getLastBookingId(), boundaries.getNextBookingId(), validUntil));
+        }
+        return result;
+    }
+
+    private void update(ItemBookingSummary summary, ItemBookingSummary actual) {
+        summary.setLastBookingId(actual.getLastBookingId());
+        summary.setNextBookingId(actual.getNextBookingId());
+        summary.setValidUntil(actual.getValidUntil());
+    }
+}
@@ -1,10 +1,13 @@
 package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWhitBooking;
 import ru.practicum.shareit.item.dto.ItemDtoWhitComments;
+import ru.practicum.shareit.request.dto.RequestMatchDto;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -13,16 +16,28 @@ public interface ItemService {
 
     ItemDtoWhitComments getItem(Long id);
 
+    List<ItemDtoWhitComments> getItems(List<Long> ids);
+
     Collection<ItemDtoWhitBooking> getAllOwnerItems(Long ownerId);
 
     ItemDto createItem(ItemDto item, Long ownerI);
 
+    List<ItemDto> createItems(List<ItemDto> items, Long ownerId);
+
     void deleteItem(Long id, Long ownerId);
 
     ItemDto updateItem(Map<String, String> update, Long itemId, Long ownerId);
 
     List<ItemDto> searchItems(String searchText);
 
+    List<ItemDto> searchAvailableItems(String searchText, LocalDateTime from, LocalDateTime to);
+
+    ItemAvailabilityDto getItemAvailability(Long itemId, LocalDateTime from, LocalDateTime to);
+
+    List<RequestMatchDto> getMatchingRequests(Long itemId, int size);
+
     CommentDto createComment(CommentDto comment, Long itemId, Long ownerId);
 
+    List<CommentDto> getComments(Long itemId, LocalDateTime before, Long beforeId, int size);
+
 }
@@ -2,121 +2,207 @@ package ru.practicum.shareit.item.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.BookingInterval;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.common.ParallelQueries;
+import ru.practicum.shareit.event.mapper.EventMapper;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.exception.ForbiddenException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dao.CommentDao;
 import ru.practicum.shareit.item.dao.ItemDao;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWhitBooking;
 import ru.practicum.shareit.item.dto.ItemDtoWhitComments;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
 import ru.practicum.shareit.item.mapper.CommentMapper;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
 import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.dto.RequestMatchDto;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
+
+    private static final int LATEST_COMMENTS_LIMIT = 10;
     private final ItemDao itemDao;
     private final UserDao userDao;
     private final BookingDao bookingDao;
     private final CommentDao commentDao;
     private final ItemRequestDao itemRequestDao;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+    private final OutboxPublisher outboxPublisher;
+    private final ItemRequestMatcher itemRequestMatcher;
+    private final ItemViewCache itemViewCache;
+    private final ParallelQueries parallelQueries;
 
     @Override
+    @Transactional(readOnly = true)
     public ItemDtoWhitComments getItem(Long id) {
         log.info("Передаём запрос на получение вещи с id {} в itemDao.", id);
         Item item = findItemById(id);
-        return ItemMapper.toItemDtoWhitComments(item, commentDao.findAllCommentsByItemId(item.getId()));
+        List<Comment> latest = commentDao.findLatestByItemId(id, PageRequest.of(0, LATEST_COMMENTS_LIMIT));
+        long commentsCount = latest.size() < LATEST_COMMENTS_LIMIT ? latest.size() : commentDao.countByItemId(id);
+        return ItemMapper.toItemDtoWhitComments(item, latest, commentsCount);
     }
 
     @Override
-    public List<ItemDtoWhitBooking> getAllOwnerItems(Long ownerId) {
-        log.info("Передаём запрос на список всех вещей пользоваля с id{} из itemDao.", ownerId);
-        findUserById(ownerId);
-        Collection<Item> userItems = itemDao.findByOwnerId(ownerId);
-        List<Long> itemIds = userItems.stream().map(Item::getId).toList();
-        LocalDateTime now = LocalDateTime.now();
-
-        if (itemIds.isEmpty()) {
+    @Transactional(readOnly = true)
+    public List<ItemDtoWhitComments> getItems(List<Long> ids) {
+        log.info("Передаём запрос на получение {} вещей в itemDao.", ids.size());
+        Map<Long, Item> items = itemDao.findAllById(ids).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        if (items.isEmpty()) {
             return Collections.emptyList();
         }
+        Map<Long, List<Comment>> comments = findLatestComments(items.keySet());
+        Map<Long, Long> counts = countComments(comments);
+        return ids.stream()
+                .distinct()
+                .map(items::get)
+                .filter(Objects::nonNull)
+                .map(item -> ItemMapper.toItemDtoWhitComments(item,
+                        comments.getOrDefault(item.getId(), Collections.emptyList()),
+                        counts.getOrDefault(item.getId(), 0L)))
+                .toList();
+    }
 
-        Collection<Booking> itemsBooking = bookingDao.findAllRelevantApprovedOwnerItemsBookingsById(itemIds, now);
+    @Override
+    public List<ItemDtoWhitBooking> getAllOwnerItems(Long ownerId) {
+        log.info("Передаём запрос на список всех вещей пользоваля с id{} из itemDao.", ownerId);
+        // Независимые запросы каждого шага идут параллельно, поэтому сам метод транзакцию не открывает.
+        try (ParallelQueries.Scope scope = parallelQueries.open()) {
+            scope.fork(() -> findUserById(ownerId));
+            Supplier<Collection<Item>> items = scope.fork(() -> itemDao.findByOwnerId(ownerId));
+            scope.join();
+            Collection<Item> userItems = items.get();
+            List<Long> itemIds = userItems.stream().map(Item::getId).toList();
+            LocalDateTime now = LocalDateTime.now();
 
-        Collection<Comment> itemsComments = commentDao.findAllCommentsForAllItemsById(itemIds);
+            if (itemIds.isEmpty()) {
+                return Collections.emptyList();
+            }
 
-        Map<Long, List<Booking>> bookingMap = itemsBooking.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.groupingBy(b -> b.getItem().getId()));
+            Supplier<Map<Long, ItemBookingSummary>> summaries = scope.fork(() ->
+                    itemBookingSummaryUpdater.findSummaries(itemIds, now));
+            Supplier<Map<Long, List<Comment>>> comments = scope.fork(() -> findLatestComments(itemIds));
+            scope.join();
+            Supplier<Map<Long, Booking>> bookings = scope.fork(() -> findBookings(summaries.get().values()));
+            Supplier<Map<Long, Long>> counts = scope.fork(() -> countComments(comments.get()));
+            scope.join();
 
-        Map<Long, List<Comment>> commentMap = itemsComments.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.groupingBy(c -> c.getItem().getId()));
-
-
-        return userItems.stream()
-                .map(item -> {
-                    List<Booking> bookings = bookingMap.getOrDefault(item.getId(), Collections.emptyList());
-                    Collection<Comment> comment = commentMap.getOrDefault(item.getId(), Collections.emptyList());
-                    Booking lastBooking = bookings.stream()
-                            .filter(booking -> booking.getEnd().isBefore(now))
-                            .max(Comparator.comparing(Booking::getEnd))
-                            .orElse(null);
-                    Booking nextBooking = bookings.stream()
-                            .filter(booking -> booking.getStart().isAfter(now))
-                            .min(Comparator.comparing(Booking::getStart))
-                            .orElse(null);
-                    return ItemMapper.toItemDtoWhitBooking(item, lastBooking, nextBooking, comment);
-                })
-                .toList();
+            return userItems.stream()
+                    .map(item -> {
+                        ItemBookingSummary summary = summaries.get().get(item.getId());
+                        return ItemMapper.toItemDtoWhitBooking(item,
+                                bookings.get().get(summary.getLastBookingId()),
+                                bookings.get().get(summary.getNextBookingId()),
+                                comments.get().getOrDefault(item.getId(), Collections.emptyList()),
+                                counts.get().getOrDefault(item.getId(), 0L));
+                    })
+                    .toList();
+        }
     }
 
     @Override
+    @Transactional
     public ItemDto createItem(ItemDto itemDto, Long ownerId) {
         log.info("Передаём запрос на создание новой вещи с id пользователя {} в itemDao.", ownerId);
         User user = findUserById(ownerId);
         ItemRequest request = findRequestById(itemDto);
-        return ItemMapper.toItemDto(itemDao.save(ItemMapper.fromItemDto(itemDto, user, request)));
+        Item item = itemDao.save(ItemMapper.fromItemDto(itemDto, user, request));
+        itemBookingSummaryUpdater.track(List.of(item.getId()));
+        outboxPublisher.publish(EventType.ITEM_CREATED, item.getId(), EventMapper.toItemEventPayload(item));
+        return ItemMapper.toItemDto(item);
     }
 
     @Override
+    @Transactional
+    public List<ItemDto> createItems(List<ItemDto> items, Long ownerId) {
+        log.info("Передаём запрос на создание {} вещей с id пользователя {} в itemDao.", items.size(), ownerId);
+        User user = findUserById(ownerId);
+        Set<Long> requestIds = items.stream()
+                .map(ItemDto::getRequestId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, ItemRequest> requests = itemRequestDao.findAllById(requestIds).stream()
+                .collect(Collectors.toMap(ItemRequest::getId, Function.identity()));
+        if (requests.size() < requestIds.size()) {
+            requestIds.removeAll(requests.keySet());
+            throw new NotFoundException("Запросы с id " + requestIds + " не найдены.");
+        }
+
+        List<Item> newItems = items.stream()
+                .map(itemDto -> {
+                    Item item = ItemMapper.fromItemDto(itemDto, user, requests.get(itemDto.getRequestId()));
+                    item.setId(null);
+                    return item;
+                })
+                .toList();
+        List<Item> savedItems = itemDao.saveAll(newItems);
+        itemBookingSummaryUpdater.track(savedItems.stream().map(Item::getId).toList());
+        savedItems.forEach(item ->
+                outboxPublisher.publish(EventType.ITEM_CREATED, item.getId(), EventMapper.toItemEventPayload(item)));
+        return savedItems.stream()
+                .map(ItemMapper::toItemDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional
     public void deleteItem(Long itemId, Long ownerId) {
         log.info("Передаём запрос на удаление вещи с id {}  от пользлвателя с id {} в itemDao.", itemId, ownerId);
         findUserById(ownerId);
         Item item = findItemById(itemId);
         if (!item.getOwner().getId().equals(ownerId)) {
-            throw new ValidationException("Только владелец вещи может удалить вещь");
+            throw new ForbiddenException("Только владелец вещи может удалить вещь");
         }
+        // Бронирования вещи удалит каскад в базе, поэтому события об их удалении публикуем заранее.
+        bookingDao.findEventPayloadsByItemId(itemId).forEach(payload ->
+                outboxPublisher.publish(EventType.BOOKING_DELETED, payload.getBookingId(), payload));
         itemDao.deleteById(itemId);
+        itemBookingSummaryUpdater.forget(itemId);
+        bookingIntervalIndex.evict(itemId);
+        itemViewCache.evict(itemId);
+        itemRequestMatcher.evictItem(itemId);
+        outboxPublisher.publish(EventType.ITEM_DELETED, itemId, EventMapper.toItemEventPayload(item));
     }
 
     @Override
+    @Transactional
     public ItemDto updateItem(Map<String, String> update, Long itemId, Long ownerId) {
         log.info("Передаём запрос на обновление вещи с id {} в itemDao.", itemId);
-        findUserById(ownerId);
-        Item oldItem = findItemById(itemId);
-
-        if (!oldItem.getOwner().getId().equals(ownerId)) {
-            throw new ValidationException("Описание вещи может менять только владелец веши!");
-        }
+        Map<String, Object> columns = new LinkedHashMap<>();
         if (update.get("name") != null) {
             if (!update.get("name").isBlank()) {
-                oldItem.setName(update.get("name"));
+                columns.put("name", update.get("name"));
             } else {
                 throw new ValidationException("В запросе на обновление названия вещи была передана пустая строчка.");
             }
@@ -125,29 +211,97 @@ public class ItemServiceImpl implements ItemService {
             if (update.get("description").isBlank()) {
                 throw new ValidationException("В запросе на обновление описания вещи была передана пустая строчка.");
             }
-            oldItem.setDescription(update.get("description"));
+            columns.put("description", update.get("description"));
         }
         if (update.get("available") != null) {
             if (!update.get("available").isBlank()) {
-                oldItem.setAvailable(Boolean.parseBoolean(update.get("available")));
+                columns.put("available", Boolean.parseBoolean(update.get("available")));
             } else {
                 throw new ValidationException("В запросе на обновление статуса доступности " +
                         "была передана пустая строчка");
             }
         }
-        itemDao.save(oldItem);
-        return ItemMapper.toItemDto(oldItem);
+        // Владелец проверяется в самом UPDATE, причину отказа выясняем только когда строка не обновилась.
+        Item item = itemDao.updateOwnedColumns(itemId, ownerId, columns).orElseThrow(() -> {
+            findUserById(ownerId);
+            findItemById(itemId);
+            return new ForbiddenException("Описание вещи может менять только владелец веши!");
+        });
+        itemViewCache.evict(itemId);
+        outboxPublisher.publish(EventType.ITEM_UPDATED, itemId, EventMapper.toItemEventPayload(item));
+        return ItemMapper.toItemDto(item);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ItemDto> searchItems(String searchText) {
         log.info("Передаём запрос на поиск вещи с текстом {} в itemDao.", searchText);
-        return itemDao.findByNameContainingOrDescriptionContaining(searchText).stream()
-                .map(ItemMapper::toItemDto)
+        return List.copyOf(itemDao.findByNameContainingOrDescriptionContaining(searchText));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemDto> searchAvailableItems(String searchText, LocalDateTime from, LocalDateTime to) {
+        log.info("Передаём запрос на поиск вещи с текстом {}, свободной с {} по {}.", searchText, from, to);
+        checkPeriod(from, to);
+        Collection<ItemDto> candidates = itemDao.findByNameContainingOrDescriptionContaining(searchText);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> busyItems = bookingIntervalIndex.findBusyItems(candidates.stream()
+                .map(ItemDto::getId)
+                .toList(), from, to);
+        return candidates.stream()
+                .filter(item -> !busyItems.contains(item.getId()))
                 .toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public ItemAvailabilityDto getItemAvailability(Long itemId, LocalDateTime from, LocalDateTime to) {
+        log.info("Передаём запрос на расписание вещи с id {} с {} по {}.", itemId, from, to);
+        checkPeriod(from, to);
+        findItemById(itemId);
+
+        List<TimeSlotDto> busy = new ArrayList<>();
+        List<TimeSlotDto> free = new ArrayList<>();
+        LocalDateTime cursor = from;
+        for (BookingInterval interval : bookingIntervalIndex.findBusyIntervals(itemId, from, to)) {
+            LocalDateTime start = interval.getStart().isBefore(from) ? from : interval.getStart();
+            LocalDateTime end = interval.getEnd().isAfter(to) ? to : interval.getEnd();
+            if (start.isAfter(cursor)) {
+                free.add(new TimeSlotDto(cursor, start));
+            }
+            TimeSlotDto last = busy.isEmpty() ? null : busy.getLast();
+            if (last != null && !start.isAfter(last.getEnd())) {
+                last.setEnd(end.isAfter(last.getEnd()) ? end : last.getEnd());
+            } else {
+                busy.add(new TimeSlotDto(start, end));
+            }
+            cursor = end.isAfter(cursor) ? end : cursor;
+        }
+        if (cursor.isBefore(to)) {
+            free.add(new TimeSlotDto(cursor, to));
+        }
+        return new ItemAvailabilityDto(itemId, from, to, busy, free);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RequestMatchDto> getMatchingRequests(Long itemId, int size) {
+        findItemById(itemId);
+        Map<Long, Double> scores = itemRequestMatcher.matchRequests(itemId, size);
+        log.info("Для вещи с id {} подобрано запросов: {}.", itemId, scores.size());
+        Map<Long, ItemRequest> requests = itemRequestDao.findAllById(scores.keySet()).stream()
+                .collect(Collectors.toMap(ItemRequest::getId, Function.identity()));
+        return scores.entrySet().stream()
+                .filter(score -> requests.containsKey(score.getKey()))
+                .map(score -> ItemRequestMapper.toRequestMatchDto(requests.get(score.getKey()), score.getValue()))
+                .toList();
+    }
+
+    @Override
+    @Transactional
     public CommentDto createComment(CommentDto comment, Long itemId, Long ownerId) {
         Item item = findItemById(itemId);
         User user = findUserById(ownerId);
@@ -155,12 +309,70 @@ public class ItemServiceImpl implements ItemService {
                 .orElseThrow(() -> new NotFoundException("Бронь не найден"));
         if (booking.getStatus().equals(Status.APPROVED) && booking.getEnd().isBefore(LocalDateTime.now())) {
             log.info("Передаём запрос на создание отзыва в commentDao.");
-            return CommentMapper.toCommentDto(commentDao.save(CommentMapper.fromCommentDto(comment, item, user)));
+            Comment saved = commentDao.save(CommentMapper.fromCommentDto(comment, item, user));
+            itemViewCache.evict(itemId);
+            return CommentMapper.toCommentDto(saved);
         }
         throw new ValidationException("Вы не можете оставить отзыв о вещи с id " +
                 itemId + ", поскольку вы не брали её в аренду или срок аренды ещё не истёк.");
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<CommentDto> getComments(Long itemId, LocalDateTime before, Long beforeId, int size) {
+        log.info("Передаём запрос на отзывы вещи с id {} раньше {} в commentDao.", itemId, before);
+        findItemById(itemId);
+        PageRequest page = PageRequest.of(0, size);
+        List<Comment> comments = before == null
+                ? commentDao.findLatestByItemId(itemId, page)
+                : commentDao.findByItemIdBefore(itemId, before, beforeId != null ? beforeId : Long.MAX_VALUE, page);
+        return comments.stream()
+                .map(CommentMapper::toCommentDto)
+                .toList();
+    }
+
+    private void checkPeriod(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Начало периода должно быть раньше его окончания.");
+        }
+    }
+
+    private Map<Long, Booking> findBookings(Collection<ItemBookingSummary> summaries) {
+        Set<Long> bookingIds = summaries.stream()
+                .flatMap(summary -> Stream.of(summary.getLastBookingId(), summary.getNextBookingId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (bookingIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return bookingDao.findAllWithItemAndBookerByIdIn(bookingIds).stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+    }
+
+    private Map<Long, List<Comment>> findLatestComments(Collection<Long> itemIds) {
+        List<Long> commentIds = commentDao.findLatestIdsByItemIds(itemIds, LATEST_COMMENTS_LIMIT);
+        if (commentIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return commentDao.findAllWithAuthorByIdIn(commentIds).stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId()));
+    }
+
+    private Map<Long, Long> countComments(Map<Long, List<Comment>> latest) {
+        // Считаем в базе только вещи, у которых отзывов не меньше лимита, у остальных их число уже известно.
+        Map<Long, Long> counts = new HashMap<>();
+        latest.forEach((itemId, comments) -> counts.put(itemId, (long) comments.size()));
+        List<Long> truncated = latest.entrySet().stream()
+                .filter(entry -> entry.getValue().size() >= LATEST_COMMENTS_LIMIT)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!truncated.isEmpty()) {
+            commentDao.countByItemIds(truncated)
+                    .forEach(count -> counts.put(count.getItemId(), count.getCount()));
+        }
+        return counts;
+    }
+
     private Item findItemById(Long itemId) {
         return itemDao.findById(itemId).orElseThrow(() -> new NotFoundException("Вещь с id " + itemId + " не найдена"));
     }
@@ -0,0 +1,84 @@
+package ru.practicum.shareit.item.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.dto.ItemDtoWhitComments;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Готовые JSON-ответы {@code GET /items/{id}}. Хранятся сериализованными тем же ObjectMapper,
+ * что и остальные ответы, поэтому повторный запрос отдаёт байты без обращения к базе и Jackson.
+ */
+@Component
+public class ItemViewCache implements MeterBinder {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, byte[]> views;
+
+    public ItemViewCache(ObjectMapper objectMapper,
+                         @Value("${shareit.item-view-cache.maximum-size:32MB}") DataSize maximumSize,
+                         @Value("${shareit.item-view-cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.objectMapper = objectMapper;
+        this.views = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((Long itemId, byte[] body) -> body.length)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public byte[] get(Long itemId, Function<Long, ItemDtoWhitComments> loader) {
+        return views.get(itemId, id -> render(loader.apply(id)));
+    }
+
+    /**
+     * Сбрасывает ответ после коммита: чтение, успевшее закэшировать старые данные до коммита,
+     * не переживёт сброс, а новое чтение уже увидит изменения.
+     */
+    public void evict(Long itemId) {
+        afterCommit(() -> views.invalidate(itemId));
+    }
+
+    public void evictAll() {
+        afterCommit(views::invalidateAll);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, views, "itemViews");
+    }
+
+    private byte[] render(ItemDtoWhitComments item) {
+        try {
+            return objectMapper.writeValueAsBytes(item);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+}
@@ -5,9 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItem;
+import ru.practicum.shareit.request.dto.ItemSuggestionDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -41,6 +43,13 @@ public class ItemRequestController {
         return itemRequestService.getItemRequest(requestId);
     }
 
+    @GetMapping("/{requestId}/suggestions")
+    public List<ItemSuggestionDto> getSuggestions(@PathVariable Long requestId,
+                                                  @RequestParam(defaultValue = "20") int size) {
+        log.info("Запрос из gateway на подбор вещей для запроса с id {}.", requestId);
+        return itemRequestService.getSuggestions(requestId, size);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteRequestById(@PathVariable("id") Long requestId, @RequestHeader("X-Sharer-User-Id") Long ownerId) {
         log.info("Запрос из gateway на удаление запроса с id {}, от пользователя с id {}.", requestId, ownerId);
@@ -1,17 +1,31 @@
 package ru.practicum.shareit.request.dao;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.event.dto.ItemRequestEventPayload;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.model.ItemRequest;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface ItemRequestDao extends JpaRepository<ItemRequest, Long> {
 
-    @Query("SELECT r FROM ItemRequest r WHERE r.requestor.id = :ownerId ORDER BY r.created DESC")
-    Collection<ItemRequest> findAllOwnerRequest(Long ownerId);
+    @Query("SELECT new ru.practicum.shareit.request.dto.ItemRequestDto(r.id, r.description, r.created) " +
+            "FROM ItemRequest r WHERE r.requestor.id = :ownerId ORDER BY r.created DESC")
+    Collection<ItemRequestDto> findAllOwnerRequest(Long ownerId);
 
-    @Query("SELECT r FROM ItemRequest r WHERE r.requestor.id  != :userId ORDER BY r.created DESC")
-    Collection<ItemRequest> findAllByNotRequesterId(Long userId);
+    @Query("SELECT new ru.practicum.shareit.request.dto.ItemRequestDto(r.id, r.description, r.created) " +
+            "FROM ItemRequest r WHERE r.requestor.id  != :userId ORDER BY r.created DESC")
+    Collection<ItemRequestDto> findAllByNotRequesterId(Long userId);
 
+    @Query("SELECT new ru.practicum.shareit.event.dto.ItemRequestEventPayload(r.id, r.requestor.id, r.description) " +
+            "FROM ItemRequest r WHERE r.id > :afterId ORDER BY r.id")
+    List<ItemRequestEventPayload> findEventPayloadsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new ru.practicum.shareit.event.dto.ItemRequestEventPayload(r.id, r.requestor.id, r.description) " +
+            "FROM ItemRequest r WHERE r.requestor.id = :requesterId")
+    List<ItemRequestEventPayload> findEventPayloadsByRequesterId(@Param("requesterId") Long requesterId);
 }
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.request.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class ItemSuggestionDto {
+    private Long id;
+    private String name;
+    private String description;
+    private Long ownerId;
+    private double score;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.request.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class RequestMatchDto {
+    private Long id;
+    private String description;
+    private LocalDateTime created;
+    private double score;
+}
@@ -5,6 +5,8 @@ import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItem;
+import ru.practicum.shareit.request.dto.ItemSuggestionDto;
+import ru.practicum.shareit.request.dto.RequestMatchDto;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 
@@ -38,4 +40,27 @@ public class ItemRequestMapper {
                 itemRequest.getCreated(),
                 itemsForRequests);
     }
+
+    public static ItemRequestDtoWithItem toItemRequestWithItem(ItemRequestDto itemRequest,
+                                                               Collection<ItemDtoForRequest> items) {
+        return new ItemRequestDtoWithItem(itemRequest.getId(),
+                itemRequest.getDescription(),
+                itemRequest.getCreated(),
+                items == null ? Collections.emptyList() : List.copyOf(items));
+    }
+
+    public static ItemSuggestionDto toItemSuggestionDto(Item item, double score) {
+        return new ItemSuggestionDto(item.getId(),
+                item.getName(),
+                item.getDescription(),
+                item.getOwner().getId(),
+                score);
+    }
+
+    public static RequestMatchDto toRequestMatchDto(ItemRequest itemRequest, double score) {
+        return new RequestMatchDto(itemRequest.getId(),
+                itemRequest.getDescription(),
+                itemRequest.getCreated(),
+                score);
+    }
 }
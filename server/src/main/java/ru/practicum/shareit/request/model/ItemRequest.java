@@ -3,18 +3,21 @@ package ru.practicum.shareit.request.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.hibernate.annotations.SQLRestriction;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 
 @Data
 @Entity
+@SQLRestriction("requester_id NOT IN (SELECT u.id FROM users u WHERE u.deleted = TRUE)")
 @Table(name = "requests", schema = "public")
 @AllArgsConstructor
 public class ItemRequest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "requests_seq")
+    @SequenceGenerator(name = "requests_seq", sequenceName = "requests_seq", allocationSize = 50)
     private Long id;
     @Column(name = "description")
     private String description;
@@ -0,0 +1,300 @@
+package ru.practicum.shareit.request.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.event.dto.DomainEvent;
+import ru.practicum.shareit.event.dto.ItemEventPayload;
+import ru.practicum.shareit.event.dto.ItemRequestEventPayload;
+import ru.practicum.shareit.event.service.OutboxSubscriber;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.request.dao.ItemRequestDao;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Инвертированный индекс по словам запросов и вещей. Подбор кандидатов проходит только по спискам
+ * совпавших слов, а индекс обновляется событиями из outbox.
+ */
+@Slf4j
+@Component
+public class ItemRequestMatcher implements OutboxSubscriber {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final ItemDao itemDao;
+    private final ItemRequestDao itemRequestDao;
+    private final ObjectMapper objectMapper;
+    private final int minTokenLength;
+    private final double minScore;
+    private final int warmUpBatchSize;
+    private final TokenIndex items = new TokenIndex();
+    private final TokenIndex requests = new TokenIndex();
+
+    public ItemRequestMatcher(ItemDao itemDao,
+                              ItemRequestDao itemRequestDao,
+                              ObjectMapper objectMapper,
+                              @Value("${shareit.request-matcher.min-token-length:3}") int minTokenLength,
+                              @Value("${shareit.request-matcher.min-score:0.2}") double minScore,
+                              @Value("${shareit.request-matcher.warm-up-batch-size:1000}") int warmUpBatchSize) {
+        this.itemDao = itemDao;
+        this.itemRequestDao = itemRequestDao;
+        this.objectMapper = objectMapper;
+        this.minTokenLength = minTokenLength;
+        this.minScore = minScore;
+        this.warmUpBatchSize = warmUpBatchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            load();
+        } finally {
+            items.finishWarmUp();
+            requests.finishWarmUp();
+        }
+        log.info("Индекс подбора вещей по запросам заполнен: вещей {}, запросов {}.",
+                items.size(), requests.size());
+    }
+
+    private void load() {
+        // Индекс живёт в памяти, поэтому после старта один раз наполняем его постранично.
+        PageRequest page = PageRequest.of(0, warmUpBatchSize);
+        long lastId = 0;
+        List<ItemEventPayload> itemPage;
+        do {
+            itemPage = itemDao.findEventPayloadsAfter(lastId, page);
+            itemPage.forEach(item -> items.putIfAbsent(item.getItemId(), toEntry(item)));
+            lastId = itemPage.isEmpty() ? lastId : itemPage.getLast().getItemId();
+        } while (itemPage.size() == warmUpBatchSize);
+        lastId = 0;
+        List<ItemRequestEventPayload> requestPage;
+        do {
+            requestPage = itemRequestDao.findEventPayloadsAfter(lastId, page);
+            requestPage.forEach(request -> requests.putIfAbsent(request.getRequestId(), toEntry(request)));
+            lastId = requestPage.isEmpty() ? lastId : requestPage.getLast().getRequestId();
+        } while (requestPage.size() == warmUpBatchSize);
+    }
+
+    @Override
+    public void onEvent(DomainEvent event) {
+        switch (event.getType()) {
+            case ITEM_CREATED, ITEM_UPDATED -> {
+                ItemEventPayload item = readPayload(event.getPayload(), ItemEventPayload.class);
+                items.put(item.getItemId(), toEntry(item));
+            }
+            case ITEM_DELETED -> items.remove(event.getAggregateId());
+            case ITEM_REQUEST_CREATED -> {
+                ItemRequestEventPayload request = readPayload(event.getPayload(), ItemRequestEventPayload.class);
+                requests.put(request.getRequestId(), toEntry(request));
+            }
+            case ITEM_REQUEST_DELETED -> requests.remove(event.getAggregateId());
+        }
+    }
+
+    /**
+     * Убирает вещь из индекса после коммита, не дожидаясь доставки события из outbox.
+     */
+    public void evictItem(Long itemId) {
+        afterCommit(() -> items.remove(itemId));
+    }
+
+    public void evictRequest(Long requestId) {
+        afterCommit(() -> requests.remove(requestId));
+    }
+
+    /**
+     * Убирает вещи и запросы пользователя: каскадное удаление в базе и фоновая очистка событий не публикуют.
+     */
+    public void evictUser(Long userId) {
+        afterCommit(() -> {
+            items.removeUser(userId);
+            requests.removeUser(userId);
+        });
+    }
+
+    /**
+     * Доступные вещи других пользователей, похожие на запрос, в порядке убывания сходства.
+     */
+    public Map<Long, Double> suggestItems(Long requestId, int limit) {
+        Entry request = requests.get(requestId);
+        if (request == null) {
+            return Map.of();
+        }
+        return rank(request, items, item -> item.isAvailable() && !item.getUserId().equals(request.getUserId()),
+                limit);
+    }
+
+    /**
+     * Запросы других пользователей, которым подходит вещь, в порядке убывания сходства.
+     */
+    public Map<Long, Double> matchRequests(Long itemId, int limit) {
+        Entry item = items.get(itemId);
+        if (item == null) {
+            return Map.of();
+        }
+        return rank(item, requests, request -> !request.getUserId().equals(item.getUserId()), limit);
+    }
+
+    private Set<String> tokenize(String... texts) {
+        return Arrays.stream(texts)
+                .filter(text -> text != null && !text.isBlank())
+                .flatMap(SEPARATOR::splitAsStream)
+                .map(String::toLowerCase)
+                .filter(token -> token.length() >= minTokenLength)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private Map<Long, Double> rank(Entry source, TokenIndex target, Predicate<Entry> filter, int limit) {
+        if (source.getTokens().isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        target.countOverlaps(source.getTokens()).forEach((id, overlap) -> {
+            Entry candidate = target.get(id);
+            if (candidate != null && filter.test(candidate)) {
+                // Косинусная мера по множествам слов: не завышает оценку длинным описаниям.
+                double score = overlap / Math.sqrt((double) source.getTokens().size() * candidate.getTokens().size());
+                if (score >= minScore) {
+                    scores.put(id, score);
+                }
+            }
+        });
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(limit)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private Entry toEntry(ItemEventPayload item) {
+        return new Entry(tokenize(item.getName(), item.getDescription()), item.getOwnerId(), item.isAvailable());
+    }
+
+    private Entry toEntry(ItemRequestEventPayload request) {
+        return new Entry(tokenize(request.getDescription()), request.getRequesterId(), true);
+    }
+
+    private void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+
+    private <T> T readPayload(String payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать событие для подбора вещей: " + e.getMessage(), e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final Set<String> tokens;
+        private final Long userId;
+        private final boolean available;
+    }
+
+    private static class TokenIndex {
+
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        // Пока идёт прогрев, запоминаем удалённое, чтобы прочитанная до удаления страница не вернула его в индекс.
+        private final Set<Long> removedIds = new HashSet<>();
+        private final Set<Long> removedUsers = new HashSet<>();
+        private boolean warmingUp = true;
+
+        Entry get(Long id) {
+            return entries.get(id);
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        synchronized void put(Long id, Entry entry) {
+            remove(id);
+            entries.put(id, entry);
+            entry.getTokens().forEach(token -> postings.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet())
+                    .add(id));
+        }
+
+        // При прогреве не затираем то, что уже успело прийти событием.
+        synchronized void putIfAbsent(Long id, Entry entry) {
+            if (!entries.containsKey(id) && !removedIds.contains(id) && !removedUsers.contains(entry.getUserId())) {
+                put(id, entry);
+            }
+        }
+
+        synchronized void remove(Long id) {
+            if (warmingUp) {
+                removedIds.add(id);
+            }
+            Entry removed = entries.remove(id);
+            if (removed == null) {
+                return;
+            }
+            removed.getTokens().forEach(token -> postings.computeIfPresent(token, (t, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            }));
+        }
+
+        synchronized void removeUser(Long userId) {
+            if (warmingUp) {
+                removedUsers.add(userId);
+            }
+            List<Long> ids = entries.entrySet().stream()
+                    .filter(entry -> entry.getValue().getUserId().equals(userId))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            ids.forEach(this::remove);
+        }
+
+        synchronized void finishWarmUp() {
+            warmingUp = false;
+            removedIds.clear();
+            removedUsers.clear();
+        }
+
+        Map<Long, Integer> countOverlaps(Set<String> tokens) {
+            Map<Long, Integer> overlaps = new HashMap<>();
+            for (String token : tokens) {
+                Set<Long> ids = postings.get(token);
+                if (ids != null) {
+                    ids.forEach(id -> overlaps.merge(id, 1, Integer::sum));
+                }
+            }
+            return overlaps;
+        }
+    }
+}
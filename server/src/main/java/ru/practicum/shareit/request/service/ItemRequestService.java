@@ -2,8 +2,10 @@ package ru.practicum.shareit.request.service;
 
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItem;
+import ru.practicum.shareit.request.dto.ItemSuggestionDto;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface ItemRequestService {
 
@@ -16,4 +18,6 @@ public interface ItemRequestService {
     Collection<ItemRequestDto> getAllRequest(Long ownerId);
 
     void deleteItemRequest(Long ownerId, Long requestId);
+
+    List<ItemSuggestionDto> getSuggestions(Long requestId, int size);
 }
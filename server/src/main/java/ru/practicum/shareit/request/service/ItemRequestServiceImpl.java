@@ -3,18 +3,27 @@ package ru.practicum.shareit.request.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.common.ParallelQueries;
+import ru.practicum.shareit.event.mapper.EventMapper;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.dto.ItemDtoForRequest;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dao.ItemRequestDao;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItem;
+import ru.practicum.shareit.request.dto.ItemSuggestionDto;
 import ru.practicum.shareit.request.mapper.ItemRequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.model.User;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,53 +33,86 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     private final ItemRequestDao itemRequestDao;
     private final ItemDao itemDao;
     private final UserDao userDao;
+    private final OutboxPublisher outboxPublisher;
+    private final ItemRequestMatcher itemRequestMatcher;
+    private final ParallelQueries parallelQueries;
 
     @Override
+    @Transactional
     public ItemRequestDto createItemRequest(ItemRequestDto request, Long ownerId) {
         User user = findUserById(ownerId);
         log.info("Передаём запрос на создание нового запроса с id пользователя {} в itemRequestDao.", ownerId);
-        return ItemRequestMapper.toItemRequestDto(itemRequestDao
-                .save(ItemRequestMapper.fromItemRequestDto(request, user)));
+        ItemRequest saved = itemRequestDao.save(ItemRequestMapper.fromItemRequestDto(request, user));
+        outboxPublisher.publish(EventType.ITEM_REQUEST_CREATED, saved.getId(),
+                EventMapper.toItemRequestEventPayload(saved));
+        return ItemRequestMapper.toItemRequestDto(saved);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ItemRequestDtoWithItem getItemRequest(Long requestId) {
         ItemRequest itemRequest = findRequestById(requestId);
-        Collection<Item> items = itemDao.findAllItemsByItemRequestId(requestId);
+        Collection<ItemDtoForRequest> items = itemDao.findAllItemsByItemRequestId(requestId);
         log.info("Передаём запрос на получение запроса с id {}, в itemRequestDao.", requestId);
-        return ItemRequestMapper.toItemRequestWithItem(itemRequest, items);
+        return ItemRequestMapper.toItemRequestWithItem(ItemRequestMapper.toItemRequestDto(itemRequest), items);
     }
 
     @Override
     public Collection<ItemRequestDtoWithItem> getAllOwnerRequest(Long ownerId) {
-        findUserById(ownerId);
-        Collection<ItemRequest> itemRequests = itemRequestDao.findAllOwnerRequest(ownerId);
-        Collection<Item> items = itemDao.findAllItemsByItemsRequestIds(itemRequests.stream()
-                .map(ItemRequest::getId)
-                .toList());
-
-        Map<Long, List<Item>> itemsMap = items.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.groupingBy(item -> item.getRequest().getId()));
         log.info("Передаём запрос от владельца с id {}, на получение списка своих запросов в itemRequestDao.", ownerId);
-        return itemRequests.stream()
-                .map(ir -> ItemRequestMapper.toItemRequestWithItem(ir, itemsMap.get(ir.getId())))
-                .toList();
+        // Вещи выбираются по автору запросов, а не по id запросов, поэтому все три чтения не зависят друг от друга.
+        try (ParallelQueries.Scope scope = parallelQueries.open()) {
+            scope.fork(() -> findUserById(ownerId));
+            Supplier<Collection<ItemRequestDto>> itemRequests = scope.fork(() ->
+                    itemRequestDao.findAllOwnerRequest(ownerId));
+            Supplier<Collection<ItemDtoForRequest>> items = scope.fork(() ->
+                    itemDao.findAllItemsByRequesterId(ownerId));
+            scope.join();
+
+            Map<Long, List<ItemDtoForRequest>> itemsMap = items.get().stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.groupingBy(ItemDtoForRequest::getRequestId));
+            return itemRequests.get().stream()
+                    .map(ir -> ItemRequestMapper.toItemRequestWithItem(ir, itemsMap.get(ir.getId())))
+                    .toList();
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Collection<ItemRequestDto> getAllRequest(Long userId) {
         findUserById(userId);
-        Collection<ItemRequest> allRequest = itemRequestDao.findAllByNotRequesterId(userId);
+        Collection<ItemRequestDto> allRequest = itemRequestDao.findAllByNotRequesterId(userId);
         log.info("Передаём запрос от пользователя с id {}, на получение списка всех запросов в ownerId.", userId);
-        return allRequest.stream().map(ItemRequestMapper::toItemRequestDto).toList();
+        return List.copyOf(allRequest);
     }
 
     @Override
+    @Transactional
     public void deleteItemRequest(Long ownerId, Long requestId) {
         findUserById(ownerId);
-        findRequestById(requestId);
+        ItemRequest request = findRequestById(requestId);
         itemRequestDao.deleteById(requestId);
+        itemRequestMatcher.evictRequest(requestId);
+        outboxPublisher.publish(EventType.ITEM_REQUEST_DELETED, requestId,
+                EventMapper.toItemRequestEventPayload(request));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemSuggestionDto> getSuggestions(Long requestId, int size) {
+        if (!itemRequestDao.existsById(requestId)) {
+            throw new NotFoundException("Запрос c id " + requestId + " не найден.");
+        }
+        Map<Long, Double> scores = itemRequestMatcher.suggestItems(requestId, size);
+        log.info("Для запроса с id {} подобрано вещей: {}.", requestId, scores.size());
+        // Индекс мог отстать от удаления, поэтому выдаём только вещи, которые ещё есть в базе.
+        Map<Long, Item> items = itemDao.findAllById(scores.keySet()).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        return scores.entrySet().stream()
+                .filter(score -> items.containsKey(score.getKey()))
+                .map(score -> ItemRequestMapper.toItemSuggestionDto(items.get(score.getKey()), score.getValue()))
+                .toList();
     }
 
     private User findUserById(Long userId) {
@@ -1,12 +1,19 @@
 package ru.practicum.shareit.user.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -15,11 +22,38 @@ import java.util.Map;
 @RequestMapping(path = "/users")
 public class UserController {
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public Collection<UserDto> findAll() {
-        log.info("Запрос из gateway на получение списка всех пользователя");
-        return userService.getAllUser();
+    public List<UserDto> findAll(@RequestParam(defaultValue = "0") Long afterId,
+                                 @RequestParam(defaultValue = "100") int size) {
+        log.info("Запрос из gateway на получение {} пользователей после id {}", size, afterId);
+        return userService.getAllUser(afterId, size);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("Запрос из gateway на выгрузку всех пользователей");
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                userService.exportUsers(user -> {
+                    try {
+                        writer.write(user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping(params = "ids")
+    public List<UserDto> findUsers(@RequestParam List<Long> ids) {
+        log.info("Запрос из gateway на получение пользователей с id {}", ids);
+        return userService.getUsers(ids);
     }
 
     @GetMapping("/{id}")
@@ -34,6 +68,12 @@ public class UserController {
         return userService.createUser(userDto);
     }
 
+    @PostMapping("/batch")
+    public List<UserDto> createBatch(@RequestBody List<UserDto> users) {
+        log.info("Запрос из gateway на добавление {} пользователей", users.size());
+        return userService.createUsers(users);
+    }
+
     @PatchMapping("/{id}")
     public UserDto update(@RequestBody Map<String, String> update, @PathVariable("id") Long id) {
         log.info("Запрос из gateway на обновление пользователя с id {}", id);
@@ -41,8 +81,14 @@ public class UserController {
     }
 
     @DeleteMapping("/{id}")
-    public void deleteUser(@PathVariable("id") Long id) {
-        log.info("Запрос из gateway на удаление пользователя c id {}", id);
+    public ResponseEntity<Void> deleteUser(@PathVariable("id") Long id,
+                                           @RequestParam(defaultValue = "false") boolean async) {
+        log.info("Запрос из gateway на удаление пользователя c id {}, асинхронно: {}", id, async);
+        if (async) {
+            userService.markUserDeleted(id);
+            return ResponseEntity.accepted().build();
+        }
         userService.deleteUser(id);
+        return ResponseEntity.ok().build();
     }
 }
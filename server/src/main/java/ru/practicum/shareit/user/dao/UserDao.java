@@ -1,11 +1,39 @@
 package ru.practicum.shareit.user.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 
-public interface UserDao extends JpaRepository<User, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface UserDao extends JpaRepository<User, Long>, UserDaoCustom {
 
     boolean existsByEmail(String email);
 
     boolean existsByEmailAndIdNot(String email, Long id);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    Collection<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT u FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<User> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Проекция в DTO не попадает в контекст персистентности, поэтому память не растёт с числом строк.
+    @Query("SELECT new ru.practicum.shareit.user.dto.UserDto(u.id, u.name, u.email) FROM User u ORDER BY u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<UserDto> streamAll();
+
+    @Query(value = "SELECT id FROM users WHERE deleted = TRUE ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findDeletedIds(@Param("limit") int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM users WHERE deleted = TRUE", nativeQuery = true)
+    long countDeleted();
 }
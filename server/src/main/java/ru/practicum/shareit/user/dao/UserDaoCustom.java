@@ -0,0 +1,23 @@
+package ru.practicum.shareit.user.dao;
+
+import ru.practicum.shareit.user.model.PurgeStep;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public interface UserDaoCustom {
+
+    Optional<User> updateColumns(Long id, Map<String, Object> columns);
+
+    boolean markDeleted(Long id);
+
+    int purgeChunk(Long userId, PurgeStep step, int limit);
+
+    /**
+     * Вещи с бронированиями пользователя или его вещи с любыми бронированиями. Запрос идёт мимо фильтра
+     * удалённых пользователей, поэтому работает и для пользователя, уже помеченного удалённым.
+     */
+    Collection<Long> findItemIdsWithBookingsOf(Long userId);
+}
@@ -0,0 +1,83 @@
+package ru.practicum.shareit.user.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.common.ReturningUpdate;
+import ru.practicum.shareit.user.model.PurgeStep;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class UserDaoCustomImpl implements UserDaoCustom {
+
+    private static final String OWNED_ITEMS = "SELECT id FROM items WHERE owner_id = :userId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<User> updateColumns(Long id, Map<String, Object> columns) {
+        // Нативный запрос обходит @SQLRestriction, поэтому скрытие удалённых повторяем в условии.
+        return ReturningUpdate.execute(entityManager, User.class, "users", id, columns, "deleted = FALSE", Map.of());
+    }
+
+    @Override
+    @Transactional
+    public boolean markDeleted(Long id) {
+        return nativeUpdate("UPDATE users SET deleted = TRUE WHERE id = :userId AND deleted = FALSE", "users")
+                .setParameter("userId", id)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    @Transactional
+    public int purgeChunk(Long userId, PurgeStep step, int limit) {
+        NativeQuery<?> query = nativeUpdate(purgeSql(step), step.getTable()).setParameter("userId", userId);
+        if (step != PurgeStep.USER) {
+            query.setParameter("limit", limit);
+        }
+        return query.executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<Long> findItemIdsWithBookingsOf(Long userId) {
+        return ((List<Number>) entityManager.createNativeQuery("SELECT DISTINCT item_id FROM bookings "
+                        + "WHERE booker_id = :userId OR item_id IN (" + OWNED_ITEMS + ")")
+                .setParameter("userId", userId)
+                .getResultList())
+                .stream()
+                .map(Number::longValue)
+                .toList();
+    }
+
+    // Пространство запроса ограничивает сброс кэша второго уровня одной таблицей вместо всех регионов.
+    private NativeQuery<?> nativeUpdate(String sql, String table) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(table);
+    }
+
+    private String purgeSql(PurgeStep step) {
+        return switch (step) {
+            case BOOKINGS -> "DELETE FROM bookings WHERE id IN (SELECT id FROM bookings "
+                    + "WHERE booker_id = :userId OR item_id IN (" + OWNED_ITEMS + ") LIMIT :limit)";
+            case COMMENTS -> "DELETE FROM comments WHERE id IN (SELECT id FROM comments "
+                    + "WHERE author_id = :userId OR item_id IN (" + OWNED_ITEMS + ") LIMIT :limit)";
+            case REQUEST_LINKS -> "UPDATE items SET request_id = NULL WHERE id IN (SELECT i.id FROM items i "
+                    + "JOIN requests r ON r.id = i.request_id WHERE r.requester_id = :userId LIMIT :limit)";
+            case BOOKING_SUMMARIES -> "DELETE FROM item_booking_summary WHERE item_id IN (SELECT s.item_id "
+                    + "FROM item_booking_summary s JOIN items i ON i.id = s.item_id "
+                    + "WHERE i.owner_id = :userId LIMIT :limit)";
+            case ITEMS -> "DELETE FROM items WHERE id IN (" + OWNED_ITEMS + " LIMIT :limit)";
+            case REQUESTS -> "DELETE FROM requests WHERE id IN (SELECT id FROM requests "
+                    + "WHERE requester_id = :userId LIMIT :limit)";
+            case USER -> "DELETE FROM users WHERE id = :userId AND deleted = TRUE";
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.user.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Шаги очистки данных удалённого пользователя в порядке, не нарушающем внешние ключи.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PurgeStep {
+
+    BOOKINGS("bookings"),
+    COMMENTS("comments"),
+    REQUEST_LINKS("items"),
+    BOOKING_SUMMARIES("item_booking_summary"),
+    ITEMS("items"),
+    REQUESTS("requests"),
+    USER("users");
+
+    private final String table;
+}
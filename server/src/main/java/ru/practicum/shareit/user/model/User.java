@@ -1,17 +1,26 @@
 package ru.practicum.shareit.user.model;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+import ru.practicum.shareit.config.EntityCacheConfig;
 
 @Data
 @Entity
-@AllArgsConstructor
-@Table(name = "users", schema = "public")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheConfig.USERS_REGION)
+@SQLRestriction("deleted = false")
+@Table(name = "users", schema = "public",
+        uniqueConstraints = @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email"))
 public class User {
 
+    public static final String EMAIL_CONSTRAINT = "uq_users_email";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name")
@@ -20,6 +29,16 @@ public class User {
     @Column(name = "email")
     private String email;
 
+    // Удалённый пользователь скрыт из всех запросов, пока фоновая очистка не уберёт его данные.
+    @Column(name = "deleted")
+    private boolean deleted;
+
     public User() {
     }
+
+    public User(Long id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+    }
 }
@@ -0,0 +1,99 @@
+package ru.practicum.shareit.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
+import ru.practicum.shareit.user.dao.UserDao;
+import ru.practicum.shareit.user.model.PurgeStep;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class UserPurgeWorker {
+
+    private final UserDao userDao;
+    private final ItemViewCache itemViewCache;
+    private final ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final ItemRequestMatcher itemRequestMatcher;
+    private final int usersPerRun;
+    private final int chunkSize;
+    private final AtomicLong pending = new AtomicLong();
+    private final Map<PurgeStep, Counter> purged = new EnumMap<>(PurgeStep.class);
+    private final Counter completed;
+    private final Counter failed;
+
+    public UserPurgeWorker(UserDao userDao,
+                           ItemViewCache itemViewCache,
+                           ItemBookingSummaryUpdater itemBookingSummaryUpdater,
+                           BookingIntervalIndex bookingIntervalIndex,
+                           ItemRequestMatcher itemRequestMatcher,
+                           MeterRegistry meterRegistry,
+                           @Value("${shareit.user-purge.users-per-run:10}") int usersPerRun,
+                           @Value("${shareit.user-purge.chunk-size:500}") int chunkSize) {
+        this.userDao = userDao;
+        this.itemViewCache = itemViewCache;
+        this.itemBookingSummaryUpdater = itemBookingSummaryUpdater;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.itemRequestMatcher = itemRequestMatcher;
+        this.usersPerRun = usersPerRun;
+        this.chunkSize = chunkSize;
+        meterRegistry.gauge("shareit.user-purge.pending", pending);
+        for (PurgeStep step : PurgeStep.values()) {
+            purged.put(step, Counter.builder("shareit.user-purge.rows")
+                    .description("Строки, удалённые или отвязанные фоновой очисткой пользователей")
+                    .tag("step", step.name().toLowerCase())
+                    .tag("table", step.getTable())
+                    .register(meterRegistry));
+        }
+        this.completed = Counter.builder("shareit.user-purge.completed").register(meterRegistry);
+        this.failed = Counter.builder("shareit.user-purge.failed")
+                .description("Очистки пользователей, прерванные ошибкой и отложенные до следующего запуска")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.user-purge.delay:PT10S}")
+    public void purge() {
+        pending.set(userDao.countDeleted());
+        for (Long userId : userDao.findDeletedIds(usersPerRun)) {
+            try {
+                purgeUser(userId);
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Не удалось дочистить данные пользователя с id {}.", userId, e);
+            }
+        }
+    }
+
+    private void purgeUser(Long userId) {
+        // Сводки и индекс интервалов чужих вещей могут ссылаться на бронирования, которые удалит очистка.
+        // События об удалении опубликованы при пометке пользователя: с того момента его данные скрыты.
+        Collection<Long> bookedItems = userDao.findItemIdsWithBookingsOf(userId);
+        // Каждая порция удаляется в своей короткой транзакции, чтобы не держать блокировки на всех данных сразу.
+        for (PurgeStep step : PurgeStep.values()) {
+            int rows;
+            do {
+                rows = userDao.purgeChunk(userId, step, chunkSize);
+                purged.get(step).increment(rows);
+            } while (step != PurgeStep.USER && rows >= chunkSize);
+        }
+        itemBookingSummaryUpdater.refreshAll(bookedItems);
+        bookingIntervalIndex.evictAfterCompletion(bookedItems);
+        itemRequestMatcher.evictUser(userId);
+        itemViewCache.evictAll();
+        pending.decrementAndGet();
+        completed.increment();
+        log.info("Данные удалённого пользователя с id {} очищены.", userId);
+    }
+}
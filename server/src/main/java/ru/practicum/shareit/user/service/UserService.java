@@ -2,18 +2,27 @@ package ru.practicum.shareit.user.service;
 
 import ru.practicum.shareit.user.dto.UserDto;
 
-import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface UserService {
 
     UserDto getUser(Long id);
 
-    Collection<UserDto> getAllUser();
+    List<UserDto> getUsers(List<Long> ids);
+
+    List<UserDto> getAllUser(Long afterId, int size);
+
+    void exportUsers(Consumer<UserDto> consumer);
 
     UserDto createUser(UserDto userDto);
 
+    List<UserDto> createUsers(List<UserDto> users);
+
     void deleteUser(Long id);
 
+    void markUserDeleted(Long id);
+
     UserDto updateUser(Map<String, String> update, Long id);
 }
@@ -1,18 +1,46 @@
 package ru.practicum.shareit.user.service;
 
+import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.exception.AlreadyExistException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
-import ru.practicum.shareit.exception.AlreadyExistException;
-import ru.practicum.shareit.exception.ValidationException;
 
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -20,8 +48,18 @@ import java.util.Map;
 public class UserServiceImpl implements UserService {
 
     private final UserDao userDao;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ItemViewCache itemViewCache;
+    private final ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+    private final ItemDao itemDao;
+    private final ItemRequestDao itemRequestDao;
+    private final BookingDao bookingDao;
+    private final OutboxPublisher outboxPublisher;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final ItemRequestMatcher itemRequestMatcher;
 
     @Override
+    @Transactional(readOnly = true)
     public UserDto getUser(Long id) {
         log.info("Передаём запрос на получение пользователя в userDao.");
         User user = userDao.findById(id).orElseThrow(() -> new NotFoundException("Пользователь не найден."));
@@ -29,14 +67,39 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public Collection<UserDto> getAllUser() {
-        log.info("Передаём запрос на список всех пользователей в userDao.");
-        return userDao.findAll().stream()
+    @Transactional(readOnly = true)
+    public List<UserDto> getUsers(List<Long> ids) {
+        log.info("Передаём запрос на получение {} пользователей в userDao.", ids.size());
+        Map<Long, User> users = userDao.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream()
+                .distinct()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(UserMapper::toUserDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDto> getAllUser(Long afterId, int size) {
+        log.info("Передаём запрос на {} пользователей после id {} в userDao.", size, afterId);
+        return userDao.findPageAfter(afterId, PageRequest.of(0, size)).stream()
                 .map(UserMapper::toUserDto)
                 .toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(Consumer<UserDto> consumer) {
+        log.info("Передаём запрос на выгрузку всех пользователей в userDao.");
+        try (Stream<UserDto> users = userDao.streamAll()) {
+            users.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional
     public UserDto createUser(UserDto userDto) {
         log.info("Передаём запрос на создание нового пользователя с email {}", userDto.getEmail());
 
@@ -48,19 +111,65 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
+    public List<UserDto> createUsers(List<UserDto> users) {
+        log.info("Передаём запрос на создание {} пользователей в userDao.", users.size());
+        Set<String> emails = new HashSet<>();
+        for (UserDto userDto : users) {
+            if (!emails.add(userDto.getEmail())) {
+                throw new AlreadyExistException("Email " + userDto.getEmail() + " повторяется в запросе.");
+            }
+        }
+        Collection<String> existingEmails = userDao.findExistingEmails(emails);
+        if (!existingEmails.isEmpty()) {
+            throw new AlreadyExistException("Пользователи с email " + existingEmails + " уже существуют.");
+        }
+
+        List<User> newUsers = users.stream()
+                .map(userDto -> new User(null, userDto.getName(), userDto.getEmail()))
+                .toList();
+        return userDao.saveAll(newUsers).stream()
+                .map(UserMapper::toUserDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional
     public void deleteUser(Long id) {
         log.info("Передаём запрос на удаление пользоватля с id {} в userDao.", id);
+        Collection<Long> bookedItems = itemBookingSummaryUpdater.findItemIdsBookedBy(id);
+        Collection<Long> indexedItems = userDao.findItemIdsWithBookingsOf(id);
+        publishCascadeDeletions(id);
         userDao.deleteById(id);
+        // Бронирования пользователя удаляет каскад в базе, поэтому сводки чужих вещей пересчитываем после него.
+        userDao.flush();
+        itemBookingSummaryUpdater.refreshAll(bookedItems);
+        evictDerivedData(id, indexedItems);
+    }
+
+    @Override
+    @Transactional
+    public void markUserDeleted(Long id) {
+        log.info("Помечаем пользователя с id {} удалённым, его данные очистит фоновая задача.", id);
+        // После пометки данные пользователя скрыты от запросов, поэтому всё нужное для событий и сводок читаем до неё.
+        Collection<Long> bookedItems = itemBookingSummaryUpdater.findItemIdsBookedBy(id);
+        Collection<Long> indexedItems = userDao.findItemIdsWithBookingsOf(id);
+        publishCascadeDeletions(id);
+        if (!userDao.markDeleted(id)) {
+            throw new NotFoundException("Пользователь не найден.");
+        }
+        itemBookingSummaryUpdater.refreshAll(bookedItems);
+        evictDerivedData(id, indexedItems);
     }
 
     @Override
+    @Transactional
     public UserDto updateUser(Map<String, String> update, Long id) {
         log.info("Передаём запрос на обновление пользоватля с id {} в userDao.", id);
-        User oldUser = userDao.findById(id).orElseThrow(() -> new NotFoundException("Пользователь не найден."));
-
+        Map<String, Object> columns = new LinkedHashMap<>();
         if (update.get("name") != null) {
             if (!update.get("name").isBlank()) {
-                oldUser.setName(update.get("name"));
+                columns.put("name", update.get("name"));
             } else {
                 throw new ValidationException("В запросе на обновление имени была передана пустая строчка");
             }
@@ -69,14 +178,60 @@ public class UserServiceImpl implements UserService {
             if (update.get("email").isBlank()) {
                 throw new ValidationException("В запросе на обновление имейла была передана пустая строчка");
             }
-            if (!userDao.existsByEmailAndIdNot(update.get("email"), id)) {
-                oldUser.setEmail(update.get("email"));
-            } else {
+            columns.put("email", update.get("email"));
+        }
+        try {
+            User user = userDao.updateColumns(id, columns)
+                    .orElseThrow(() -> new NotFoundException("Пользователь не найден."));
+            if (columns.containsKey("name")) {
+                // Имя автора выводится в отзывах, закэшированных вместе с карточками вещей.
+                itemViewCache.evictAll();
+            }
+            return UserMapper.toUserDto(user);
+        } catch (DataIntegrityViolationException e) {
+            if (isEmailConflict(e)) {
                 throw new AlreadyExistException("Пользователь с email " + update.get("email") + " уже существует");
             }
+            throw e;
         }
-        userDao.save(oldUser);
-        return UserMapper.toUserDto(oldUser);
     }
 
+    // Вещи, запросы и бронирования пользователя удалит каскад в базе, и без этих событий подписчики о них не узнают.
+    private void publishCascadeDeletions(Long userId) {
+        bookingDao.findEventPayloadsByUserId(userId).forEach(payload ->
+                outboxPublisher.publish(EventType.BOOKING_DELETED, payload.getBookingId(), payload));
+        itemDao.findEventPayloadsByOwnerId(userId).forEach(payload ->
+                outboxPublisher.publish(EventType.ITEM_DELETED, payload.getItemId(), payload));
+        itemRequestDao.findEventPayloadsByRequesterId(userId).forEach(payload ->
+                outboxPublisher.publish(EventType.ITEM_REQUEST_DELETED, payload.getRequestId(), payload));
+    }
+
+    private boolean isEmailConflict(DataIntegrityViolationException e) {
+        String constraint = e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null ? violation.getConstraintName() : e.getMessage();
+        return constraint != null && constraint.toLowerCase().contains(User.EMAIL_CONSTRAINT);
+    }
+
+    private void evictDerivedData(Long userId, Collection<Long> indexedItems) {
+        bookingIntervalIndex.evictAfterCompletion(indexedItems);
+        itemRequestMatcher.evictUser(userId);
+        // Вещи пользователя удаляет каскад в базе или скрывает пометка, минуя Hibernate, поэтому кэш сбрасываем вручную.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictItemsCache();
+                }
+            });
+        } else {
+            evictItemsCache();
+        }
+        itemViewCache.evictAll();
+    }
+
+    private void evictItemsCache() {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evict(Item.class);
+        cache.evictDefaultQueryRegion();
+    }
 }
@@ -2,6 +2,7 @@ CREATE TABLE IF NOT EXISTS users (
   id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
   name VARCHAR(255) NOT NULL,
   email VARCHAR(255) NOT NULL,
+  deleted BOOLEAN NOT NULL DEFAULT FALSE,
   CONSTRAINT pk_users PRIMARY KEY (id),
   CONSTRAINT uq_users_email UNIQUE (email)
 );
@@ -39,6 +40,48 @@ CREATE TABLE IF NOT EXISTS bookings (
   CONSTRAINT fk_booker FOREIGN KEY (booker_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
+-- Одобренные бронирования, пересекающиеся по времени, найденные перед добавлением ex_bookings_approved_overlap.
+-- До этого ограничения база пересечения не запрещала; пока таблица не пуста, ограничение не добавляется.
+CREATE TABLE IF NOT EXISTS booking_overlap_conflicts (
+  booking_id BIGINT NOT NULL,
+  conflicting_booking_id BIGINT NOT NULL,
+  found TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  CONSTRAINT pk_booking_overlap_conflict PRIMARY KEY (booking_id, conflicting_booking_id),
+  CONSTRAINT fk_overlap_booking FOREIGN KEY (booking_id) REFERENCES bookings(id) ON DELETE CASCADE,
+  CONSTRAINT fk_overlap_conflicting FOREIGN KEY (conflicting_booking_id) REFERENCES bookings(id) ON DELETE CASCADE
+);
+
+-- Ограничению нужно расширение btree_gist. Его создание требует прав, которых у роли приложения может не быть:
+-- тогда расширение заранее создаёт администратор (CREATE EXTENSION btree_gist;), иначе ограничение пропускается
+-- с предупреждением, а пересечения по-прежнему отсекает проверка в приложении.
+DO 'BEGIN
+  IF EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''ex_bookings_approved_overlap'') THEN
+    RETURN;
+  END IF;
+  IF NOT EXISTS (SELECT 1 FROM pg_extension WHERE extname = ''btree_gist'') THEN
+    BEGIN
+      CREATE EXTENSION btree_gist;
+    EXCEPTION WHEN insufficient_privilege OR undefined_file THEN
+      RAISE WARNING ''Расширение btree_gist недоступно (%), ограничение ex_bookings_approved_overlap не добавлено.'',
+        SQLERRM;
+      RETURN;
+    END;
+  END IF;
+  DELETE FROM booking_overlap_conflicts;
+  INSERT INTO booking_overlap_conflicts (booking_id, conflicting_booking_id, found)
+    SELECT a.id, b.id, now()
+    FROM bookings a
+    JOIN bookings b ON b.item_id = a.item_id AND b.id > a.id
+      AND b.start_date < a.end_date AND a.start_date < b.end_date
+    WHERE a.status = ''APPROVED'' AND b.status = ''APPROVED'';
+  IF FOUND THEN
+    RAISE WARNING ''Ограничение ex_bookings_approved_overlap не добавлено: пересекающиеся одобренные бронирования в booking_overlap_conflicts.'';
+    RETURN;
+  END IF;
+  ALTER TABLE bookings ADD CONSTRAINT ex_bookings_approved_overlap
+    EXCLUDE USING gist (item_id WITH =, tsrange(start_date, end_date) WITH &&) WHERE (status = ''APPROVED'');
+END';
+
 CREATE TABLE IF NOT EXISTS comments (
   id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
   text VARCHAR(512) NOT NULL,
@@ -48,4 +91,83 @@ CREATE TABLE IF NOT EXISTS comments (
   CONSTRAINT pk_comment PRIMARY KEY (id),
   CONSTRAINT fk_item FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
   CONSTRAINT fk_author FOREIGN KEY (author_id) REFERENCES users(id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+CREATE TABLE IF NOT EXISTS item_booking_summary (
+  item_id BIGINT NOT NULL,
+  last_booking_id BIGINT,
+  next_booking_id BIGINT,
+  valid_until TIMESTAMP WITHOUT TIME ZONE,
+  version BIGINT NOT NULL DEFAULT 0,
+  CONSTRAINT pk_item_booking_summary PRIMARY KEY (item_id),
+  CONSTRAINT fk_summary_item FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS ix_item_booking_summary_valid_until ON item_booking_summary (valid_until);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+  id BIGINT NOT NULL,
+  aggregate_type VARCHAR(32) NOT NULL,
+  aggregate_id BIGINT NOT NULL,
+  event_type VARCHAR(64) NOT NULL,
+  payload TEXT NOT NULL,
+  created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  dispatched TIMESTAMP WITHOUT TIME ZONE,
+  attempts INT NOT NULL DEFAULT 0,
+  aggregate_version BIGINT NOT NULL DEFAULT 0,
+  status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+  CONSTRAINT pk_outbox_event PRIMARY KEY (id)
+);
+
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS aggregate_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS status VARCHAR(16) NOT NULL DEFAULT 'PENDING';
+UPDATE outbox_events SET status = 'DISPATCHED' WHERE dispatched IS NOT NULL AND status = 'PENDING';
+
+DROP INDEX IF EXISTS ix_outbox_events_pending;
+CREATE INDEX IF NOT EXISTS ix_outbox_events_pending_created ON outbox_events (created) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS ix_outbox_events_pending_aggregate
+  ON outbox_events (aggregate_type, aggregate_id, aggregate_version) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS ix_outbox_events_dispatched ON outbox_events (dispatched);
+
+CREATE TABLE IF NOT EXISTS outbox_event_recipients (
+  event_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  CONSTRAINT pk_outbox_event_recipient PRIMARY KEY (event_id, user_id),
+  CONSTRAINT fk_recipient_event FOREIGN KEY (event_id) REFERENCES outbox_events(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS ix_outbox_event_recipients_user ON outbox_event_recipients (user_id, event_id);
+
+CREATE TABLE IF NOT EXISTS outbox_aggregate_versions (
+  aggregate_key VARCHAR(64) NOT NULL,
+  version BIGINT NOT NULL,
+  CONSTRAINT pk_outbox_aggregate_version PRIMARY KEY (aggregate_key)
+);
+
+CREATE SEQUENCE IF NOT EXISTS outbox_events_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('users_seq', GREATEST((SELECT last_value FROM users_seq), (SELECT COALESCE(MAX(id), 0) + 1 FROM users)));
+
+CREATE SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('requests_seq', GREATEST((SELECT last_value FROM requests_seq), (SELECT COALESCE(MAX(id), 0) + 1 FROM requests)));
+
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('items_seq', GREATEST((SELECT last_value FROM items_seq), (SELECT COALESCE(MAX(id), 0) + 1 FROM items)));
+
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('bookings_seq', GREATEST((SELECT last_value FROM bookings_seq), (SELECT COALESCE(MAX(id), 0) + 1 FROM bookings)));
+
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('comments_seq', GREATEST((SELECT last_value FROM comments_seq), (SELECT COALESCE(MAX(id), 0) + 1 FROM comments)));
+
+CREATE INDEX IF NOT EXISTS ix_bookings_item_start ON bookings (item_id, start_date);
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS deleted BOOLEAN NOT NULL DEFAULT FALSE;
+CREATE INDEX IF NOT EXISTS ix_users_deleted ON users (id) WHERE deleted;
+CREATE INDEX IF NOT EXISTS ix_items_owner ON items (owner_id);
+CREATE INDEX IF NOT EXISTS ix_items_request ON items (request_id);
+CREATE INDEX IF NOT EXISTS ix_requests_requester ON requests (requester_id);
+CREATE INDEX IF NOT EXISTS ix_bookings_booker ON bookings (booker_id);
+CREATE INDEX IF NOT EXISTS ix_comments_item_created ON comments (item_id, created, id);
+CREATE INDEX IF NOT EXISTS ix_comments_author ON comments (author_id);
@@ -0,0 +1,120 @@
+package ru.practicum.shareit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Замер для тестов с тегом benchmark (mvn -Pbenchmark test): прогрев, затем несколько раундов фиксированной
+ * длительности. Берётся медиана раундов, чтобы единичная пауза GC не определяла результат.
+ */
+@Slf4j
+public final class Benchmark {
+
+    public static final String TAG = "benchmark";
+
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration ROUND = Duration.ofSeconds(1);
+    private static final int ROUNDS = 5;
+
+    private Benchmark() {
+    }
+
+    public static Result run(String name, int threads, Action action) throws Exception {
+        return compare(threads, Map.of(name, action)).get(name);
+    }
+
+    /**
+     * Сначала прогревает все варианты, затем чередует их раунды: так порядок запуска и догоняющая
+     * JIT-компиляция не дают преимущества варианту, измеренному последним.
+     */
+    public static Map<String, Result> compare(int threads, Map<String, Action> variants) throws Exception {
+        for (Action action : variants.values()) {
+            round(threads, WARM_UP, action);
+        }
+        Map<String, Round[]> rounds = new LinkedHashMap<>();
+        variants.keySet().forEach(name -> rounds.put(name, new Round[ROUNDS]));
+        for (int i = 0; i < ROUNDS; i++) {
+            for (Map.Entry<String, Action> variant : variants.entrySet()) {
+                rounds.get(variant.getKey())[i] = round(threads, ROUND, variant.getValue());
+            }
+        }
+        Map<String, Result> results = new LinkedHashMap<>();
+        rounds.forEach((name, measured) -> {
+            Arrays.sort(measured, (x, y) -> Double.compare(x.opsPerSecond, y.opsPerSecond));
+            Round median = measured[ROUNDS / 2];
+            Result result = new Result(name, threads, median.opsPerSecond,
+                    threads * 1_000_000.0 / median.opsPerSecond, median.bytesPerOp);
+            log.info("{}", result);
+            results.put(name, result);
+        });
+        return results;
+    }
+
+    private static Round round(int threads, Duration duration, Action action) throws Exception {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long deadline = System.nanoTime() + duration.toNanos();
+            List<Future<Long>> workers = new ArrayList<>();
+            // Считаем память всех потоков JVM: действие может выполнять часть работы в порождённых им потоках.
+            long allocatedBefore = threadBean.getTotalThreadAllocatedBytes();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    long ops = 0;
+                    while (System.nanoTime() < deadline) {
+                        action.run();
+                        ops++;
+                    }
+                    return ops;
+                }));
+            }
+            long ops = 0;
+            for (Future<Long> worker : workers) {
+                ops += worker.get();
+            }
+            long allocated = threadBean.getTotalThreadAllocatedBytes() - allocatedBefore;
+            return new Round(ops * 1_000_000_000.0 / duration.toNanos(), ops == 0 ? 0 : allocated / ops);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    @AllArgsConstructor
+    private static class Round {
+        private final double opsPerSecond;
+        private final long bytesPerOp;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final String name;
+        private final int threads;
+        private final double opsPerSecond;
+        private final double meanLatencyMicros;
+        private final long bytesPerOp;
+
+        @Override
+        public String toString() {
+            return String.format("%-48s потоков %2d: %,12.0f оп/с, %,10.1f мкс/оп, %,10d байт/оп",
+                    name, threads, opsPerSecond, meanLatencyMicros, bytesPerOp);
+        }
+    }
+}
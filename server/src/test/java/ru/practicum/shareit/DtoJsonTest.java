@@ -58,7 +58,7 @@ class DtoJsonTest {
         CommentDto commentDto = new CommentDto(1L, "Great item!", "Booker", fixedTime);
         itemDtoWhitComments = new ItemDtoWhitComments(
                 1L, "Item", "Description", true, bookingDto,
-                null, List.of(commentDto)
+                null, List.of(commentDto), 1
         );
 
         ItemDtoForRequest itemDtoForRequest = new ItemDtoForRequest(1L, "Tool", 1L);
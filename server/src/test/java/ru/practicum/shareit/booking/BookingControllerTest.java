@@ -7,17 +7,25 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.controller.BookingController;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionOutcome;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportDto;
 import ru.practicum.shareit.booking.dto.RequestBookingDto;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -153,4 +161,82 @@ class BookingControllerTest {
 
         verify(bookingService, times(1)).updateBookingStatus(bookingId, true, userId);
     }
+
+    @Test
+    void streamBookingEventsShouldOpenEventStreamFromLastEventId() throws Exception {
+        when(bookingService.streamBookingEvents(userId, 42L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/bookings/stream")
+                        .header("X-Sharer-User-Id", userId)
+                        .header("Last-Event-ID", 42L)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(bookingService, times(1)).streamBookingEvents(userId, 42L);
+    }
+
+    @Test
+    void updateBookingStatusesShouldReturnOutcomes() throws Exception {
+        List<BookingDecisionDto> decisions = List.of(new BookingDecisionDto(1L, true),
+                new BookingDecisionDto(2L, false));
+        when(bookingService.updateBookingStatuses(decisions, userId)).thenReturn(List.of(
+                new BookingDecisionResultDto(1L, BookingDecisionOutcome.APPROVED, null),
+                new BookingDecisionResultDto(2L, BookingDecisionOutcome.FORBIDDEN, "Только владелец")));
+
+        mockMvc.perform(patch("/bookings/bulk")
+                        .header("X-Sharer-User-Id", userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(decisions)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].outcome", is("APPROVED")))
+                .andExpect(jsonPath("$[1].bookingId", is(2)))
+                .andExpect(jsonPath("$[1].outcome", is("FORBIDDEN")));
+
+        verify(bookingService, never()).updateBookingStatus(any(), anyBoolean(), any());
+    }
+
+    @Test
+    void exportOwnerBookingsShouldStreamNdjsonByDefault() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<BookingExportDto> consumer = invocation.getArgument(1);
+            consumer.accept(new BookingExportDto(7L, 3L, "Дрель, ударная", 2L,
+                        LocalDateTime.of(2030, 1, 1, 12, 0), LocalDateTime.of(2030, 1, 2, 12, 0), Status.APPROVED));
+            return null;
+        }).when(bookingService).exportOwnerBookings(eq(userId), any());
+
+        MvcResult result = mockMvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().bytes(("{\"id\":7,\"itemId\":3,\"itemName\":\"Дрель, ударная\",\"bookerId\":2," +
+                        "\"start\":\"2030-01-01T12:00:00\",\"end\":\"2030-01-02T12:00:00\",\"status\":\"APPROVED\"}")
+                        .getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void exportOwnerBookingsShouldStreamCsvWithHeader() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<BookingExportDto> consumer = invocation.getArgument(1);
+            consumer.accept(new BookingExportDto(7L, 3L, "Дрель, ударная", 2L,
+                        LocalDateTime.of(2030, 1, 1, 12, 0), LocalDateTime.of(2030, 1, 2, 12, 0), Status.APPROVED));
+            return null;
+        }).when(bookingService).exportOwnerBookings(eq(userId), any());
+
+        MvcResult result = mockMvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", userId)
+                        .param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,itemId,itemName,bookerId,start,end,status\n" +
+                        "7,3,\"Дрель, ударная\",2,2030-01-01T12:00,2030-01-02T12:00,APPROVED"));
+    }
 }
@@ -4,10 +4,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.BookingExportDto;
+import ru.practicum.shareit.booking.dto.BookingInterval;
+import ru.practicum.shareit.booking.dto.ItemBookingBoundaries;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.config.EntityCacheConfig;
 import ru.practicum.shareit.item.dao.ItemDao;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.dao.UserDao;
@@ -17,11 +23,13 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
 @ActiveProfiles("test")
+@Import(EntityCacheConfig.class)
 class BookingDaoTest {
 
     @Autowired
@@ -33,6 +41,9 @@ class BookingDaoTest {
     @Autowired
     private ItemDao itemDao;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private User user;
     private User owner;
     private Item item;
@@ -128,4 +139,134 @@ class BookingDaoTest {
 
         assertFalse(result.isPresent());
     }
+
+    @Test
+    void findAllOwnerItemsBookingByIdShouldFetchItemAndBooker() {
+        entityManager.flush();
+        entityManager.clear();
+
+        Collection<Booking> result = bookingDao.findAllOwnerItemsBookingById(List.of(item.getId()));
+
+        assertEquals(3, result.size());
+        assertTrue(result.stream().allMatch(booking -> isLoaded(booking, "item") && isLoaded(booking, "booker")));
+    }
+
+    @Test
+    void findByIdShouldFetchItemAndBooker() {
+        entityManager.flush();
+        entityManager.clear();
+
+        Booking result = bookingDao.findById(pastBooking.getId()).orElseThrow();
+
+        assertTrue(isLoaded(result, "item"));
+        assertTrue(isLoaded(result, "booker"));
+    }
+
+    @Test
+    void findApprovedIntervalsByItemIdShouldReturnOnlyApproved() {
+        Collection<BookingInterval> result = bookingDao.findApprovedIntervalsByItemId(item.getId());
+
+        assertEquals(2, result.size());
+        assertTrue(result.stream().noneMatch(interval -> interval.getBookingId().equals(futureBooking.getId())));
+    }
+
+    @Test
+    void existsApprovedOverlapShouldDetectOverlapAndSkipOwnBooking() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 12, 0);
+        LocalDateTime end = start.plusDays(1);
+        Item otherItem = itemDao.save(new Item(null, "Item2", "Description", true, owner, null));
+        Booking approved = bookingDao.save(new Booking(null, start, end, otherItem, user, Status.APPROVED));
+
+        assertTrue(bookingDao.existsApprovedOverlap(otherItem.getId(), start.plusHours(1), end.plusDays(1), null));
+        assertFalse(bookingDao.existsApprovedOverlap(otherItem.getId(), start, end, approved.getId()));
+        assertFalse(bookingDao.existsApprovedOverlap(otherItem.getId(), end, end.plusDays(1), null));
+        assertFalse(bookingDao.existsApprovedOverlapExcluding(otherItem.getId(), start, end,
+                List.of(approved.getId(), -1L)));
+        assertTrue(bookingDao.existsApprovedOverlapExcluding(otherItem.getId(), start, end, List.of(-1L, -2L)));
+    }
+
+    @Test
+    void findApprovedIntervalsByItemIdsShouldReturnApprovedIntervalsOfAllItems() {
+        Item otherItem = itemDao.save(new Item(null, "Item2", "Description", true, owner, null));
+        Booking otherBooking = bookingDao.save(new Booking(null, LocalDateTime.now().plusDays(3),
+                LocalDateTime.now().plusDays(4), otherItem, user, Status.APPROVED));
+
+        Collection<BookingInterval> result = bookingDao.findApprovedIntervalsByItemIds(
+                List.of(item.getId(), otherItem.getId()));
+
+        assertEquals(3, result.size());
+        assertTrue(result.stream().anyMatch(interval -> interval.getBookingId().equals(otherBooking.getId())
+                && interval.getItemId().equals(otherItem.getId())));
+    }
+
+    @Test
+    void findApprovedBookingBoundariesShouldReturnOneRowPerItem() {
+        LocalDateTime now = LocalDateTime.of(2030, 1, 10, 12, 0);
+        Item otherItem = itemDao.save(new Item(null, "Item2", "Description", true, owner, null));
+        Item idleItem = itemDao.save(new Item(null, "Item3", "Description", true, owner, null));
+        bookingDao.save(new Booking(null, now.minusDays(5), now.minusDays(4), otherItem, user, Status.APPROVED));
+        Booking last = bookingDao.save(new Booking(null, now.minusDays(3), now.minusDays(2), otherItem, user,
+                Status.APPROVED));
+        Booking current = bookingDao.save(new Booking(null, now.minusHours(1), now.plusHours(1), otherItem, user,
+                Status.APPROVED));
+        Booking next = bookingDao.save(new Booking(null, now.plusDays(1), now.plusDays(2), otherItem, user,
+                Status.APPROVED));
+        bookingDao.save(new Booking(null, now.plusHours(2), now.plusHours(3), otherItem, user, Status.WAITING));
+        bookingDao.save(new Booking(null, now.plusDays(3), now.plusDays(4), otherItem, user, Status.APPROVED));
+
+        Collection<ItemBookingBoundaries> result = bookingDao.findApprovedBookingBoundaries(
+                List.of(otherItem.getId(), idleItem.getId()), now);
+
+        assertEquals(1, result.size());
+        ItemBookingBoundaries boundaries = result.iterator().next();
+        assertEquals(otherItem.getId(), boundaries.getItemId());
+        assertEquals(last.getId(), boundaries.getLastBookingId());
+        assertEquals(next.getId(), boundaries.getNextBookingId());
+        assertEquals(next.getStart(), boundaries.getNextStart());
+        assertEquals(current.getEnd(), boundaries.getCurrentEnd());
+    }
+
+    @Test
+    void updateStatusesShouldApplyDecisionsOnlyToRowsWithAllowedSourceStatus() {
+        Booking waiting = bookingDao.save(new Booking(null, LocalDateTime.now().plusDays(3),
+                LocalDateTime.now().plusDays(4), item, user, Status.WAITING));
+
+        int updated = bookingDao.updateStatuses(List.of(currentBooking.getId(), futureBooking.getId(),
+                waiting.getId()), List.of(futureBooking.getId()), Status.APPROVED.sources(), Status.REJECTED.sources());
+
+        assertEquals(2, updated);
+        assertEquals(Status.APPROVED, bookingDao.findById(currentBooking.getId()).orElseThrow().getStatus());
+        assertEquals(Status.APPROVED, bookingDao.findById(futureBooking.getId()).orElseThrow().getStatus());
+        assertEquals(Status.REJECTED, bookingDao.findById(waiting.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void updateStatusesShouldSkipRowsChangedAfterRead() {
+        assertEquals(0, bookingDao.updateStatuses(List.of(currentBooking.getId()), List.of(),
+                Status.APPROVED.sources(), Status.REJECTED.sources()));
+        assertEquals(1, bookingDao.updateStatuses(List.of(futureBooking.getId()), List.of(),
+                Status.APPROVED.sources(), Status.REJECTED.sources()));
+        assertEquals(Status.REJECTED, bookingDao.findById(futureBooking.getId()).orElseThrow().getStatus());
+    }
+
+    private boolean isLoaded(Object entity, String attribute) {
+        return entityManager.getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil()
+                .isLoaded(entity, attribute);
+    }
+
+    @Test
+    void streamOwnerBookingsShouldReturnOwnerBookingsNewestFirst() {
+        Item foreignItem = itemDao.save(new Item(null, "Item2", "Description", true, user, null));
+        bookingDao.save(new Booking(null, LocalDateTime.now().plusDays(5), LocalDateTime.now().plusDays(6),
+                foreignItem, owner, Status.WAITING));
+
+        try (Stream<BookingExportDto> result = bookingDao.streamOwnerBookings(owner.getId())) {
+            List<BookingExportDto> rows = result.toList();
+
+            assertEquals(List.of(futureBooking.getId(), currentBooking.getId(), pastBooking.getId()),
+                    rows.stream().map(BookingExportDto::getId).toList());
+            assertEquals("Item1", rows.getFirst().getItemName());
+            assertEquals(user.getId(), rows.getFirst().getBookerId());
+        }
+    }
 }
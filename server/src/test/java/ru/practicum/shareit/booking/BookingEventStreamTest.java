@@ -0,0 +1,225 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingEventStream;
+import ru.practicum.shareit.event.dao.OutboxEventDao;
+import ru.practicum.shareit.event.dto.BookingEventPayload;
+import ru.practicum.shareit.event.dto.DomainEvent;
+import ru.practicum.shareit.event.model.AggregateType;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.model.OutboxEvent;
+import ru.practicum.shareit.event.model.OutboxStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingEventStreamTest {
+
+    @Mock
+    private OutboxEventDao outboxEventDao;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private BookingEventStream stream;
+
+    @BeforeEach
+    void setUp() {
+        stream = new BookingEventStream(outboxEventDao, objectMapper, Duration.ofMinutes(1), 2, 3, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void onEventShouldSendBookingEventToOwnerAndBookerOnly() throws Exception {
+        RecordingEmitter owner = new RecordingEmitter();
+        RecordingEmitter booker = new RecordingEmitter();
+        RecordingEmitter stranger = new RecordingEmitter();
+        stream.register(1L, owner, null);
+        stream.register(2L, booker, null);
+        stream.register(3L, stranger, null);
+
+        stream.onEvent(new DomainEvent(10L, AggregateType.BOOKING, 5L, EventType.BOOKING_APPROVED,
+                payload(1L, 2L), LocalDateTime.now()));
+
+        awaitSent(owner, 1);
+        awaitSent(booker, 1);
+        assertTrue(owner.sent.getFirst().contains("id:10"));
+        assertTrue(owner.sent.getFirst().contains("event:BOOKING_APPROVED"));
+        assertTrue(stranger.sent.isEmpty());
+    }
+
+    @Test
+    void onEventShouldIgnoreOtherAggregates() throws Exception {
+        RecordingEmitter owner = new RecordingEmitter();
+        stream.register(1L, owner, null);
+
+        stream.onEvent(new DomainEvent(10L, AggregateType.ITEM, 5L, EventType.ITEM_UPDATED, "{}",
+                LocalDateTime.now()));
+
+        assertTrue(owner.sent.isEmpty());
+    }
+
+    @Test
+    void registerShouldReplayMissedEventsOfUserAfterLastEventId() throws Exception {
+        OutboxEvent last = event(7L, payload(1L, 2L));
+        when(outboxEventDao.findById(7L)).thenReturn(Optional.of(last));
+        when(outboxEventDao.findDispatchedFor(eq(AggregateType.BOOKING), eq(2L), eq(last.getDispatched()), eq(7L),
+                any(Pageable.class))).thenReturn(List.of(event(8L, payload(1L, 2L))));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        stream.register(2L, emitter, 7L);
+
+        assertEquals(1, emitter.sent.size());
+        assertTrue(emitter.sent.getFirst().contains("id:8"));
+    }
+
+    @Test
+    void registerShouldAskClientToResetWhenReplayLimitReached() throws Exception {
+        OutboxEvent last = event(7L, payload(1L, 2L));
+        when(outboxEventDao.findById(7L)).thenReturn(Optional.of(last));
+        when(outboxEventDao.findDispatchedFor(eq(AggregateType.BOOKING), eq(2L), eq(last.getDispatched()), eq(7L),
+                any(Pageable.class))).thenReturn(List.of(event(8L, payload(1L, 2L)), event(9L, payload(1L, 2L)),
+                event(10L, payload(1L, 2L))));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        stream.register(2L, emitter, 7L);
+
+        assertEquals(4, emitter.sent.size());
+        assertTrue(emitter.sent.getLast().contains("event:" + BookingEventStream.RESET_EVENT));
+    }
+
+    @Test
+    void registerShouldAskClientToResetWhenLastEventIsUnknown() {
+        when(outboxEventDao.findById(7L)).thenReturn(Optional.empty());
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        stream.register(2L, emitter, 7L);
+
+        assertEquals(1, emitter.sent.size());
+        assertTrue(emitter.sent.getFirst().contains("event:" + BookingEventStream.RESET_EVENT));
+        verify(outboxEventDao, never()).findDispatchedFor(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void slowSubscriberShouldNotDelayOtherSubscribers() throws Exception {
+        BlockingEmitter slow = new BlockingEmitter();
+        RecordingEmitter fast = new RecordingEmitter();
+        stream.register(1L, slow, null);
+        stream.register(2L, fast, null);
+
+        try {
+            stream.onEvent(new DomainEvent(10L, AggregateType.BOOKING, 5L, EventType.BOOKING_APPROVED,
+                    payload(1L, 2L), LocalDateTime.now()));
+
+            assertTrue(slow.entered.await(5, TimeUnit.SECONDS));
+            awaitSent(fast, 1);
+        } finally {
+            slow.release.countDown();
+        }
+    }
+
+    @Test
+    void overflowingSubscriberQueueShouldCloseConnection() throws Exception {
+        BlockingEmitter slow = new BlockingEmitter();
+        stream.register(1L, slow, null);
+
+        try {
+            stream.onEvent(bookingEvent(10L));
+            assertTrue(slow.entered.await(5, TimeUnit.SECONDS));
+            // Первое событие отправляется, следующие два заполняют очередь, четвёртое в неё не помещается.
+            stream.onEvent(bookingEvent(11L));
+            stream.onEvent(bookingEvent(12L));
+            stream.onEvent(bookingEvent(13L));
+
+            assertEquals(0, stream.getConnectionCount());
+        } finally {
+            slow.release.countDown();
+        }
+    }
+
+    @Test
+    void registerShouldCloseOldestConnectionOverUserLimit() {
+        stream.register(1L, new RecordingEmitter(), null);
+        stream.register(1L, new RecordingEmitter(), null);
+        stream.register(1L, new RecordingEmitter(), null);
+
+        assertEquals(2, stream.getConnectionCount());
+        verify(outboxEventDao, never()).findById(any());
+    }
+
+    private String payload(Long ownerId, Long bookerId) throws Exception {
+        return objectMapper.writeValueAsString(new BookingEventPayload(5L, 3L, ownerId, bookerId,
+                LocalDateTime.of(2030, 1, 1, 12, 0), LocalDateTime.of(2030, 1, 2, 12, 0), Status.APPROVED));
+    }
+
+    private DomainEvent bookingEvent(Long id) throws Exception {
+        return new DomainEvent(id, AggregateType.BOOKING, 5L, EventType.BOOKING_APPROVED, payload(1L, 2L),
+                LocalDateTime.now());
+    }
+
+    private OutboxEvent event(Long id, String payload) {
+        return new OutboxEvent(id, AggregateType.BOOKING, 5L, EventType.BOOKING_CREATED, payload,
+                LocalDateTime.now(), LocalDateTime.of(2030, 1, 1, 12, 0), 0, 1L, OutboxStatus.DISPATCHED,
+                new HashSet<>());
+    }
+
+    private void awaitSent(RecordingEmitter emitter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (emitter.sent.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, emitter.sent.size());
+    }
+
+    private static class BlockingEmitter extends SseEmitter {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.add(builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining()));
+        }
+    }
+}
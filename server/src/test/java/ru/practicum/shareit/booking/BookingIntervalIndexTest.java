@@ -0,0 +1,249 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.BookingInterval;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingIntervalIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Mock
+    private BookingDao bookingDao;
+
+    private BookingIntervalIndex index;
+    private Item item;
+    private User booker;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookingIntervalIndex(bookingDao, 100, Duration.ofMinutes(10));
+        User owner = new User(1L, "Owner", "owner@example.com");
+        booker = new User(2L, "Booker", "booker@example.com");
+        item = new Item(1L, "Item", "Description", true, owner, null);
+    }
+
+    @Test
+    void hasConflictShouldIgnoreTouchingIntervals() {
+        when(bookingDao.findApprovedIntervalsByItemId(1L))
+                .thenReturn(List.of(new BookingInterval(10L, 1L, BASE, BASE.plusDays(1))));
+
+        assertFalse(index.hasConflict(1L, BASE.plusDays(1), BASE.plusDays(2), null));
+        assertFalse(index.hasConflict(1L, BASE.minusDays(1), BASE, null));
+        verify(bookingDao, times(1)).findApprovedIntervalsByItemId(1L);
+        verify(bookingDao, never()).existsApprovedOverlap(any(), any(), any(), any());
+    }
+
+    @Test
+    void hasConflictShouldConfirmOverlapInDatabase() {
+        when(bookingDao.findApprovedIntervalsByItemId(1L))
+                .thenReturn(List.of(new BookingInterval(10L, 1L, BASE, BASE.plusDays(2))));
+        when(bookingDao.existsApprovedOverlap(1L, BASE.plusDays(1), BASE.plusDays(3), null)).thenReturn(true);
+
+        assertTrue(index.hasConflict(1L, BASE.plusDays(1), BASE.plusDays(3), null));
+    }
+
+    @Test
+    void hasConflictShouldFindOverlapHiddenBehindLegacyOverlappingIntervals() {
+        // Долгое бронирование накрывает короткое: оба одобрены до появления ограничения в базе.
+        when(bookingDao.findApprovedIntervalsByItemId(1L)).thenReturn(List.of(
+                new BookingInterval(10L, 1L, BASE, BASE.plusDays(10)),
+                new BookingInterval(11L, 1L, BASE.plusDays(1), BASE.plusDays(2)),
+                new BookingInterval(12L, 1L, BASE.plusDays(1), BASE.plusDays(3))));
+        when(bookingDao.existsApprovedOverlap(1L, BASE.plusDays(5), BASE.plusDays(6), null)).thenReturn(true);
+
+        assertTrue(index.hasConflict(1L, BASE.plusDays(5), BASE.plusDays(6), null));
+        assertEquals(List.of(10L, 11L, 12L), index.findBusyIntervals(1L, BASE.plusDays(1), BASE.plusDays(2))
+                .stream().map(BookingInterval::getBookingId).toList());
+        assertFalse(index.hasConflict(1L, BASE.plusDays(10), BASE.plusDays(11), null));
+    }
+
+    @Test
+    void hasConflictShouldReloadItemWhenIndexIsStale() {
+        when(bookingDao.findApprovedIntervalsByItemId(1L))
+                .thenReturn(List.of(new BookingInterval(10L, 1L, BASE, BASE.plusDays(2))))
+                .thenReturn(Collections.emptyList());
+        when(bookingDao.existsApprovedOverlap(1L, BASE, BASE.plusDays(1), null)).thenReturn(false);
+
+        assertFalse(index.hasConflict(1L, BASE, BASE.plusDays(1), null));
+        assertFalse(index.hasConflict(1L, BASE.plusHours(1), BASE.plusDays(1), null));
+        verify(bookingDao, times(2)).findApprovedIntervalsByItemId(1L);
+    }
+
+    @Test
+    void reserveShouldRejectSecondOverlappingApproval() {
+        when(bookingDao.findApprovedIntervalsByItemId(1L)).thenReturn(Collections.emptyList());
+        Booking first = booking(1L, BASE, BASE.plusDays(2));
+        Booking second = booking(2L, BASE.plusDays(1), BASE.plusDays(3));
+        when(bookingDao.existsApprovedOverlap(1L, second.getStart(), second.getEnd(), 2L)).thenReturn(true);
+
+        assertTrue(index.reserve(first));
+        assertFalse(index.reserve(second));
+    }
+
+    @Test
+    void releaseShouldFreeInterval() {
+        when(bookingDao.findApprovedIntervalsByItemId(1L)).thenReturn(Collections.emptyList());
+        Booking first = booking(1L, BASE, BASE.plusDays(2));
+        Booking second = booking(2L, BASE.plusDays(1), BASE.plusDays(3));
+
+        assertTrue(index.reserve(first));
+        index.release(first);
+
+        assertTrue(index.reserve(second));
+        verify(bookingDao, never()).existsApprovedOverlap(any(), any(), any(), any());
+    }
+
+    @Test
+    void reserveShouldIgnoreApprovalReleasedInSameTransaction() {
+        when(bookingDao.findApprovedIntervalsByItemId(1L))
+                .thenReturn(List.of(new BookingInterval(10L, 1L, BASE, BASE.plusDays(2))));
+        Booking replacement = booking(2L, BASE.plusDays(1), BASE.plusDays(3));
+
+        assertTrue(index.reserve(replacement, Set.of(10L)));
+        verify(bookingDao, never()).existsApprovedOverlap(any(), any(), any(), any());
+        verify(bookingDao, never()).existsApprovedOverlapExcluding(any(), any(), any(), any());
+    }
+
+    @Test
+    void concurrentOverlappingApprovalsShouldReserveOnlyOnce() throws Exception {
+        when(bookingDao.findApprovedIntervalsByItemId(1L)).thenReturn(Collections.emptyList());
+        // Незакоммиченное одобрение соседней транзакции база не видит.
+        lenient().when(bookingDao.existsApprovedOverlap(any(), any(), any(), any())).thenReturn(false);
+        List<Booking> bookings = List.of(booking(1L, BASE, BASE.plusDays(2)),
+                booking(2L, BASE.plusDays(1), BASE.plusDays(3)));
+        CyclicBarrier start = new CyclicBarrier(bookings.size());
+        CountDownLatch reserved = new CountDownLatch(bookings.size());
+        CountDownLatch completed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(bookings.size());
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Booking booking : bookings) {
+                results.add(executor.submit(() -> inTransaction(() -> {
+                    start.await();
+                    boolean result = index.reserve(booking);
+                    reserved.countDown();
+                    completed.await();
+                    return result;
+                })));
+            }
+            assertTrue(reserved.await(5, TimeUnit.SECONDS));
+            completed.countDown();
+            long winners = 0;
+            for (Future<Boolean> result : results) {
+                winners += result.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, winners);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rolledBackReservationShouldFreeInterval() throws Exception {
+        when(bookingDao.findApprovedIntervalsByItemId(1L)).thenReturn(Collections.emptyList());
+        Booking first = booking(1L, BASE, BASE.plusDays(2));
+        Booking second = booking(2L, BASE.plusDays(1), BASE.plusDays(3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(index.reserve(first));
+            assertFalse(index.reserve(second));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(index.reserve(second));
+    }
+
+    @Test
+    void committedReservationShouldSurviveStaleIndexEviction() {
+        when(bookingDao.findApprovedIntervalsByItemId(1L))
+                .thenReturn(List.of(new BookingInterval(10L, 1L, BASE.minusDays(3), BASE.minusDays(1))))
+                .thenReturn(Collections.emptyList());
+        when(bookingDao.existsApprovedOverlap(any(), any(), any(), any())).thenReturn(false);
+        Booking first = booking(1L, BASE, BASE.plusDays(2));
+        Booking stale = booking(2L, BASE.minusDays(2), BASE.minusHours(1));
+        Booking second = booking(3L, BASE.plusDays(1), BASE.plusDays(3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(index.reserve(first));
+            // Устаревший интервал сбрасывает запись по вещи, но резерв первой транзакции остаётся.
+            assertTrue(index.reserve(stale));
+            assertFalse(index.reserve(second));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void findBusyItemsShouldLoadMissingItemsWithOneQuery() {
+        when(bookingDao.findApprovedIntervalsByItemIds(anyList()))
+                .thenReturn(List.of(new BookingInterval(10L, 1L, BASE, BASE.plusDays(2))));
+
+        Set<Long> busy = index.findBusyItems(List.of(1L, 2L), BASE.plusDays(1), BASE.plusDays(3));
+        Set<Long> busyLater = index.findBusyItems(List.of(1L, 2L), BASE.plusDays(2), BASE.plusDays(3));
+
+        assertEquals(Set.of(1L), busy);
+        assertTrue(busyLater.isEmpty());
+        verify(bookingDao, times(1)).findApprovedIntervalsByItemIds(anyList());
+        verify(bookingDao, never()).findApprovedIntervalsByItemId(any());
+    }
+
+    @Test
+    void findBusyIntervalsShouldReturnIntervalsTouchingWindow() {
+        when(bookingDao.findApprovedIntervalsByItemId(1L)).thenReturn(List.of(
+                new BookingInterval(10L, 1L, BASE.minusDays(2), BASE.plusHours(1)),
+                new BookingInterval(11L, 1L, BASE.plusDays(1), BASE.plusDays(2)),
+                new BookingInterval(12L, 1L, BASE.plusDays(3), BASE.plusDays(4))));
+
+        List<BookingInterval> result = index.findBusyIntervals(1L, BASE, BASE.plusDays(3));
+
+        assertEquals(List.of(10L, 11L), result.stream().map(BookingInterval::getBookingId).toList());
+    }
+
+    private <T> T inTransaction(Callable<T> action) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            return action.call();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Booking booking(Long id, LocalDateTime start, LocalDateTime end) {
+        return new Booking(id, start, end, item, booker, Status.WAITING);
+    }
+}
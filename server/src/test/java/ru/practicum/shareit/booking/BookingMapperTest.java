@@ -2,7 +2,9 @@ package ru.practicum.shareit.booking;
 
 import org.junit.jupiter.api.Test;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportDto;
 import ru.practicum.shareit.booking.dto.RequestBookingDto;
+import ru.practicum.shareit.booking.mapper.BookingCsvMapper;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
@@ -84,4 +86,13 @@ class BookingMapperTest {
         assertEquals(item.getId(), itemDto.getId());
         assertNull(itemDto.getRequestId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void toCsvRowShouldQuoteValuesWithSeparators() {
+        BookingExportDto booking = new BookingExportDto(1L, 2L, "Стол \"Лофт\", дуб", 3L,
+                LocalDateTime.of(2030, 1, 1, 12, 0), LocalDateTime.of(2030, 1, 2, 12, 30), Status.WAITING);
+
+        assertEquals("1,2,\"Стол \"\"Лофт\"\", дуб\",3,2030-01-01T12:00,2030-01-02T12:30,WAITING",
+                BookingCsvMapper.toCsvRow(booking));
+    }
+}
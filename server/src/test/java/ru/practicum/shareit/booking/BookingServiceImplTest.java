@@ -6,24 +6,41 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionOutcome;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportDto;
 import ru.practicum.shareit.booking.dto.RequestBookingDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingEventStream;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
 import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.event.dto.BookingEventPayload;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.ForbiddenException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dao.ItemDao;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -40,6 +57,18 @@ class BookingServiceImplTest {
     @Mock
     private ItemDao itemDao;
 
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Mock
+    private ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private BookingEventStream bookingEventStream;
+
     @InjectMocks
     private BookingServiceImpl bookingService;
 
@@ -75,6 +104,8 @@ class BookingServiceImplTest {
         assertEquals(booking.getBooker().getId(), result.getBooker().getId());
         assertEquals(Status.WAITING, result.getStatus());
         verify(bookingDao, times(1)).save(any(Booking.class));
+        verify(outboxPublisher, times(1)).publish(eq(EventType.BOOKING_CREATED), eq(1L),
+                any(BookingEventPayload.class));
     }
 
     @Test
@@ -112,44 +143,55 @@ class BookingServiceImplTest {
 
     @Test
     void updateBookingStatusShouldApproveBookingWhenOwner() {
+        when(bookingDao.updateStatus(1L, 1L, Set.of(Status.WAITING), Status.APPROVED)).thenReturn(1);
+        booking.setStatus(Status.APPROVED);
         when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
-        when(bookingDao.save(any(Booking.class))).thenAnswer(invocation -> {
-            Booking savedBooking = invocation.getArgument(0);
-            savedBooking.setStatus(Status.APPROVED);
-            return savedBooking;
-        });
+        when(bookingIntervalIndex.reserve(booking)).thenReturn(true);
 
         BookingDto result = bookingService.updateBookingStatus(1L, true, 1L);
 
         assertNotNull(result);
         assertEquals(Status.APPROVED, result.getStatus());
-        verify(bookingDao, times(1)).save(any(Booking.class));
+        verify(bookingDao, never()).save(any(Booking.class));
+        verify(itemBookingSummaryUpdater, times(1)).refresh(1L);
+        verify(outboxPublisher, times(1)).publish(eq(EventType.BOOKING_APPROVED), eq(1L),
+                any(BookingEventPayload.class));
     }
 
     @Test
     void updateBookingStatusShouldRejectBookingWhenOwner() {
+        when(bookingDao.updateStatus(1L, 1L, Set.of(Status.WAITING), Status.REJECTED)).thenReturn(1);
+        booking.setStatus(Status.REJECTED);
         when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
-        when(bookingDao.save(any(Booking.class))).thenAnswer(invocation -> {
-            Booking savedBooking = invocation.getArgument(0);
-            savedBooking.setStatus(Status.REJECTED);
-            return savedBooking;
-        });
 
         BookingDto result = bookingService.updateBookingStatus(1L, false, 1L);
 
         assertNotNull(result);
         assertEquals(Status.REJECTED, result.getStatus());
-        verify(bookingDao, times(1)).save(any(Booking.class));
+        verify(itemBookingSummaryUpdater, never()).refresh(any());
     }
 
     @Test
-    void updateBookingStatusShouldThrowValidationExceptionWhenNotOwner() {
+    void updateBookingStatusShouldThrowForbiddenExceptionWhenNotOwner() {
         when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
 
-        ValidationException exception = assertThrows(ValidationException.class,
+        ForbiddenException exception = assertThrows(ForbiddenException.class,
                 () -> bookingService.updateBookingStatus(1L, true, 2L));
         assertEquals("Только владелец вещи может менять статус бронирования!", exception.getMessage());
-        verify(bookingDao, never()).save(any());
+        verify(bookingDao, times(1)).updateStatus(1L, 2L, Set.of(Status.WAITING), Status.APPROVED);
+        verify(bookingIntervalIndex, never()).reserve(any());
+    }
+
+    @Test
+    void updateBookingStatusShouldThrowValidationExceptionWhenTransitionIllegal() {
+        booking.setStatus(Status.APPROVED);
+        when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> bookingService.updateBookingStatus(1L, true, 1L));
+        assertEquals("Бронирование с id 1 нельзя перевести из статуса APPROVED в статус APPROVED.",
+                exception.getMessage());
+        verify(itemBookingSummaryUpdater, never()).refresh(any());
     }
 
     @Test
@@ -168,12 +210,12 @@ class BookingServiceImplTest {
     }
 
     @Test
-    void getBookingShouldThrowValidationExceptionWhenNotOwnerOrBooker() {
+    void getBookingShouldThrowForbiddenExceptionWhenNotOwnerOrBooker() {
         User otherUser = new User(2L, "User2", "user2@example.com");
         when(userDao.findById(2L)).thenReturn(Optional.of(otherUser));
         when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
 
-        ValidationException exception = assertThrows(ValidationException.class,
+        ForbiddenException exception = assertThrows(ForbiddenException.class,
                 () -> bookingService.getBooking(1L, 2L));
         assertEquals("Только автор бронирования или владелец вещи могут получить данные о бронировании",
                 exception.getMessage());
@@ -235,16 +277,179 @@ class BookingServiceImplTest {
     }
 
     @Test
-    void deleteBookingShouldThrowValidationExceptionWhenNotBooker() {
+    void deleteBookingShouldThrowForbiddenExceptionWhenNotBooker() {
         // Arrange
         User otherUser = new User(2L, "User2", "user2@example.com");
         when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
         when(userDao.findById(2L)).thenReturn(Optional.of(otherUser));
 
         // Act & Assert
-        ValidationException exception = assertThrows(ValidationException.class,
+        ForbiddenException exception = assertThrows(ForbiddenException.class,
                 () -> bookingService.deleteBooking(1L, 2L));
         assertEquals("Только создателя бронирования может его удалить", exception.getMessage());
         verify(bookingDao, never()).deleteById(any());
     }
+
+    @Test
+    void createBookingShouldThrowValidationExceptionWhenIntervalTaken() {
+        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+        when(bookingIntervalIndex.hasConflict(1L, requestBookingDto.getStart(), requestBookingDto.getEnd(), null))
+                .thenReturn(true);
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> bookingService.createBooking(requestBookingDto, 1L));
+        assertEquals("Вещь с id 1 уже забронирована на это время.", exception.getMessage());
+        verify(bookingDao, never()).save(any());
+    }
+
+    @Test
+    void updateBookingStatusShouldThrowConflictExceptionWhenApprovedIntervalOverlaps() {
+        when(bookingDao.updateStatus(1L, 1L, Set.of(Status.WAITING), Status.APPROVED)).thenReturn(1);
+        when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
+        when(bookingIntervalIndex.reserve(booking)).thenReturn(false);
+
+        assertThrows(ConflictException.class, () -> bookingService.updateBookingStatus(1L, true, 1L));
+        verify(itemBookingSummaryUpdater, never()).refresh(any());
+        verify(outboxPublisher, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    void updateBookingStatusShouldNotRejectAlreadyApprovedBooking() {
+        booking.setStatus(Status.APPROVED);
+        when(bookingDao.updateStatus(1L, 1L, Set.of(Status.WAITING), Status.REJECTED)).thenReturn(0);
+        when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> bookingService.updateBookingStatus(1L, false, 1L));
+        assertEquals("Бронирование с id 1 нельзя перевести из статуса APPROVED в статус REJECTED.",
+                exception.getMessage());
+        verify(bookingIntervalIndex, never()).release(any());
+        verify(outboxPublisher, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    void deleteBookingShouldRefreshSummaryWhenApprovedBookingDeleted() {
+        booking.setStatus(Status.APPROVED);
+        when(bookingDao.findById(1L)).thenReturn(Optional.of(booking));
+        when(userDao.findById(1L)).thenReturn(Optional.of(user));
+
+        bookingService.deleteBooking(1L, 1L);
+
+        verify(bookingDao, times(1)).deleteById(1L);
+        verify(bookingIntervalIndex, times(1)).release(booking);
+        verify(itemBookingSummaryUpdater, times(1)).refresh(1L);
+    }
+
+    @Test
+    void streamBookingEventsShouldSubscribeExistingUser() {
+        SseEmitter emitter = new SseEmitter();
+        when(userDao.findById(1L)).thenReturn(Optional.of(user));
+        when(bookingEventStream.subscribe(1L, 5L)).thenReturn(emitter);
+
+        assertSame(emitter, bookingService.streamBookingEvents(1L, 5L));
+    }
+
+    @Test
+    void streamBookingEventsShouldThrowNotFoundExceptionWhenUserNotFound() {
+        when(userDao.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> bookingService.streamBookingEvents(1L, null));
+        verify(bookingEventStream, never()).subscribe(any(), any());
+    }
+
+    @Test
+    void updateBookingStatusesShouldReturnOutcomePerDecision() {
+        User other = new User(2L, "Other", "other@example.com");
+        Item otherItem = new Item(2L, "Item2", "Description", true, other, null);
+        Booking foreign = new Booking(2L, booking.getStart(), booking.getEnd(), otherItem, user, Status.WAITING);
+        Booking rejected = new Booking(4L, booking.getStart(), booking.getEnd(), item, other, Status.REJECTED);
+        when(userDao.findById(1L)).thenReturn(Optional.of(user));
+        when(bookingDao.findAllWithItemAndBookerByIdIn(Set.of(1L, 2L, 3L, 4L)))
+                .thenReturn(List.of(booking, foreign, rejected));
+        when(bookingIntervalIndex.reserve(booking)).thenReturn(true);
+        when(bookingDao.updateStatuses(Set.of(1L), Set.of(1L), Set.of(Status.WAITING), Set.of(Status.WAITING)))
+                .thenReturn(1);
+
+        List<BookingDecisionResultDto> result = List.copyOf(bookingService.updateBookingStatuses(List.of(
+                new BookingDecisionDto(1L, true), new BookingDecisionDto(2L, true),
+                new BookingDecisionDto(3L, false), new BookingDecisionDto(1L, false),
+                new BookingDecisionDto(4L, true)), 1L));
+
+        assertEquals(List.of(BookingDecisionOutcome.APPROVED, BookingDecisionOutcome.FORBIDDEN,
+                        BookingDecisionOutcome.NOT_FOUND, BookingDecisionOutcome.DUPLICATE,
+                        BookingDecisionOutcome.INVALID_STATUS),
+                result.stream().map(BookingDecisionResultDto::getOutcome).toList());
+        assertEquals(List.of(1L, 2L, 3L, 1L, 4L), result.stream().map(BookingDecisionResultDto::getBookingId).toList());
+        assertEquals(Status.APPROVED, booking.getStatus());
+        verify(itemBookingSummaryUpdater, times(1)).refresh(1L);
+        verify(outboxPublisher, times(1)).publish(eq(EventType.BOOKING_APPROVED), eq(1L),
+                any(BookingEventPayload.class));
+    }
+
+    @Test
+    void updateBookingStatusesShouldNotRejectApprovedBookingToFreeItsInterval() {
+        Booking approved = new Booking(2L, booking.getStart(), booking.getEnd(), item, user, Status.APPROVED);
+        when(userDao.findById(1L)).thenReturn(Optional.of(user));
+        when(bookingDao.findAllWithItemAndBookerByIdIn(Set.of(1L, 2L))).thenReturn(List.of(booking, approved));
+        when(bookingIntervalIndex.reserve(booking)).thenReturn(false);
+
+        List<BookingDecisionResultDto> result = List.copyOf(bookingService.updateBookingStatuses(List.of(
+                new BookingDecisionDto(1L, true), new BookingDecisionDto(2L, false)), 1L));
+
+        // Одиночное и пакетное решения следуют одному автомату: одобренное бронирование не отклоняется.
+        assertEquals(List.of(BookingDecisionOutcome.CONFLICT, BookingDecisionOutcome.INVALID_STATUS),
+                result.stream().map(BookingDecisionResultDto::getOutcome).toList());
+        verify(bookingDao, never()).updateStatuses(any(), any(), any(), any());
+        verify(bookingIntervalIndex, never()).release(any());
+        verify(outboxPublisher, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    void updateBookingStatusesShouldThrowConflictExceptionWhenRowsChangedConcurrently() {
+        when(userDao.findById(1L)).thenReturn(Optional.of(user));
+        when(bookingDao.findAllWithItemAndBookerByIdIn(Set.of(1L))).thenReturn(List.of(booking));
+        when(bookingDao.updateStatuses(Set.of(1L), Set.of(), Set.of(Status.WAITING), Set.of(Status.WAITING)))
+                .thenReturn(0);
+
+        assertThrows(ConflictException.class, () -> bookingService.updateBookingStatuses(
+                List.of(new BookingDecisionDto(1L, false)), 1L));
+        verify(outboxPublisher, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    void getBookingsShouldReturnOnlyBookingsVisibleToUserInRequestOrder() {
+        User other = new User(2L, "Other", "other@example.com");
+        Item otherItem = new Item(2L, "Item2", "Description", true, other, null);
+        Booking own = new Booking(2L, booking.getStart(), booking.getEnd(), otherItem, user, Status.WAITING);
+        Booking foreign = new Booking(3L, booking.getStart(), booking.getEnd(), otherItem, other, Status.WAITING);
+        when(userDao.findById(1L)).thenReturn(Optional.of(user));
+        when(bookingDao.findAllWithItemAndBookerByIdIn(List.of(3L, 2L, 1L))).thenReturn(List.of(booking, own, foreign));
+
+        List<BookingDto> result = bookingService.getBookings(List.of(3L, 2L, 1L), 1L);
+
+        assertEquals(List.of(2L, 1L), result.stream().map(BookingDto::getId).toList());
+    }
+
+    @Test
+    void exportOwnerBookingsShouldPassRowsToConsumerAndCloseStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        BookingExportDto row = new BookingExportDto(1L, 1L, "Item1", 2L, booking.getStart(), booking.getEnd(),
+                Status.WAITING);
+        when(userDao.findById(1L)).thenReturn(Optional.of(user));
+        when(bookingDao.streamOwnerBookings(1L)).thenReturn(Stream.of(row).onClose(() -> closed.set(true)));
+        List<BookingExportDto> exported = new ArrayList<>();
+
+        bookingService.exportOwnerBookings(1L, exported::add);
+
+        assertEquals(List.of(row), exported);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void exportOwnerBookingsShouldThrowNotFoundExceptionWhenUserNotFound() {
+        when(userDao.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> bookingService.exportOwnerBookings(1L, row -> { }));
+        verify(bookingDao, never()).streamOwnerBookings(any());
+    }
 }
@@ -0,0 +1,174 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionOutcome;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingEventStream;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.event.dao.OutboxEventDao;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.user.dao.UserDao;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EntityCacheConfig.class, JacksonAutoConfiguration.class, BookingServiceImpl.class,
+        BookingIntervalIndex.class, ItemBookingSummaryUpdater.class, OutboxPublisher.class, BookingEventStream.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingStatusConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingDao bookingDao;
+
+    @Autowired
+    private ItemDao itemDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private OutboxEventDao outboxEventDao;
+
+    private User owner;
+    private Booking booking;
+
+    @BeforeEach
+    void setUp() {
+        owner = userDao.save(new User(null, "Owner", "owner@example.com"));
+        User booker = userDao.save(new User(null, "Booker", "booker@example.com"));
+        Item item = itemDao.save(new Item(null, "Item", "Description", true, owner, null));
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 12, 0);
+        booking = bookingDao.save(new Booking(null, start, start.plusDays(1), item, booker, Status.WAITING));
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxEventDao.deleteAll();
+        bookingDao.deleteAll();
+        itemDao.deleteAll();
+        userDao.deleteAll();
+    }
+
+    @Test
+    void updateBookingStatusShouldLetOnlyOneConcurrentApprovalWin() throws Exception {
+        assertEquals(1, hammer(true));
+        assertEquals(Status.APPROVED, bookingDao.findById(booking.getId()).orElseThrow().getStatus());
+        assertEquals(List.of(EventType.BOOKING_APPROVED), outboxEventDao.findAll().stream()
+                .map(event -> event.getType())
+                .toList());
+    }
+
+    @Test
+    void updateBookingStatusShouldLetOnlyOneConcurrentRejectionWin() throws Exception {
+        assertEquals(1, hammer(false));
+        assertEquals(Status.REJECTED, bookingDao.findById(booking.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void updateBookingStatusShouldLetOnlyOneOfConcurrentApprovalsAndRejectionsWin() throws Exception {
+        List<Boolean> decisions = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            decisions.add(i % 2 == 0);
+        }
+
+        assertEquals(1, hammer(decisions));
+
+        Status status = bookingDao.findById(booking.getId()).orElseThrow().getStatus();
+        EventType expected = status == Status.APPROVED ? EventType.BOOKING_APPROVED : EventType.BOOKING_REJECTED;
+        assertTrue(status == Status.APPROVED || status == Status.REJECTED);
+        assertEquals(List.of(expected), outboxEventDao.findAll().stream()
+                .map(event -> event.getType())
+                .toList());
+    }
+
+    @Test
+    void updateBookingStatusesShouldNotRejectApprovalToMakeRoomForOverlap() {
+        Booking approved = bookingDao.save(new Booking(null, booking.getStart().minusHours(1),
+                booking.getEnd().minusHours(1), booking.getItem(), booking.getBooker(), Status.APPROVED));
+
+        List<BookingDecisionResultDto> results = List.copyOf(bookingService.updateBookingStatuses(List.of(
+                new BookingDecisionDto(booking.getId(), true), new BookingDecisionDto(approved.getId(), false)),
+                owner.getId()));
+
+        assertEquals(List.of(BookingDecisionOutcome.CONFLICT, BookingDecisionOutcome.INVALID_STATUS),
+                results.stream().map(BookingDecisionResultDto::getOutcome).toList());
+        assertEquals(Status.WAITING, bookingDao.findById(booking.getId()).orElseThrow().getStatus());
+        assertEquals(Status.APPROVED, bookingDao.findById(approved.getId()).orElseThrow().getStatus());
+        assertThrows(ValidationException.class,
+                () -> bookingService.updateBookingStatus(approved.getId(), false, owner.getId()));
+    }
+
+    private int hammer(boolean approve) throws Exception {
+        List<Boolean> decisions = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            decisions.add(approve);
+        }
+        return hammer(decisions);
+    }
+
+    private int hammer(List<Boolean> decisions) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (boolean approve : decisions) {
+                results.add(executor.submit(() -> {
+                    startSignal.await();
+                    try {
+                        bookingService.updateBookingStatus(booking.getId(), approve, owner.getId());
+                        return true;
+                    } catch (ValidationException | ConflictException e) {
+                        return false;
+                    }
+                }));
+            }
+            startSignal.countDown();
+            int won = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    won++;
+                }
+            }
+            return won;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.practicum.shareit.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import ru.practicum.shareit.exception.NotFoundException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelQueriesTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ParallelQueries parallelQueries;
+
+    @BeforeEach
+    void setUp() {
+        parallelQueries = new ParallelQueries(transactionManager, true);
+    }
+
+    @Test
+    void forkShouldRunQueriesConcurrentlyInReadOnlyTransactions() {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        try (ParallelQueries.Scope scope = parallelQueries.open()) {
+            Supplier<String> first = scope.fork(() -> await(barrier, "first"));
+            Supplier<String> second = scope.fork(() -> await(barrier, "second"));
+            scope.join();
+
+            assertEquals("first", first.get());
+            assertEquals("second", second.get());
+        }
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(2)).getTransaction(definitions.capture());
+        assertTrue(definitions.getAllValues().stream().allMatch(TransactionDefinition::isReadOnly));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void forkShouldRunQueriesInCallerThreadWhenDisabled() {
+        ParallelQueries sequential = new ParallelQueries(transactionManager, false);
+        Thread caller = Thread.currentThread();
+
+        try (ParallelQueries.Scope scope = sequential.open()) {
+            Supplier<Thread> first = scope.fork(Thread::currentThread);
+            Supplier<Thread> second = scope.fork(Thread::currentThread);
+            scope.join();
+
+            assertSame(caller, first.get());
+            assertSame(caller, second.get());
+        }
+        verify(transactionManager, times(2)).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void joinShouldRethrowFailureAndCancelOtherQueries() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        try (ParallelQueries.Scope scope = parallelQueries.open()) {
+            scope.fork(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                return null;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            scope.fork(() -> {
+                throw new NotFoundException("Пользователь не найден.");
+            });
+
+            NotFoundException exception = assertThrows(NotFoundException.class, scope::join);
+            assertEquals("Пользователь не найден.", exception.getMessage());
+        }
+        assertTrue(interrupted.get());
+    }
+
+    @Test
+    void resultShouldNotBeAvailableBeforeJoin() {
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ParallelQueries.Scope scope = parallelQueries.open()) {
+            Supplier<String> result = scope.fork(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "done";
+            });
+
+            assertThrows(IllegalStateException.class, result::get);
+            release.countDown();
+            scope.join();
+            assertEquals("done", result.get());
+        }
+    }
+
+    private String await(CyclicBarrier barrier, String value) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+}
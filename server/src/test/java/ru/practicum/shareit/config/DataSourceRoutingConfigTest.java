@@ -0,0 +1,67 @@
+package ru.practicum.shareit.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSourceRoutingConfigTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private ReplicaDataSourceProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2DataSource("primary");
+        replica = h2DataSource("replica");
+        properties = new ReplicaDataSourceProperties();
+    }
+
+    @Test
+    void readOnlyTransactionShouldUseReplica() {
+        DataSource routing = DataSourceRoutingConfig.routingDataSource(primary, replica, properties);
+
+        assertEquals("replica", nodeName(routing, true));
+    }
+
+    @Test
+    void readWriteTransactionShouldUsePrimary() {
+        DataSource routing = DataSourceRoutingConfig.routingDataSource(primary, replica, properties);
+
+        assertEquals("primary", nodeName(routing, false));
+    }
+
+    @Test
+    void readOnlyTransactionShouldFallBackToPrimaryWhenReplicaUnavailable() {
+        DriverManagerDataSource missingReplica = new DriverManagerDataSource(
+                "jdbc:h2:mem:missing-" + UUID.randomUUID() + ";IFEXISTS=TRUE", "sa", "");
+        DataSource routing = DataSourceRoutingConfig.routingDataSource(primary, missingReplica, properties);
+
+        assertEquals("primary", nodeName(routing, true));
+        assertEquals("primary", nodeName(routing, true));
+    }
+
+    private String nodeName(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> new JdbcTemplate(dataSource)
+                .queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private DataSource h2DataSource(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.shareit.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.user.service.UserServiceImpl;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "shareit.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "shareit.datasource.replica.username=sa",
+        "shareit.datasource.replica.password="
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DataSourceRoutingConfig.class, EntityCacheConfig.class, UserServiceImpl.class})
+class ReplicaRoutingJpaTest {
+
+    private static final long REPLICA_USER_ID = 1000L;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @MockBean
+    private ItemViewCache itemViewCache;
+
+    @MockBean
+    private ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+
+    @MockBean
+    private OutboxPublisher outboxPublisher;
+
+    @MockBean
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @MockBean
+    private ItemRequestMatcher itemRequestMatcher;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        // Схему реплики Hibernate не создаёт, поэтому заводим только таблицу, которую читает тест.
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS public.users (id BIGINT PRIMARY KEY, name VARCHAR(255), " +
+                "email VARCHAR(512), deleted BOOLEAN DEFAULT FALSE NOT NULL)");
+        replica.update("MERGE INTO public.users (id, name, email, deleted) KEY (id) VALUES (?, ?, ?, FALSE)",
+                REPLICA_USER_ID, "Replica", "replica@example.com");
+    }
+
+    @Test
+    void readOnlyServiceCallShouldReadFromReplicaThroughJpa() {
+        UserDto result = userService.getUser(REPLICA_USER_ID);
+
+        assertEquals("Replica", result.getName());
+    }
+
+    @Test
+    void readWriteServiceCallShouldWriteToPrimary() {
+        UserDto created = userService.createUser(new UserDto(null, "Primary", "primary@example.com"));
+
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM public.users WHERE email = ?",
+                Integer.class, "primary@example.com"));
+        assertNotNull(created.getId());
+    }
+}
@@ -0,0 +1,136 @@
+package ru.practicum.shareit.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.event.dao.OutboxEventDao;
+import ru.practicum.shareit.event.dto.DomainEvent;
+import ru.practicum.shareit.event.model.AggregateType;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.model.OutboxEvent;
+import ru.practicum.shareit.event.model.OutboxStatus;
+import ru.practicum.shareit.event.service.OutboxDispatcher;
+import ru.practicum.shareit.event.service.OutboxSubscriber;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    @Mock
+    private OutboxEventDao outboxEventDao;
+
+    private final List<DomainEvent> received = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        OutboxSubscriber subscriber = event -> {
+            if (event.getPayload().contains("fail")) {
+                throw new IllegalStateException("fail");
+            }
+            received.add(event);
+        };
+        dispatcher = new OutboxDispatcher(outboxEventDao, List.of(subscriber), meterRegistry, 100, 3,
+                Duration.ofDays(7));
+    }
+
+    @Test
+    void dispatchShouldDeliverInOrderAndMarkDispatched() {
+        List<OutboxEvent> events = List.of(
+                event(1L, 10L, 1L, "{}", LocalDateTime.now().minusSeconds(30)),
+                event(2L, 10L, 2L, "{}", LocalDateTime.now()));
+        when(outboxEventDao.findPending(any(Pageable.class))).thenReturn(events);
+        when(outboxEventDao.findPendingByAggregates(eq(AggregateType.BOOKING), eq(Set.of(10L)), any(Pageable.class)))
+                .thenReturn(events);
+
+        dispatcher.dispatch();
+
+        assertEquals(List.of(1L, 2L), received.stream().map(DomainEvent::getId).toList());
+        verify(outboxEventDao).markDispatched(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        verify(outboxEventDao, never()).markFailed(anyList(), anyInt());
+        assertEquals(2.0, meterRegistry.get("shareit.outbox.dispatched").counter().count());
+        assertTrue(meterRegistry.get("shareit.outbox.lag").timeGauge().value(TimeUnit.SECONDS) >= 30);
+    }
+
+    @Test
+    void dispatchShouldHoldBackLaterEventsOfFailedAggregate() {
+        List<OutboxEvent> events = List.of(
+                event(1L, 10L, 1L, "{\"fail\":true}", LocalDateTime.now()),
+                event(3L, 10L, 2L, "{}", LocalDateTime.now()),
+                event(2L, 20L, 1L, "{}", LocalDateTime.now()));
+        when(outboxEventDao.findPending(any(Pageable.class))).thenReturn(events);
+        when(outboxEventDao.findPendingByAggregates(eq(AggregateType.BOOKING), eq(Set.of(10L, 20L)),
+                any(Pageable.class))).thenReturn(events);
+
+        dispatcher.dispatch();
+
+        assertEquals(List.of(2L), received.stream().map(DomainEvent::getId).toList());
+        verify(outboxEventDao).markDispatched(eq(List.of(2L)), any(LocalDateTime.class));
+        verify(outboxEventDao).markFailed(List.of(1L), 3);
+        assertEquals(1.0, meterRegistry.get("shareit.outbox.failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("shareit.outbox.parked").counter().count());
+    }
+
+    @Test
+    void dispatchShouldDeliverAggregateByVersionWhenPooledIdsAreOutOfOrder() {
+        // У более позднего события id из пула меньше, но версия агрегата задаёт порядок коммитов.
+        OutboxEvent approved = event(5L, 10L, 2L, "{}", LocalDateTime.now().minusSeconds(5));
+        OutboxEvent created = event(9L, 10L, 1L, "{}", LocalDateTime.now());
+        when(outboxEventDao.findPending(any(Pageable.class))).thenReturn(List.of(approved));
+        when(outboxEventDao.findPendingByAggregates(eq(AggregateType.BOOKING), eq(Set.of(10L)), any(Pageable.class)))
+                .thenReturn(List.of(created, approved));
+
+        dispatcher.dispatch();
+
+        assertEquals(List.of(9L, 5L), received.stream().map(DomainEvent::getId).toList());
+        verify(outboxEventDao).markDispatched(eq(List.of(9L, 5L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void dispatchShouldCountParkedEvents() {
+        OutboxEvent poison = event(1L, 10L, 1L, "{\"fail\":true}", LocalDateTime.now());
+        poison.setAttempts(2);
+        when(outboxEventDao.findPending(any(Pageable.class))).thenReturn(List.of(poison));
+        when(outboxEventDao.findPendingByAggregates(eq(AggregateType.BOOKING), eq(Set.of(10L)), any(Pageable.class)))
+                .thenReturn(List.of(poison));
+
+        dispatcher.dispatch();
+
+        verify(outboxEventDao).markFailed(List.of(1L), 3);
+        assertEquals(1.0, meterRegistry.get("shareit.outbox.parked").counter().count());
+    }
+
+    @Test
+    void dispatchShouldResetLagWhenNothingPending() {
+        when(outboxEventDao.findPending(any(Pageable.class))).thenReturn(List.of());
+
+        dispatcher.dispatch();
+
+        assertEquals(0.0, meterRegistry.get("shareit.outbox.lag").timeGauge().value(TimeUnit.SECONDS));
+        verify(outboxEventDao, never()).markDispatched(anyList(), any());
+    }
+
+    private OutboxEvent event(Long id, Long aggregateId, long version, String payload, LocalDateTime created) {
+        return new OutboxEvent(id, AggregateType.BOOKING, aggregateId, EventType.BOOKING_CREATED, payload,
+                created, null, 0, version, OutboxStatus.PENDING, new HashSet<>());
+    }
+}
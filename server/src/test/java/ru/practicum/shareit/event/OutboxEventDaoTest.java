@@ -0,0 +1,185 @@
+package ru.practicum.shareit.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.event.dao.OutboxAggregateVersionDao;
+import ru.practicum.shareit.event.dao.OutboxEventDao;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.event.dto.BookingEventPayload;
+import ru.practicum.shareit.event.dto.ItemRequestEventPayload;
+import ru.practicum.shareit.event.model.AggregateType;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.model.OutboxEvent;
+import ru.practicum.shareit.event.model.OutboxStatus;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EntityCacheConfig.class, OutboxEventDaoTest.PublisherConfig.class})
+class OutboxEventDaoTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Autowired
+    private OutboxEventDao outboxEventDao;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void publishShouldStorePendingEventWithJsonPayload() {
+        publishRequestEvents();
+        List<OutboxEvent> pending = outboxEventDao.findPending(PageRequest.of(0, 10));
+
+        assertEquals(2, pending.size());
+        OutboxEvent first = pending.getFirst();
+        assertEquals(AggregateType.ITEM_REQUEST, first.getAggregateType());
+        assertEquals(EventType.ITEM_REQUEST_CREATED, first.getType());
+        assertTrue(first.getPayload().contains("\"description\":\"Дрель\""));
+        assertTrue(first.getId() < pending.get(1).getId());
+    }
+
+    @Test
+    void markDispatchedShouldRemoveEventsFromPending() {
+        publishRequestEvents();
+        List<Long> ids = outboxEventDao.findPending(PageRequest.of(0, 10)).stream().map(OutboxEvent::getId).toList();
+
+        outboxEventDao.markDispatched(List.of(ids.getFirst()), NOW);
+        entityManager.clear();
+
+        assertEquals(List.of(ids.get(1)), outboxEventDao.findPending(PageRequest.of(0, 10)).stream()
+                .map(OutboxEvent::getId)
+                .toList());
+    }
+
+    @Test
+    void markFailedShouldParkEventAfterMaxAttempts() {
+        publishRequestEvents();
+        Long id = outboxEventDao.findPending(PageRequest.of(0, 1)).getFirst().getId();
+
+        outboxEventDao.markFailed(List.of(id), 2);
+        entityManager.clear();
+        assertEquals(OutboxStatus.PENDING, outboxEventDao.findById(id).orElseThrow().getStatus());
+
+        outboxEventDao.markFailed(List.of(id), 2);
+        entityManager.clear();
+        OutboxEvent parked = outboxEventDao.findById(id).orElseThrow();
+        assertEquals(2, parked.getAttempts());
+        assertEquals(OutboxStatus.PARKED, parked.getStatus());
+        assertNull(parked.getDispatched());
+        assertFalse(outboxEventDao.findPending(PageRequest.of(0, 10)).stream()
+                .anyMatch(event -> event.getId().equals(id)));
+        assertEquals(0, outboxEventDao.deleteDispatchedBefore(NOW.plusYears(100)));
+    }
+
+    @Test
+    void publishShouldNumberEventsWithinAggregate() {
+        publishRequestEvents();
+        outboxPublisher.publish(EventType.ITEM_REQUEST_CREATED, 8L, new ItemRequestEventPayload(8L, 1L, "Пила"));
+
+        List<OutboxEvent> pending = outboxEventDao.findPendingByAggregates(AggregateType.ITEM_REQUEST,
+                List.of(7L, 8L), PageRequest.of(0, 10));
+
+        assertEquals(List.of(1L, 2L, 1L), pending.stream().map(OutboxEvent::getAggregateVersion).toList());
+        assertEquals(List.of(7L, 7L, 8L), pending.stream().map(OutboxEvent::getAggregateId).toList());
+    }
+
+    @Test
+    void findPendingByAggregatesShouldOrderByVersionRatherThanId() {
+        // Идентификатор из пула другой копии приложения может оказаться меньше у более позднего события.
+        OutboxEvent later = outboxEventDao.save(event(9L, 2L));
+        OutboxEvent earlier = outboxEventDao.save(event(9L, 1L));
+        assertTrue(later.getId() < earlier.getId());
+
+        assertEquals(List.of(earlier.getId(), later.getId()), outboxEventDao.findPendingByAggregates(
+                AggregateType.ITEM_REQUEST, List.of(9L), PageRequest.of(0, 10)).stream()
+                .map(OutboxEvent::getId)
+                .toList());
+    }
+
+    @Test
+    void deleteDispatchedBeforeShouldKeepPendingAndRecentEvents() {
+        publishRequestEvents();
+        List<Long> ids = outboxEventDao.findPending(PageRequest.of(0, 10)).stream().map(OutboxEvent::getId).toList();
+        outboxEventDao.markDispatched(List.of(ids.getFirst()), NOW.minusDays(10));
+
+        int deleted = outboxEventDao.deleteDispatchedBefore(NOW.minusDays(7));
+        entityManager.clear();
+
+        assertEquals(1, deleted);
+        assertEquals(1, outboxEventDao.count());
+    }
+
+    @Test
+    void findDispatchedForShouldReturnOnlyRecipientEventsFromLastDispatch() {
+        publishBookingEvent(1L, 1L, 2L);
+        publishBookingEvent(2L, 3L, 4L);
+        publishBookingEvent(3L, 5L, 2L);
+        publishBookingEvent(4L, 2L, 6L);
+        List<Long> ids = outboxEventDao.findPending(PageRequest.of(0, 10)).stream().map(OutboxEvent::getId).toList();
+        outboxEventDao.markDispatched(ids.subList(0, 2), NOW);
+        outboxEventDao.markDispatched(ids.subList(2, 3), NOW.plusMinutes(1));
+        entityManager.clear();
+
+        List<OutboxEvent> missed = outboxEventDao.findDispatchedFor(AggregateType.BOOKING, 2L, NOW, ids.getFirst(),
+                PageRequest.of(0, 10));
+
+        assertEquals(List.of(ids.get(2)), missed.stream().map(OutboxEvent::getId).toList());
+        assertEquals(Set.of(5L, 2L), outboxEventDao.findById(ids.get(2)).orElseThrow().getRecipients());
+        // Получатели удаляются вместе с событиями.
+        assertEquals(3, outboxEventDao.deleteDispatchedBefore(NOW.plusYears(1)));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void publishShouldRequireSurroundingTransaction() {
+        assertThrows(IllegalTransactionStateException.class, () -> outboxPublisher.publish(
+                EventType.ITEM_REQUEST_CREATED, 8L, new ItemRequestEventPayload(8L, 1L, "Пила")));
+    }
+
+    private void publishBookingEvent(Long bookingId, Long ownerId, Long bookerId) {
+        outboxPublisher.publish(EventType.BOOKING_CREATED, bookingId, new BookingEventPayload(bookingId, 3L,
+                ownerId, bookerId, NOW, NOW.plusDays(1), Status.WAITING));
+    }
+
+    private OutboxEvent event(Long aggregateId, long version) {
+        return new OutboxEvent(null, AggregateType.ITEM_REQUEST, aggregateId, EventType.ITEM_REQUEST_CREATED, "{}",
+                NOW, null, 0, version, OutboxStatus.PENDING, new HashSet<>());
+    }
+
+    private void publishRequestEvents() {
+        outboxPublisher.publish(EventType.ITEM_REQUEST_CREATED, 7L, new ItemRequestEventPayload(7L, 1L, "Дрель"));
+        outboxPublisher.publish(EventType.ITEM_REQUEST_DELETED, 7L, new ItemRequestEventPayload(7L, 1L, "Дрель"));
+    }
+
+    static class PublisherConfig {
+
+        @Bean
+        OutboxPublisher outboxPublisher(OutboxEventDao outboxEventDao,
+                                        OutboxAggregateVersionDao outboxAggregateVersionDao) {
+            return new OutboxPublisher(outboxEventDao, outboxAggregateVersionDao,
+                    new ObjectMapper().findAndRegisterModules());
+        }
+    }
+}
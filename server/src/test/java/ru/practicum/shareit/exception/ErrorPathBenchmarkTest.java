@@ -0,0 +1,123 @@
+package ru.practicum.shareit.exception;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.practicum.shareit.Benchmark;
+import ru.practicum.shareit.user.controller.UserController;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Пропускная способность ответа об ошибке по сравнению с успешным ответом того же обработчика.
+ * Исключение со стеком отличается от доменного только записью стека, поэтому разница между ними
+ * и есть цена стека на реальной глубине вызова внутри DispatcherServlet.
+ */
+@Tag(Benchmark.TAG)
+@WebMvcTest(controllers = UserController.class, properties = "logging.level.ru.practicum.shareit.user=WARN")
+@Import({ErrorPathBenchmarkTest.StackfulErrorHandler.class, ErrorPathBenchmarkTest.StubConfig.class})
+class ErrorPathBenchmarkTest {
+
+    private static final long FOUND = 1L;
+    private static final long MISSING = 2L;
+    private static final long MISSING_WITH_STACK = 3L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        // Контекст с заглушкой переиспользуется тестами, поэтому стабы задаются без вызова самого метода.
+        doReturn(new UserDto(FOUND, "User", "user@example.com")).when(userService).getUser(FOUND);
+        // Исключения создаются на каждый запрос, как в сервисе.
+        doAnswer(invocation -> {
+            throw new NotFoundException("Пользователь не найден.");
+        }).when(userService).getUser(MISSING);
+        doAnswer(invocation -> {
+            throw new StackfulNotFoundException("Пользователь не найден.");
+        }).when(userService).getUser(MISSING_WITH_STACK);
+    }
+
+    @Test
+    void errorPathThroughput() throws Exception {
+        Map<String, Benchmark.Action> variants = new LinkedHashMap<>();
+        variants.put("GET /users/{id}: 200", () -> perform(FOUND, 200));
+        variants.put("GET /users/{id}: 404, доменное исключение", () -> perform(MISSING, 404));
+        variants.put("GET /users/{id}: 404, исключение со стеком", () -> perform(MISSING_WITH_STACK, 404));
+
+        Map<String, Benchmark.Result> results = Benchmark.compare(1, variants);
+
+        assertTrue(results.get("GET /users/{id}: 404, доменное исключение").getBytesPerOp()
+                < results.get("GET /users/{id}: 404, исключение со стеком").getBytesPerOp());
+    }
+
+    @Test
+    void exceptionConstructionThroughput() throws Exception {
+        Map<String, Benchmark.Action> variants = new LinkedHashMap<>();
+        variants.put("new NotFoundException на глубине 100",
+                () -> atDepth(100, () -> new NotFoundException("Пользователь не найден.")));
+        variants.put("new RuntimeException на глубине 100",
+                () -> atDepth(100, () -> new RuntimeException("Пользователь не найден.")));
+
+        Map<String, Benchmark.Result> results = Benchmark.compare(1, variants);
+
+        assertTrue(results.get("new NotFoundException на глубине 100").getOpsPerSecond()
+                > results.get("new RuntimeException на глубине 100").getOpsPerSecond());
+    }
+
+    private void perform(long userId, int expectedStatus) throws Exception {
+        int status = mockMvc.perform(get("/users/{id}", userId)).andReturn().getResponse().getStatus();
+        assertEquals(expectedStatus, status);
+    }
+
+    private static Object atDepth(int depth, Supplier<RuntimeException> factory) {
+        return depth == 0 ? factory.get() : atDepth(depth - 1, factory);
+    }
+
+    @TestConfiguration
+    static class StubConfig {
+
+        // Обычный мок запоминает каждый вызов, и за миллионы запросов это исказило бы замер памяти.
+        @Bean
+        UserService userService() {
+            return mock(UserService.class, withSettings().stubOnly());
+        }
+    }
+
+    static class StackfulNotFoundException extends RuntimeException {
+        StackfulNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    @RestControllerAdvice
+    static class StackfulErrorHandler {
+
+        @ExceptionHandler(StackfulNotFoundException.class)
+        @ResponseStatus(HttpStatus.NOT_FOUND)
+        public Map<String, String> handle(StackfulNotFoundException e) {
+            return Map.of("error", e.getMessage());
+        }
+    }
+}
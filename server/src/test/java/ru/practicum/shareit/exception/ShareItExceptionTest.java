@@ -0,0 +1,24 @@
+package ru.practicum.shareit.exception;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShareItExceptionTest {
+
+    @Test
+    void domainExceptionsShouldNotCaptureStackTraceOrSuppressed() {
+        List<ShareItException> exceptions = List.of(new NotFoundException("not found"),
+                new ValidationException("invalid"), new AlreadyExistException("exists"),
+                new ForbiddenException("forbidden"));
+
+        for (ShareItException exception : exceptions) {
+            exception.addSuppressed(new IllegalStateException());
+
+            assertEquals(0, exception.getStackTrace().length);
+            assertEquals(0, exception.getSuppressed().length);
+        }
+    }
+}
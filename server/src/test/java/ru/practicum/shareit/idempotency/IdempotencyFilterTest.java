@@ -0,0 +1,137 @@
+package ru.practicum.shareit.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyFilter filter;
+    private int status;
+    private String lastBody;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(new IdempotencyStore(DataSize.ofMegabytes(1), Duration.ofMinutes(1)));
+        status = 201;
+    }
+
+    @Test
+    void repeatedRequestShouldReturnStoredResponseWithoutExecution() throws Exception {
+        MockHttpServletResponse first = perform(post("key-1", 1L));
+        MockHttpServletResponse second = perform(post("key-1", 1L));
+
+        assertEquals(1, executions.get());
+        assertEquals(201, second.getStatus());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, second.getContentType());
+        assertEquals("true", second.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void sameKeyOfAnotherUserShouldBeExecuted() throws Exception {
+        perform(post("key-1", 1L));
+        perform(post("key-1", 2L));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void requestWithoutKeyShouldAlwaysBeExecuted() throws Exception {
+        perform(post(null, 1L));
+        perform(post(null, 1L));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void serverErrorShouldNotBeStored() throws Exception {
+        status = 500;
+        perform(post("key-1", 1L));
+        status = 201;
+        MockHttpServletResponse retry = perform(post("key-1", 1L));
+
+        assertEquals(2, executions.get());
+        assertEquals(201, retry.getStatus());
+    }
+
+    @Test
+    void requestWithSameKeyInProgressShouldBeAskedToRetry() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        filter = new IdempotencyFilter(store);
+        // SHA-256 пустого тела.
+        store.reserve("1:/bookings:key-1", "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+
+        MockHttpServletResponse response = perform(post("key-1", 1L));
+
+        assertEquals(0, executions.get());
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+    }
+
+    @Test
+    void sameKeyWithAnotherBodyShouldBeRejected() throws Exception {
+        perform(post("key-1", 1L, "{\"itemId\":1}"));
+        MockHttpServletResponse response = perform(post("key-1", 1L, "{\"itemId\":2}"));
+
+        assertEquals(1, executions.get());
+        assertEquals(422, response.getStatus());
+        assertNull(response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void requestBodyShouldReachHandlerAfterFingerprinting() throws Exception {
+        MockHttpServletResponse response = perform(post("key-1", 1L, "{\"itemId\":1}"));
+
+        assertEquals(201, response.getStatus());
+        assertEquals("{\"itemId\":1}", lastBody);
+    }
+
+    @Test
+    void tooLongKeyShouldBeRejected() throws Exception {
+        MockHttpServletResponse response = perform(post("k".repeat(256), 1L));
+
+        assertEquals(0, executions.get());
+        assertEquals(400, response.getStatus());
+    }
+
+    private MockHttpServletRequest post(String key, Long userId) {
+        return post(key, userId, "");
+    }
+
+    private MockHttpServletRequest post(String key, Long userId, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/bookings");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        request.addHeader("X-Sharer-User-Id", userId);
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            int execution = executions.incrementAndGet();
+            lastBody = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            HttpServletResponse httpResponse = (HttpServletResponse) res;
+            httpResponse.setStatus(status);
+            httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            httpResponse.getWriter().write("{\"id\":" + execution + "}");
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,186 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.item.dao.ItemBookingSummaryDao;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.user.dao.UserDao;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "shareit.booking-summary.sweep-batch-size=2")
+@ActiveProfiles("test")
+@Import({EntityCacheConfig.class, ItemBookingSummaryUpdater.class})
+class ItemBookingSummaryUpdaterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 10, 12, 0);
+
+    @Autowired
+    private ItemBookingSummaryUpdater updater;
+
+    @Autowired
+    private ItemBookingSummaryDao summaryDao;
+
+    @Autowired
+    private BookingDao bookingDao;
+
+    @Autowired
+    private ItemDao itemDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    private User booker;
+    private Item item;
+    private Booking lastBooking;
+    private Booking nextBooking;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userDao.save(new User(null, "Owner", "owner@example.com"));
+        booker = userDao.save(new User(null, "Booker", "booker@example.com"));
+        item = itemDao.save(new Item(null, "Item", "Description", true, owner, null));
+
+        book(NOW.minusDays(5), NOW.minusDays(4), Status.APPROVED);
+        lastBooking = book(NOW.minusDays(3), NOW.minusDays(2), Status.APPROVED);
+        book(NOW.minusHours(1), NOW.plusDays(1), Status.APPROVED);
+        book(NOW.plusHours(1), NOW.plusHours(2), Status.WAITING);
+        nextBooking = book(NOW.plusDays(2), NOW.plusDays(3), Status.APPROVED);
+        book(NOW.plusDays(5), NOW.plusDays(6), Status.APPROVED);
+    }
+
+    @Test
+    void findSummariesShouldComputeMissingSummaryFromApprovedBookings() {
+        ItemBookingSummary result = updater.findSummaries(List.of(item.getId()), NOW).get(item.getId());
+
+        assertEquals(lastBooking.getId(), result.getLastBookingId());
+        assertEquals(nextBooking.getId(), result.getNextBookingId());
+        assertEquals(NOW.plusDays(1), result.getValidUntil());
+        assertFalse(summaryDao.existsById(item.getId()));
+    }
+
+    @Test
+    void findSummariesShouldRecomputeStaleSummary() {
+        summaryDao.save(new ItemBookingSummary(item.getId(), null, null, NOW.minusMinutes(1)));
+
+        ItemBookingSummary result = updater.findSummaries(List.of(item.getId()), NOW).get(item.getId());
+
+        assertEquals(lastBooking.getId(), result.getLastBookingId());
+        assertEquals(nextBooking.getId(), result.getNextBookingId());
+    }
+
+    @Test
+    void findSummariesShouldReturnStoredSummaryWhenFresh() {
+        summaryDao.save(new ItemBookingSummary(item.getId(), 100L, 200L, NOW.plusMinutes(1)));
+
+        ItemBookingSummary result = updater.findSummaries(List.of(item.getId()), NOW).get(item.getId());
+
+        assertEquals(100L, result.getLastBookingId());
+        assertEquals(200L, result.getNextBookingId());
+    }
+
+    @Test
+    void refreshShouldUpdateTrackedSummary() {
+        updater.track(List.of(item.getId()));
+
+        updater.refresh(item.getId());
+
+        ItemBookingSummary result = summaryDao.findById(item.getId()).orElseThrow();
+        assertNotNull(result.getNextBookingId());
+        assertNotNull(result.getValidUntil());
+    }
+
+    @Test
+    void sweepShouldCreateMissingAndRefreshStaleSummaries() {
+        Item otherItem = itemDao.save(new Item(null, "Other", "Description", true, item.getOwner(), null));
+        summaryDao.save(new ItemBookingSummary(otherItem.getId(), 100L, 200L, LocalDateTime.now().minusDays(1)));
+
+        updater.sweep();
+
+        assertTrue(summaryDao.existsById(item.getId()));
+        ItemBookingSummary other = summaryDao.findById(otherItem.getId()).orElseThrow();
+        assertNull(other.getLastBookingId());
+        assertNull(other.getNextBookingId());
+        // Без предстоящих бронирований сводка перепроверяется через max-age, а не остаётся без срока.
+        assertTrue(other.getValidUntil().isAfter(LocalDateTime.now().plusHours(23)));
+    }
+
+    @Test
+    void sweepShouldRefreshAllStaleSummariesInBatches() {
+        List<Item> others = List.of(
+                itemDao.save(new Item(null, "First", "Description", true, item.getOwner(), null)),
+                itemDao.save(new Item(null, "Second", "Description", true, item.getOwner(), null)),
+                itemDao.save(new Item(null, "Third", "Description", true, item.getOwner(), null)));
+        updater.track(List.of(item.getId()));
+        others.forEach(other ->
+                summaryDao.save(new ItemBookingSummary(other.getId(), 100L, 200L, LocalDateTime.now().minusDays(1))));
+
+        updater.sweep();
+
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(summaryDao.findAll().stream().noneMatch(summary -> summary.isStaleAt(now)));
+        assertTrue(others.stream().allMatch(other ->
+                summaryDao.findById(other.getId()).orElseThrow().getLastBookingId() == null));
+    }
+
+    @Test
+    void sweepShouldNotFailWhenSummaryAlreadyExists() {
+        summaryDao.saveAndFlush(new ItemBookingSummary(item.getId(), null, null, null));
+
+        assertEquals(0, summaryDao.insertMissing(List.of(item.getId())));
+    }
+
+    @Test
+    void findSummariesShouldComputeSummaryThatWasNeverCalculated() {
+        updater.track(List.of(item.getId()));
+
+        ItemBookingSummary result = updater.findSummaries(List.of(item.getId()), NOW).get(item.getId());
+
+        assertEquals(lastBooking.getId(), result.getLastBookingId());
+        assertEquals(nextBooking.getId(), result.getNextBookingId());
+    }
+
+    @Test
+    void refreshAllShouldDropReferenceToDeletedBooking() {
+        LocalDateTime now = LocalDateTime.now();
+        Booking earlier = book(now.minusDays(5), now.minusDays(4), Status.APPROVED);
+        Booking latest = book(now.minusDays(3), now.minusDays(2), Status.APPROVED);
+        updater.track(List.of(item.getId()));
+        updater.refresh(item.getId());
+        assertEquals(latest.getId(), summaryDao.findById(item.getId()).orElseThrow().getLastBookingId());
+        assertEquals(List.of(item.getId()), List.copyOf(updater.findItemIdsBookedBy(booker.getId())));
+
+        bookingDao.deleteById(latest.getId());
+        updater.refreshAll(updater.findItemIdsBookedBy(booker.getId()));
+
+        assertEquals(earlier.getId(), summaryDao.findById(item.getId()).orElseThrow().getLastBookingId());
+    }
+
+    @Test
+    void forgetShouldDeleteSummary() {
+        updater.track(List.of(item.getId()));
+
+        updater.forget(item.getId());
+
+        assertFalse(summaryDao.existsById(item.getId()));
+    }
+
+    private Booking book(LocalDateTime start, LocalDateTime end, Status status) {
+        return bookingDao.save(new Booking(null, start, end, item, booker, status));
+    }
+}
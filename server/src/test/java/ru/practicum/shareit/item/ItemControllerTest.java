@@ -8,14 +8,21 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.exception.ForbiddenException;
+import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.controller.ItemController;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWhitBooking;
 import ru.practicum.shareit.item.dto.ItemDtoWhitComments;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.request.dto.RequestMatchDto;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -30,6 +37,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ItemController.class)
+@Import(ItemViewCache.class)
 class ItemControllerTest {
 
     @Autowired
@@ -54,9 +62,9 @@ class ItemControllerTest {
 
         itemDto = new ItemDto(1L, "Item", "Description", true, null);
         itemDtoWhitBooking = new ItemDtoWhitBooking(1L, "Item", "Description",
-                true, null, null, Collections.emptyList());
+                true, null, null, Collections.emptyList(), 0);
         itemDtoWhitComments = new ItemDtoWhitComments(1L, "Item", "Description",
-                true, null, null, Collections.emptyList());
+                true, null, null, Collections.emptyList(), 0);
         commentDto = new CommentDto(1L, "Great item!", "Booker",
                 LocalDateTime.parse("2025-03-11T12:00:00", DATE_TIME_FORMATTER));
     }
@@ -99,6 +107,32 @@ class ItemControllerTest {
         verify(itemService, times(1)).updateItem(eq(update), eq(1L), eq(1L));
     }
 
+    @Test
+    void updateItemShouldReturnForbiddenWhenNotOwner() throws Exception {
+        Map<String, String> update = Map.of("name", "Updated Item");
+        when(itemService.updateItem(eq(update), eq(1L), eq(2L)))
+                .thenThrow(new ForbiddenException("Описание вещи может менять только владелец веши!"));
+
+        mockMvc.perform(patch("/items/1")
+                        .header("X-Sharer-User-Id", 2L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.error", is("Описание вещи может менять только владелец веши!")));
+    }
+
+    @Test
+    void getItemAvailabilityShouldReturnBadRequestWhenPeriodIsInvalid() throws Exception {
+        when(itemService.getItemAvailability(eq(1L), any(), any()))
+                .thenThrow(new ValidationException("Начало периода должно быть раньше его окончания."));
+
+        mockMvc.perform(get("/items/1/availability")
+                        .param("from", "2030-01-02T00:00:00")
+                        .param("to", "2030-01-01T00:00:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Начало периода должно быть раньше его окончания.")));
+    }
+
     @Test
     void getItemShouldReturnItemDtoWhitComments() throws Exception {
         when(itemService.getItem(1L)).thenReturn(itemDtoWhitComments);
@@ -112,6 +146,9 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$.lastBooking").doesNotExist())
                 .andExpect(jsonPath("$.nextBooking").doesNotExist())
                 .andExpect(jsonPath("$.comments", hasSize(0)));
+        mockMvc.perform(get("/items/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Item")));
 
         verify(itemService, times(1)).getItem(1L);
     }
@@ -179,4 +216,84 @@ class ItemControllerTest {
         verify(itemService,
                 times(1)).createComment(any(CommentDto.class), eq(1L), eq(2L));
     }
+
+    @Test
+    void createItemsShouldReturnCreatedItems() throws Exception {
+        when(itemService.createItems(anyList(), eq(1L))).thenReturn(List.of(itemDto));
+
+        mockMvc.perform(post("/items/batch")
+                        .header("X-Sharer-User-Id", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(itemDto))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[0].name", is("Item")));
+
+        verify(itemService, times(1)).createItems(anyList(), eq(1L));
+    }
+
+    @Test
+    void searchAvailableItemsShouldPassWindowToService() throws Exception {
+        LocalDateTime from = LocalDateTime.parse("2030-01-01T10:00:00");
+        LocalDateTime to = LocalDateTime.parse("2030-01-02T10:00:00");
+        when(itemService.searchAvailableItems("drill", from, to)).thenReturn(List.of(itemDto));
+
+        mockMvc.perform(get("/items/search/available")
+                        .param("text", "drill")
+                        .param("from", "2030-01-01T10:00:00")
+                        .param("to", "2030-01-02T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(1)));
+
+        verify(itemService, times(1)).searchAvailableItems("drill", from, to);
+    }
+
+    @Test
+    void getItemAvailabilityShouldReturnSlots() throws Exception {
+        LocalDateTime from = LocalDateTime.parse("2030-01-01T10:00:00");
+        LocalDateTime to = LocalDateTime.parse("2030-01-02T10:00:00");
+        ItemAvailabilityDto availability = new ItemAvailabilityDto(1L, from, to,
+                Collections.emptyList(), List.of(new TimeSlotDto(from, to)));
+        when(itemService.getItemAvailability(1L, from, to)).thenReturn(availability);
+
+        mockMvc.perform(get("/items/1/availability")
+                        .param("from", "2030-01-01T10:00:00")
+                        .param("to", "2030-01-02T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itemId", is(1)))
+                .andExpect(jsonPath("$.busy", hasSize(0)))
+                .andExpect(jsonPath("$.free", hasSize(1)));
+
+        verify(itemService, times(1)).getItemAvailability(1L, from, to);
+    }
+
+    @Test
+    void getMatchingRequestsShouldReturnScoredRequests() throws Exception {
+        when(itemService.getMatchingRequests(1L, 20))
+                .thenReturn(List.of(new RequestMatchDto(5L, "Need item", null, 0.5)));
+
+        mockMvc.perform(get("/items/1/matching-requests"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(5)))
+                .andExpect(jsonPath("$[0].score", is(0.5)));
+
+        verify(itemService, times(1)).getMatchingRequests(1L, 20);
+    }
+
+    @Test
+    void getCommentsShouldPassCursor() throws Exception {
+        LocalDateTime before = LocalDateTime.parse("2025-03-11T12:00:00");
+        when(itemService.getComments(1L, before, 7L, 5)).thenReturn(List.of(commentDto));
+
+        mockMvc.perform(get("/items/1/comments")
+                        .param("before", "2025-03-11T12:00:00")
+                        .param("beforeId", "7")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(1)));
+
+        verify(itemService, times(1)).getComments(1L, before, 7L, 5);
+    }
 }
@@ -4,8 +4,18 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.event.dto.ItemEventPayload;
+import ru.practicum.shareit.item.dao.CommentDao;
 import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.dto.CommentCount;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemDtoForRequest;
+import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dao.ItemRequestDao;
 import ru.practicum.shareit.request.model.ItemRequest;
@@ -13,13 +23,16 @@ import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
 @ActiveProfiles("test")
+@Import(EntityCacheConfig.class)
 class ItemDaoTest {
 
     @Autowired
@@ -31,6 +44,12 @@ class ItemDaoTest {
     @Autowired
     private ItemRequestDao itemRequestDao;
 
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
     private User owner;
     private User requester;
     private ItemRequest request;
@@ -52,16 +71,17 @@ class ItemDaoTest {
 
     @Test
     void findByNameContainingOrDescriptionContainingShouldReturnItemsWhenTextMatches() {
-        Collection<Item> result = itemDao.findByNameContainingOrDescriptionContaining("item");
+        Collection<ItemDto> result = itemDao.findByNameContainingOrDescriptionContaining("item");
 
         assertEquals(2, result.size());
-        assertTrue(result.stream().anyMatch(item -> item.getName().equals("Item1")));
-        assertTrue(result.stream().anyMatch(item -> item.getName().equals("Item2")));
+        assertTrue(result.stream().anyMatch(item -> item.getName().equals("Item1") && item.getRequestId() == null));
+        assertTrue(result.stream().anyMatch(item -> item.getName().equals("Item2")
+                && request.getId().equals(item.getRequestId())));
     }
 
     @Test
     void findByNameContainingOrDescriptionContainingShouldReturnEmptyListWhenNoMatch() {
-        Collection<Item> result = itemDao.findByNameContainingOrDescriptionContaining("xyz");
+        Collection<ItemDto> result = itemDao.findByNameContainingOrDescriptionContaining("xyz");
 
         assertTrue(result.isEmpty());
     }
@@ -71,10 +91,10 @@ class ItemDaoTest {
         Item unavailableItem = itemDao.save(new Item(null, "Item3",
                 "Description3", false, owner, null));
 
-        Collection<Item> result = itemDao.findByNameContainingOrDescriptionContaining("item");
+        Collection<ItemDto> result = itemDao.findByNameContainingOrDescriptionContaining("item");
 
         assertEquals(2, result.size());
-        assertTrue(result.stream().allMatch(Item::isAvailable));
+        assertTrue(result.stream().allMatch(ItemDto::getAvailable));
     }
 
     @Test
@@ -96,34 +116,36 @@ class ItemDaoTest {
 
     @Test
     void findAllItemsByItemRequestIdShouldReturnItems_WhenRequestExists() {
-        Collection<Item> result = itemDao.findAllItemsByItemRequestId(request.getId());
+        Collection<ItemDtoForRequest> result = itemDao.findAllItemsByItemRequestId(request.getId());
 
         assertEquals(1, result.size());
         assertEquals("Item2", result.iterator().next().getName());
+        assertEquals(owner.getId(), result.iterator().next().getOwnerId());
     }
 
     @Test
     void findAllItemsByItemRequestIdShouldReturnEmptyListWhenNoItemsForRequest() {
         ItemRequest otherRequest = itemRequestDao.save(new ItemRequest(null,
                 "Other Request", requester, LocalDateTime.now()));
-        Collection<Item> result = itemDao.findAllItemsByItemRequestId(otherRequest.getId());
+        Collection<ItemDtoForRequest> result = itemDao.findAllItemsByItemRequestId(otherRequest.getId());
 
         assertTrue(result.isEmpty());
     }
 
     @Test
     void findAllItemsByItemsRequestIdsShouldReturnItems_WhenRequestsExist() {
-        Collection<Item> result = itemDao.findAllItemsByItemsRequestIds(List.of(request.getId()));
+        Collection<ItemDtoForRequest> result = itemDao.findAllItemsByItemsRequestIds(List.of(request.getId()));
 
         assertEquals(1, result.size());
         assertEquals("Item2", result.iterator().next().getName());
+        assertEquals(request.getId(), result.iterator().next().getRequestId());
     }
 
     @Test
     void findAllItemsByItemsRequestIdsShouldReturnEmptyListWhenNoItemsForRequests() {
         ItemRequest otherRequest = itemRequestDao.save(new ItemRequest(null,
                 "Other Request", requester, LocalDateTime.now()));
-        Collection<Item> result = itemDao.findAllItemsByItemsRequestIds(List.of(otherRequest.getId()));
+        Collection<ItemDtoForRequest> result = itemDao.findAllItemsByItemsRequestIds(List.of(otherRequest.getId()));
 
         assertTrue(result.isEmpty());
     }
@@ -135,10 +157,87 @@ class ItemDaoTest {
         Item item3 = itemDao.save(new Item(null, "Item3",
                 "Description3", true, owner, request2));
 
-        Collection<Item> result = itemDao.findAllItemsByItemsRequestIds(List.of(request.getId(), request2.getId()));
+        Collection<ItemDtoForRequest> result = itemDao.findAllItemsByItemsRequestIds(List.of(request.getId(),
+                request2.getId()));
 
         assertEquals(2, result.size());
         assertTrue(result.stream().anyMatch(item -> item.getName().equals("Item2")));
         assertTrue(result.stream().anyMatch(item -> item.getName().equals("Item3")));
     }
+
+    @Test
+    void findAllItemsByRequesterIdShouldReturnItemsAnsweringRequestsOfRequester() {
+        Collection<ItemDtoForRequest> result = itemDao.findAllItemsByRequesterId(requester.getId());
+
+        assertEquals(1, result.size());
+        assertEquals(item2.getId(), result.iterator().next().getId());
+        assertEquals(request.getId(), result.iterator().next().getRequestId());
+        assertTrue(itemDao.findAllItemsByRequesterId(owner.getId()).isEmpty());
+    }
+
+    @Test
+    void updateOwnedColumnsShouldUpdateItemOfOwner() {
+        entityManager.flush();
+        entityManager.clear();
+
+        Item result = itemDao.updateOwnedColumns(item1.getId(), owner.getId(),
+                Map.of("description", "Updated", "available", false)).orElseThrow();
+
+        assertEquals("Item1", result.getName());
+        assertEquals("Updated", result.getDescription());
+        assertFalse(result.isAvailable());
+        assertEquals(owner.getId(), result.getOwner().getId());
+    }
+
+    @Test
+    void updateOwnedColumnsShouldNotTouchItemOfAnotherOwner() {
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(itemDao.updateOwnedColumns(item1.getId(), requester.getId(), Map.of("name", "Stolen")).isEmpty());
+        entityManager.clear();
+        assertEquals("Item1", itemDao.findById(item1.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void findEventPayloadsAfterShouldPageByIdAndKeepItemsWithoutRequest() {
+        List<ItemEventPayload> first = itemDao.findEventPayloadsAfter(0L, PageRequest.of(0, 1));
+        List<ItemEventPayload> second = itemDao.findEventPayloadsAfter(first.getFirst().getItemId(),
+                PageRequest.of(0, 10));
+
+        assertEquals(item1.getId(), first.getFirst().getItemId());
+        assertNull(first.getFirst().getRequestId());
+        assertEquals(owner.getId(), first.getFirst().getOwnerId());
+        assertEquals(List.of(item2.getId()), second.stream().map(ItemEventPayload::getItemId).toList());
+        assertEquals(request.getId(), second.getFirst().getRequestId());
+    }
+
+    @Test
+    void commentQueriesShouldReturnLatestCommentsAndPageByCursor() {
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 12, 0);
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            comments.add(commentDao.save(new Comment(null, "Comment " + i, item1, requester, base.plusHours(i))));
+        }
+        Comment tie = commentDao.save(new Comment(null, "Tie", item1, requester, base.plusHours(4)));
+        commentDao.save(new Comment(null, "Other", item2, requester, base));
+
+        List<Comment> latest = commentDao.findLatestByItemId(item1.getId(), PageRequest.of(0, 3));
+        assertEquals(List.of(tie.getId(), comments.get(4).getId(), comments.get(3).getId()),
+                latest.stream().map(Comment::getId).toList());
+
+        Comment last = latest.getLast();
+        List<Comment> next = commentDao.findByItemIdBefore(item1.getId(), last.getCreated(), last.getId(),
+                PageRequest.of(0, 3));
+        assertEquals(List.of(comments.get(2).getId(), comments.get(1).getId(), comments.get(0).getId()),
+                next.stream().map(Comment::getId).toList());
+
+        List<Long> latestIds = commentDao.findLatestIdsByItemIds(List.of(item1.getId(), item2.getId()), 2);
+        assertEquals(3, latestIds.size());
+        assertTrue(latestIds.containsAll(List.of(tie.getId(), comments.get(4).getId())));
+
+        assertEquals(6, commentDao.countByItemId(item1.getId()));
+        assertEquals(List.of(6L), commentDao.countByItemIds(List.of(item1.getId())).stream()
+                .map(CommentCount::getCount).toList());
+    }
 }
@@ -71,9 +71,10 @@ class ItemMapperTest {
 
     @Test
     void toItemDtoWhitBookingShouldMapWithBookingsAndComments() {
-        ItemDtoWhitBooking result = ItemMapper.toItemDtoWhitBooking(item, lastBooking, nextBooking, List.of(comment));
+        ItemDtoWhitBooking result = ItemMapper.toItemDtoWhitBooking(item, lastBooking, nextBooking, List.of(comment), 3);
 
         assertEquals(item.getId(), result.getId());
+        assertEquals(3, result.getCommentsCount());
         assertEquals(item.getName(), result.getName());
         assertEquals(item.getDescription(), result.getDescription());
         assertEquals(item.isAvailable(), result.getAvailable());
@@ -103,7 +104,7 @@ class ItemMapperTest {
     @Test
     void toItemDtoWhitBookingShouldMapWithoutBookings() {
         ItemDtoWhitBooking result = ItemMapper.toItemDtoWhitBooking(item, null,
-                null, Collections.emptyList());
+                null, Collections.emptyList(), 0);
 
         assertEquals(item.getId(), result.getId());
         assertEquals(item.getName(), result.getName());
@@ -142,9 +143,10 @@ class ItemMapperTest {
 
     @Test
     void toItemDtoWhitCommentsShouldMapWithComments() {
-        ItemDtoWhitComments result = ItemMapper.toItemDtoWhitComments(item, List.of(comment));
+        ItemDtoWhitComments result = ItemMapper.toItemDtoWhitComments(item, List.of(comment), 3);
 
         assertEquals(item.getId(), result.getId());
+        assertEquals(3, result.getCommentsCount());
         assertEquals(item.getName(), result.getName());
         assertEquals(item.getDescription(), result.getDescription());
         assertEquals(item.isAvailable(), result.getAvailable());
@@ -160,7 +162,7 @@ class ItemMapperTest {
 
     @Test
     void toItemDtoWhitCommentsShouldMapWithoutComments() {
-        ItemDtoWhitComments result = ItemMapper.toItemDtoWhitComments(item, Collections.emptyList());
+        ItemDtoWhitComments result = ItemMapper.toItemDtoWhitComments(item, Collections.emptyList(), 0);
 
         assertEquals(item.getId(), result.getId());
         assertEquals(item.getName(), result.getName());
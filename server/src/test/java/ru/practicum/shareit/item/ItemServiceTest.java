@@ -5,28 +5,50 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.BookingInterval;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.common.ParallelQueries;
 import ru.practicum.shareit.item.dao.CommentDao;
+import ru.practicum.shareit.item.dto.CommentCount;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.event.dto.BookingEventPayload;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.exception.ForbiddenException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dao.ItemDao;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWhitBooking;
 import ru.practicum.shareit.item.dto.ItemDtoWhitComments;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
 import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.item.service.ItemViewCache;
 import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.dto.RequestMatchDto;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -49,6 +71,24 @@ class ItemServiceTest {
     @Mock
     private ItemRequestDao itemRequestDao;
 
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Mock
+    private ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private ItemRequestMatcher itemRequestMatcher;
+
+    @Mock
+    private ItemViewCache itemViewCache;
+
+    @Spy
+    private ParallelQueries parallelQueries = new ParallelQueries(mock(PlatformTransactionManager.class), true);
+
     @InjectMocks
     private ItemServiceImpl itemService;
 
@@ -74,7 +114,7 @@ class ItemServiceTest {
     @Test
     void getItemShouldReturnItemDtoWhitComments() {
         when(itemDao.findById(1L)).thenReturn(Optional.of(item));
-        when(commentDao.findAllCommentsByItemId(1L)).thenReturn(List.of(comment));
+        when(commentDao.findLatestByItemId(eq(1L), any(Pageable.class))).thenReturn(List.of(comment));
 
         ItemDtoWhitComments result = itemService.getItem(1L);
 
@@ -88,8 +128,22 @@ class ItemServiceTest {
         assertEquals(1, result.getComments().size());
         assertEquals(comment.getText(), result.getComments().iterator().next().getText());
         assertEquals(booker.getName(), result.getComments().iterator().next().getAuthorName());
+        assertEquals(1, result.getCommentsCount());
         verify(itemDao, times(1)).findById(1L);
-        verify(commentDao, times(1)).findAllCommentsByItemId(1L);
+        verify(commentDao, never()).countByItemId(anyLong());
+    }
+
+    @Test
+    void getItemShouldEmbedLatestCommentsAndCountTheRest() {
+        List<Comment> latest = Collections.nCopies(10, comment);
+        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+        when(commentDao.findLatestByItemId(1L, PageRequest.of(0, 10))).thenReturn(latest);
+        when(commentDao.countByItemId(1L)).thenReturn(250L);
+
+        ItemDtoWhitComments result = itemService.getItem(1L);
+
+        assertEquals(10, result.getComments().size());
+        assertEquals(250L, result.getCommentsCount());
     }
 
     @Test
@@ -104,9 +158,11 @@ class ItemServiceTest {
     void getAllOwnerItemsShouldReturnListWhenItemsExist() {
         when(userDao.findById(1L)).thenReturn(Optional.of(owner));
         when(itemDao.findByOwnerId(1L)).thenReturn(List.of(item));
-        when(bookingDao.findAllRelevantApprovedOwnerItemsBookingsById(anyList(), any(LocalDateTime.class)))
-                .thenReturn(List.of(pastBooking, futureBooking));
-        when(commentDao.findAllCommentsForAllItemsById(anyList())).thenReturn(List.of(comment));
+        when(itemBookingSummaryUpdater.findSummaries(eq(List.of(1L)), any(LocalDateTime.class)))
+                .thenReturn(Map.of(1L, new ItemBookingSummary(1L, 1L, 2L, futureBooking.getStart())));
+        when(bookingDao.findAllWithItemAndBookerByIdIn(Set.of(1L, 2L))).thenReturn(List.of(pastBooking, futureBooking));
+        when(commentDao.findLatestIdsByItemIds(List.of(1L), 10)).thenReturn(List.of(1L));
+        when(commentDao.findAllWithAuthorByIdIn(List.of(1L))).thenReturn(List.of(comment));
 
         List<ItemDtoWhitBooking> result = itemService.getAllOwnerItems(1L);
 
@@ -130,7 +186,50 @@ class ItemServiceTest {
 
         assertTrue(result.isEmpty());
         verify(itemDao, times(1)).findByOwnerId(1L);
-        verify(bookingDao, never()).findAllRelevantApprovedOwnerItemsBookingsById(anyList(), any());
+        verify(itemBookingSummaryUpdater, never()).findSummaries(anyList(), any());
+    }
+
+    @Test
+    void getAllOwnerItemsShouldSkipBookingsQueryWhenNoBookings() {
+        when(userDao.findById(1L)).thenReturn(Optional.of(owner));
+        when(itemDao.findByOwnerId(1L)).thenReturn(List.of(item));
+        when(itemBookingSummaryUpdater.findSummaries(eq(List.of(1L)), any(LocalDateTime.class)))
+                .thenReturn(Map.of(1L, new ItemBookingSummary(1L, null, null, null)));
+
+        List<ItemDtoWhitBooking> result = itemService.getAllOwnerItems(1L);
+
+        assertNull(result.getFirst().getLastBooking());
+        assertNull(result.getFirst().getNextBooking());
+        verify(bookingDao, never()).findAllWithItemAndBookerByIdIn(any());
+    }
+
+    @Test
+    void getAllOwnerItemsShouldLoadSummariesAndCommentsConcurrently() {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        when(userDao.findById(1L)).thenReturn(Optional.of(owner));
+        when(itemDao.findByOwnerId(1L)).thenReturn(List.of(item));
+        when(itemBookingSummaryUpdater.findSummaries(eq(List.of(1L)), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    barrier.await(5, TimeUnit.SECONDS);
+                    return Map.of(1L, new ItemBookingSummary(1L, null, null, null));
+                });
+        when(commentDao.findLatestIdsByItemIds(List.of(1L), 10)).thenAnswer(invocation -> {
+            barrier.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        List<ItemDtoWhitBooking> result = itemService.getAllOwnerItems(1L);
+
+        assertEquals(1, result.size());
+        assertEquals(0, result.getFirst().getCommentsCount());
+    }
+
+    @Test
+    void getAllOwnerItemsShouldThrowNotFoundExceptionWhenOwnerDoesNotExist() {
+        when(userDao.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> itemService.getAllOwnerItems(1L));
+        verify(itemBookingSummaryUpdater, never()).findSummaries(anyList(), any());
     }
 
     @Test
@@ -148,6 +247,8 @@ class ItemServiceTest {
         assertEquals(item.isAvailable(), result.getAvailable());
         assertNull(result.getRequestId());
         verify(itemDao, times(1)).save(any(Item.class));
+        verify(itemBookingSummaryUpdater).track(List.of(1L));
+        verify(outboxPublisher).publish(eq(EventType.ITEM_CREATED), eq(1L), any());
     }
 
     @Test
@@ -172,18 +273,25 @@ class ItemServiceTest {
     void deleteItemShouldDeleteWhenOwner() {
         when(userDao.findById(1L)).thenReturn(Optional.of(owner));
         when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+        BookingEventPayload booking = new BookingEventPayload(7L, 1L, 1L, 2L, null, null, Status.WAITING);
+        when(bookingDao.findEventPayloadsByItemId(1L)).thenReturn(List.of(booking));
 
         itemService.deleteItem(1L, 1L);
 
+        verify(outboxPublisher).publish(EventType.BOOKING_DELETED, 7L, booking);
         verify(itemDao, times(1)).deleteById(1L);
+        verify(bookingIntervalIndex, times(1)).evict(1L);
+        verify(itemViewCache).evict(1L);
+        verify(itemRequestMatcher).evictItem(1L);
+        verify(outboxPublisher, times(1)).publish(eq(EventType.ITEM_DELETED), eq(1L), any());
     }
 
     @Test
-    void deleteItemShouldThrowValidationExceptionWhenNotOwner() {
+    void deleteItemShouldThrowForbiddenExceptionWhenNotOwner() {
         when(userDao.findById(2L)).thenReturn(Optional.of(booker));
         when(itemDao.findById(1L)).thenReturn(Optional.of(item));
 
-        ValidationException exception = assertThrows(ValidationException.class,
+        ForbiddenException exception = assertThrows(ForbiddenException.class,
                 () -> itemService.deleteItem(1L, 2L));
         assertEquals("Только владелец вещи может удалить вещь", exception.getMessage());
     }
@@ -195,34 +303,60 @@ class ItemServiceTest {
         update.put("description", "New Desc");
         update.put("available", "false");
         Item updatedItem = new Item(1L, "New Name", "New Desc", false, owner, null);
-        when(userDao.findById(1L)).thenReturn(Optional.of(owner));
-        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
-        when(itemDao.save(any(Item.class))).thenReturn(updatedItem);
+        when(itemDao.updateOwnedColumns(1L, 1L, Map.of("name", "New Name", "description", "New Desc",
+                "available", false))).thenReturn(Optional.of(updatedItem));
 
         ItemDto result = itemService.updateItem(update, 1L, 1L);
 
         assertEquals("New Name", result.getName());
         assertEquals("New Desc", result.getDescription());
         assertFalse(result.getAvailable());
-        verify(itemDao, times(1)).save(any(Item.class));
+        verify(itemDao, never()).findById(anyLong());
+        verify(itemDao, never()).save(any(Item.class));
+        verify(outboxPublisher).publish(eq(EventType.ITEM_UPDATED), eq(1L), any());
+        verify(itemViewCache).evict(1L);
     }
 
     @Test
     void updateItemShouldThrowValidationExceptionWhenBlankName() {
         Map<String, String> update = new HashMap<>();
         update.put("name", "");
-        when(userDao.findById(1L)).thenReturn(Optional.of(owner));
-        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
 
         ValidationException exception = assertThrows(ValidationException.class,
                 () -> itemService.updateItem(update, 1L, 1L));
         assertEquals("В запросе на обновление названия вещи была передана пустая строчка.",
                 exception.getMessage());
+        verify(itemDao, never()).updateOwnedColumns(anyLong(), anyLong(), anyMap());
+    }
+
+    @Test
+    void updateItemShouldThrowForbiddenExceptionWhenNotOwner() {
+        Map<String, String> update = Map.of("name", "New Name");
+        when(itemDao.updateOwnedColumns(1L, 2L, Map.of("name", "New Name"))).thenReturn(Optional.empty());
+        when(userDao.findById(2L)).thenReturn(Optional.of(booker));
+        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+
+        ForbiddenException exception = assertThrows(ForbiddenException.class,
+                () -> itemService.updateItem(update, 1L, 2L));
+        assertEquals("Описание вещи может менять только владелец веши!", exception.getMessage());
+        verify(outboxPublisher, never()).publish(any(), anyLong(), any());
+        verify(itemViewCache, never()).evict(anyLong());
+    }
+
+    @Test
+    void updateItemShouldThrowNotFoundExceptionWhenItemDoesNotExist() {
+        Map<String, String> update = Map.of("name", "New Name");
+        when(itemDao.updateOwnedColumns(1L, 1L, Map.of("name", "New Name"))).thenReturn(Optional.empty());
+        when(userDao.findById(1L)).thenReturn(Optional.of(owner));
+        when(itemDao.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> itemService.updateItem(update, 1L, 1L));
     }
 
     @Test
     void searchItemsShouldReturnItemsWhenTextValid() {
-        when(itemDao.findByNameContainingOrDescriptionContaining("item")).thenReturn(List.of(item));
+        when(itemDao.findByNameContainingOrDescriptionContaining("item"))
+                .thenReturn(List.of(ItemMapper.toItemDto(item)));
 
         List<ItemDto> result = itemService.searchItems("item");
 
@@ -246,6 +380,7 @@ class ItemServiceTest {
         assertEquals(comment.getText(), result.getText());
         assertEquals(booker.getName(), result.getAuthorName());
         verify(commentDao, times(1)).save(any(Comment.class));
+        verify(itemViewCache).evict(1L);
     }
 
     @Test
@@ -273,4 +408,172 @@ class ItemServiceTest {
                 () -> itemService.createComment(commentDto, 1L, 2L));
         assertEquals("Бронь не найден", exception.getMessage());
     }
+
+    @Test
+    void createItemsShouldLoadRequestsOnceAndSaveAll() {
+        ItemRequest request = new ItemRequest(1L, "Request", booker, LocalDateTime.now());
+        List<ItemDto> itemDtos = List.of(new ItemDto(null, "Item1", "Description1", true, 1L),
+                new ItemDto(null, "Item2", "Description2", true, null));
+        when(userDao.findById(1L)).thenReturn(Optional.of(owner));
+        when(itemRequestDao.findAllById(Set.of(1L))).thenReturn(List.of(request));
+        when(itemDao.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<ItemDto> result = itemService.createItems(itemDtos, 1L);
+
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getRequestId());
+        assertNull(result.get(1).getRequestId());
+        verify(itemRequestDao, never()).findById(anyLong());
+        verify(itemDao, never()).save(any(Item.class));
+    }
+
+    @Test
+    void createItemsShouldThrowNotFoundExceptionWhenRequestMissing() {
+        List<ItemDto> itemDtos = List.of(new ItemDto(null, "Item1", "Description1", true, 5L));
+        when(userDao.findById(1L)).thenReturn(Optional.of(owner));
+        when(itemRequestDao.findAllById(Set.of(5L))).thenReturn(Collections.emptyList());
+
+        NotFoundException exception = assertThrows(NotFoundException.class,
+                () -> itemService.createItems(itemDtos, 1L));
+        assertEquals("Запросы с id [5] не найдены.", exception.getMessage());
+        verify(itemDao, never()).saveAll(anyList());
+    }
+
+    @Test
+    void searchAvailableItemsShouldSkipBusyItems() {
+        LocalDateTime from = LocalDateTime.now().plusDays(1);
+        LocalDateTime to = from.plusDays(1);
+        ItemDto free = new ItemDto(1L, "Drill", "Drill", true, null);
+        ItemDto busy = new ItemDto(2L, "Drill 2", "Drill", true, null);
+        when(itemDao.findByNameContainingOrDescriptionContaining("drill")).thenReturn(List.of(free, busy));
+        when(bookingIntervalIndex.findBusyItems(List.of(1L, 2L), from, to)).thenReturn(Set.of(2L));
+
+        List<ItemDto> result = itemService.searchAvailableItems("drill", from, to);
+
+        assertEquals(List.of(free), result);
+    }
+
+    @Test
+    void searchAvailableItemsShouldThrowValidationExceptionWhenWindowInverted() {
+        LocalDateTime from = LocalDateTime.now().plusDays(2);
+
+        assertThrows(ValidationException.class,
+                () -> itemService.searchAvailableItems("drill", from, from.minusDays(1)));
+        verify(itemDao, never()).findByNameContainingOrDescriptionContaining(any());
+    }
+
+    @Test
+    void getItemAvailabilityShouldMergeBusyIntervalsAndReturnGaps() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(10);
+        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+        when(bookingIntervalIndex.findBusyIntervals(1L, from, to)).thenReturn(List.of(
+                new BookingInterval(1L, 1L, from.minusDays(1), from.plusDays(1)),
+                new BookingInterval(2L, 1L, from.plusDays(1), from.plusDays(2)),
+                new BookingInterval(3L, 1L, from.plusDays(5), to.plusDays(1))));
+
+        ItemAvailabilityDto result = itemService.getItemAvailability(1L, from, to);
+
+        assertEquals(List.of(new TimeSlotDto(from, from.plusDays(2)), new TimeSlotDto(from.plusDays(5), to)),
+                result.getBusy());
+        assertEquals(List.of(new TimeSlotDto(from.plusDays(2), from.plusDays(5))), result.getFree());
+    }
+
+    @Test
+    void getItemAvailabilityShouldReturnWholeWindowWhenNoBookings() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(1);
+        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+        when(bookingIntervalIndex.findBusyIntervals(1L, from, to)).thenReturn(Collections.emptyList());
+
+        ItemAvailabilityDto result = itemService.getItemAvailability(1L, from, to);
+
+        assertTrue(result.getBusy().isEmpty());
+        assertEquals(List.of(new TimeSlotDto(from, to)), result.getFree());
+    }
+
+    @Test
+    void getItemsShouldReturnFoundItemsInRequestOrder() {
+        Item other = new Item(3L, "Other", "Description", true, owner, null);
+        when(itemDao.findAllById(List.of(3L, 2L, 1L, 3L))).thenReturn(List.of(item, other));
+        when(commentDao.findLatestIdsByItemIds(Set.of(1L, 3L), 10)).thenReturn(List.of(1L));
+        when(commentDao.findAllWithAuthorByIdIn(List.of(1L))).thenReturn(List.of(comment));
+
+        List<ItemDtoWhitComments> result = itemService.getItems(List.of(3L, 2L, 1L, 3L));
+
+        assertEquals(List.of(3L, 1L), result.stream().map(ItemDtoWhitComments::getId).toList());
+        assertTrue(result.get(0).getComments().isEmpty());
+        assertEquals(0, result.get(0).getCommentsCount());
+        assertEquals(1, result.get(1).getComments().size());
+        assertEquals(1, result.get(1).getCommentsCount());
+        verify(commentDao, never()).countByItemIds(any());
+    }
+
+    @Test
+    void getItemsShouldSkipCommentsQueryWhenNothingFound() {
+        when(itemDao.findAllById(List.of(5L))).thenReturn(List.of());
+
+        assertTrue(itemService.getItems(List.of(5L)).isEmpty());
+        verify(commentDao, never()).findLatestIdsByItemIds(any(), anyInt());
+    }
+
+    @Test
+    void getMatchingRequestsShouldReturnScoredRequestsInMatcherOrder() {
+        ItemRequest first = new ItemRequest(5L, "Need item", booker, LocalDateTime.now());
+        ItemRequest second = new ItemRequest(6L, "Need item too", booker, LocalDateTime.now());
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        scores.put(6L, 0.8);
+        scores.put(5L, 0.4);
+        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+        when(itemRequestMatcher.matchRequests(1L, 10)).thenReturn(scores);
+        when(itemRequestDao.findAllById(scores.keySet())).thenReturn(List.of(first, second));
+
+        List<RequestMatchDto> result = itemService.getMatchingRequests(1L, 10);
+
+        assertEquals(List.of(6L, 5L), result.stream().map(RequestMatchDto::getId).toList());
+        assertEquals(0.4, result.getLast().getScore());
+    }
+
+    @Test
+    void getItemsShouldCountOnlyItemsWithTruncatedComments() {
+        Item other = new Item(3L, "Other", "Description", true, owner, null);
+        List<Long> commentIds = new ArrayList<>();
+        List<Comment> comments = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            commentIds.add(id);
+            comments.add(new Comment(id, "Comment " + id, item, booker, LocalDateTime.now().minusMinutes(id)));
+        }
+        commentIds.add(11L);
+        comments.add(new Comment(11L, "Other comment", other, booker, LocalDateTime.now()));
+        when(itemDao.findAllById(List.of(1L, 3L))).thenReturn(List.of(item, other));
+        when(commentDao.findLatestIdsByItemIds(Set.of(1L, 3L), 10)).thenReturn(commentIds);
+        when(commentDao.findAllWithAuthorByIdIn(commentIds)).thenReturn(comments);
+        when(commentDao.countByItemIds(List.of(1L))).thenReturn(List.of(new CommentCount(1L, 42L)));
+
+        List<ItemDtoWhitComments> result = itemService.getItems(List.of(1L, 3L));
+
+        assertEquals(42L, result.get(0).getCommentsCount());
+        assertEquals(10, result.get(0).getComments().size());
+        assertEquals(1L, result.get(1).getCommentsCount());
+    }
+
+    @Test
+    void getCommentsShouldContinueAfterCursor() {
+        LocalDateTime before = LocalDateTime.now();
+        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+        when(commentDao.findByItemIdBefore(1L, before, 7L, PageRequest.of(0, 5))).thenReturn(List.of(comment));
+
+        List<CommentDto> result = itemService.getComments(1L, before, 7L, 5);
+
+        assertEquals(List.of(comment.getId()), result.stream().map(CommentDto::getId).toList());
+        verify(commentDao, never()).findLatestByItemId(anyLong(), any());
+    }
+
+    @Test
+    void getCommentsShouldStartFromLatestWithoutCursor() {
+        when(itemDao.findById(1L)).thenReturn(Optional.of(item));
+        when(commentDao.findLatestByItemId(1L, PageRequest.of(0, 20))).thenReturn(List.of(comment));
+
+        assertEquals(1, itemService.getComments(1L, null, null, 20).size());
+    }
 }
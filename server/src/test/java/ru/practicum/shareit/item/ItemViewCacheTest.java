@@ -0,0 +1,80 @@
+package ru.practicum.shareit.item;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.item.dto.ItemDtoWhitComments;
+import ru.practicum.shareit.item.service.ItemViewCache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemViewCacheTest {
+
+    private ItemViewCache cache;
+    private AtomicInteger loads;
+    private Function<Long, ItemDtoWhitComments> loader;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ItemViewCache(new ObjectMapper(), DataSize.ofMegabytes(1), Duration.ofMinutes(5));
+        loads = new AtomicInteger();
+        loader = id -> new ItemDtoWhitComments(id, "Item" + loads.incrementAndGet(), "Description", true,
+                null, null, List.of(), 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getShouldRenderOnceAndServeCachedBytes() {
+        byte[] first = cache.get(1L, loader);
+        byte[] second = cache.get(1L, loader);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertTrue(new String(first, StandardCharsets.UTF_8).contains("\"name\":\"Item1\""));
+    }
+
+    @Test
+    void evictShouldWaitForCommit() {
+        cache.get(1L, loader);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.evict(1L);
+        cache.get(1L, loader);
+        assertEquals(1, loads.get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertTrue(new String(cache.get(1L, loader), StandardCharsets.UTF_8).contains("\"name\":\"Item2\""));
+    }
+
+    @Test
+    void bindToShouldExposeCacheMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+        cache.evictAll();
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "itemViews").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "itemViews").tag("result", "miss")
+                .functionCounter().count());
+    }
+}
@@ -0,0 +1,236 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.Benchmark;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.common.ParallelQueries;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.item.dao.CommentDao;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
+import ru.practicum.shareit.user.dao.UserDao;
+import ru.practicum.shareit.user.model.User;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Задержка списка вещей владельца при параллельных и последовательных чтениях. H2 в памяти отвечает без сетевой
+ * задержки, поэтому каждый запрос и коммит ждут ROUND_TRIP, как при обращении к базе на соседней машине.
+ * Под нагрузкой параллельный режим держит до двух соединений пула на запрос и тратит процессор на лишние потоки.
+ */
+@Tag(Benchmark.TAG)
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:owner-items-benchmark;DB_CLOSE_DELAY=-1",
+        "logging.level.ru.practicum.shareit.item=WARN",
+        "logging.level.org.springframework.orm.jpa=WARN",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN",
+        "logging.level.org.springframework.transaction=WARN",
+        "logging.level.org.springframework.transaction.interceptor=WARN",
+        "spring.jpa.properties.hibernate.generate_statistics=false"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({EntityCacheConfig.class, ItemBookingSummaryUpdater.class, OwnerItemsBenchmarkTest.LatencyConfig.class})
+class OwnerItemsBenchmarkTest {
+
+    private static final long ROUND_TRIP_MICROS = 1000;
+    private static final int ITEMS = 100;
+    private static final String PARALLEL = "getAllOwnerItems: параллельные чтения";
+    private static final String SEQUENTIAL = "getAllOwnerItems: последовательные чтения";
+
+    // До заполнения базы задержка выключена, иначе подготовка данных заняла бы больше самого замера.
+    private static volatile boolean latencyEnabled;
+
+    @Autowired
+    private ItemDao itemDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private BookingDao bookingDao;
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private ItemRequestDao itemRequestDao;
+
+    @Autowired
+    private ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long ownerId;
+
+    @BeforeEach
+    void setUp() {
+        latencyEnabled = false;
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User owner = userDao.save(new User(null, "Owner", "owner@example.com"));
+            User booker = userDao.save(new User(null, "Booker", "booker@example.com"));
+            LocalDateTime now = LocalDateTime.now();
+            List<Item> items = new ArrayList<>();
+            List<Booking> bookings = new ArrayList<>();
+            List<Comment> comments = new ArrayList<>();
+            for (int i = 0; i < ITEMS; i++) {
+                Item item = new Item(null, "Item " + i, "Description " + i, true, owner, null);
+                items.add(item);
+                bookings.add(new Booking(null, now.minusDays(3), now.minusDays(2), item, booker, Status.APPROVED));
+                bookings.add(new Booking(null, now.plusDays(2), now.plusDays(3), item, booker, Status.APPROVED));
+                // У части вещей отзывов больше лимита последних, чтобы выполнялся и подсчёт в базе.
+                for (int j = 0; j < i % 15; j++) {
+                    comments.add(new Comment(null, "Comment " + j, item, booker, now.minusDays(1)));
+                }
+            }
+            itemDao.saveAll(items);
+            bookingDao.saveAll(bookings);
+            commentDao.saveAll(comments);
+            ownerId = owner.getId();
+        });
+        List<Long> itemIds = itemDao.findByOwnerId(ownerId).stream().map(Item::getId).toList();
+        itemBookingSummaryUpdater.track(itemIds);
+        itemBookingSummaryUpdater.refreshAll(itemIds);
+        latencyEnabled = true;
+    }
+
+    @AfterEach
+    void tearDown() {
+        latencyEnabled = false;
+        commentDao.deleteAll();
+        bookingDao.deleteAll();
+        itemDao.deleteAll();
+        userDao.deleteAll();
+    }
+
+    @Test
+    void ownerItemsLatency() throws Exception {
+        Map<String, Benchmark.Action> variants = new LinkedHashMap<>();
+        ItemService parallel = itemService(true);
+        ItemService sequential = itemService(false);
+        variants.put(PARALLEL, () -> assertEquals(ITEMS, parallel.getAllOwnerItems(ownerId).size()));
+        variants.put(SEQUENTIAL, () -> assertEquals(ITEMS, sequential.getAllOwnerItems(ownerId).size()));
+
+        Map<String, Benchmark.Result> single = Benchmark.compare(1, variants);
+        Benchmark.compare(4, variants);
+        Benchmark.compare(16, variants);
+
+        assertTrue(single.get(PARALLEL).getMeanLatencyMicros() < single.get(SEQUENTIAL).getMeanLatencyMicros());
+    }
+
+    private ItemService itemService(boolean parallel) {
+        // Обычный мок запоминает каждый вызов, а заглушки здесь и не вызываются: чтение их не использует.
+        return new ItemServiceImpl(itemDao, userDao, bookingDao, commentDao, itemRequestDao,
+                mock(BookingIntervalIndex.class, withSettings().stubOnly()), itemBookingSummaryUpdater,
+                mock(OutboxPublisher.class, withSettings().stubOnly()),
+                mock(ItemRequestMatcher.class, withSettings().stubOnly()),
+                mock(ItemViewCache.class, withSettings().stubOnly()),
+                new ParallelQueries(transactionManager, parallel));
+    }
+
+    @TestConfiguration
+    static class LatencyConfig {
+
+        @Bean
+        static BeanPostProcessor roundTripLatency() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        return result instanceof Connection connection
+                                ? proxy(Connection.class, connection, LatencyConfig::connection) : result;
+                    });
+                }
+            };
+        }
+
+        private static Object connection(Object target, Method method, Object[] args)
+                throws Throwable {
+            if (method.getName().equals("commit") || method.getName().equals("rollback")) {
+                roundTrip();
+            }
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement && method.getReturnType().isInterface()) {
+                return proxy(method.getReturnType(), result, (statement, statementMethod, statementArgs) -> {
+                    if (statementMethod.getName().startsWith("execute")) {
+                        roundTrip();
+                    }
+                    return invoke(statement, statementMethod, statementArgs);
+                });
+            }
+            return result;
+        }
+
+        private static void roundTrip() throws InterruptedException {
+            if (latencyEnabled) {
+                TimeUnit.MICROSECONDS.sleep(ROUND_TRIP_MICROS);
+            }
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args)
+                throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private static <T> T proxy(Class<T> type, Object target, TargetHandler handler) {
+            InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    invocationHandler));
+        }
+
+        private interface TargetHandler {
+            Object invoke(Object target, Method method, Object[] args) throws Throwable;
+        }
+    }
+}
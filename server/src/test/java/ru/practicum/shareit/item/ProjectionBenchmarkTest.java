@@ -0,0 +1,176 @@
+package ru.practicum.shareit.item;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.Benchmark;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.dao.UserDao;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Чтения списков в DTO через конструктор в запросе против загрузки сущностей с последующим копированием
+ * в те же DTO. Сущностные запросы повторяют те, что были в ItemDao и ItemRequestDao до перехода на проекции,
+ * и, как и прежде, выполняются в read-only транзакции.
+ */
+@Tag(Benchmark.TAG)
+@DataJpaTest(showSql = false, properties = {
+        "logging.level.org.springframework.orm.jpa=WARN",
+        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN",
+        "logging.level.org.springframework.transaction=WARN",
+        "logging.level.org.springframework.transaction.interceptor=WARN",
+        "spring.jpa.properties.hibernate.generate_statistics=false"
+})
+@ActiveProfiles("test")
+@Import(EntityCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProjectionBenchmarkTest {
+
+    private static final int REQUESTS = 200;
+    private static final int ITEMS_PER_REQUEST = 3;
+    private static final int ITEMS = 1000;
+    private static final String TEXT = "палатка";
+
+    private static final String SEARCH_ENTITIES = "SELECT i FROM Item i " +
+            "WHERE (LOWER(i.name) LIKE LOWER(CONCAT('%', :text, '%')) " +
+            "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :text, '%'))) AND i.available = TRUE";
+    private static final String OWNER_REQUESTS_ENTITIES = "SELECT r FROM ItemRequest r " +
+            "WHERE r.requestor.id = :ownerId ORDER BY r.created DESC";
+    private static final String REQUESTER_ITEMS_ENTITIES = "SELECT i FROM Item i JOIN FETCH i.owner " +
+            "WHERE i.request.requestor.id = :requesterId";
+    private static final String REQUEST_ITEMS_ENTITIES = "SELECT i FROM Item i JOIN FETCH i.owner " +
+            "WHERE i.request.id = :id";
+
+    @Autowired
+    private ItemDao itemDao;
+
+    @Autowired
+    private ItemRequestDao itemRequestDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+    private Long requesterId;
+    private Long requestId;
+
+    @BeforeEach
+    void setUp() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User owner = userDao.save(new User(null, "Owner", "owner@example.com"));
+            User requester = userDao.save(new User(null, "Requester", "requester@example.com"));
+            LocalDateTime created = LocalDateTime.now().minusDays(1);
+            List<ItemRequest> requests = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                requests.add(new ItemRequest(null, "Нужна палатка " + i, requester, created.plusMinutes(i)));
+            }
+            itemRequestDao.saveAll(requests);
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < ITEMS; i++) {
+                ItemRequest request = i < REQUESTS * ITEMS_PER_REQUEST ? requests.get(i / ITEMS_PER_REQUEST) : null;
+                items.add(new Item(null, "Палатка " + i, "Двухместная палатка " + i, true, owner, request));
+            }
+            itemDao.saveAll(items);
+            requesterId = requester.getId();
+            requestId = requests.getFirst().getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        itemDao.deleteAll();
+        itemRequestDao.deleteAll();
+        userDao.deleteAll();
+    }
+
+    @Test
+    void searchItems() throws Exception {
+        compare("searchItems", ITEMS,
+                () -> itemDao.findByNameContainingOrDescriptionContaining(TEXT).size(),
+                () -> entityManager.createQuery(SEARCH_ENTITIES, Item.class)
+                        .setParameter("text", TEXT)
+                        .getResultStream()
+                        .map(ItemMapper::toItemDto)
+                        .toList().size());
+    }
+
+    @Test
+    void getAllOwnerRequest() throws Exception {
+        compare("getAllOwnerRequest", REQUESTS + REQUESTS * ITEMS_PER_REQUEST,
+                () -> itemRequestDao.findAllOwnerRequest(requesterId).size()
+                        + itemDao.findAllItemsByRequesterId(requesterId).size(),
+                () -> entityManager.createQuery(OWNER_REQUESTS_ENTITIES, ItemRequest.class)
+                        .setParameter("ownerId", requesterId)
+                        .getResultStream()
+                        .map(ItemRequestMapper::toItemRequestDto)
+                        .toList().size()
+                        + entityManager.createQuery(REQUESTER_ITEMS_ENTITIES, Item.class)
+                        .setParameter("requesterId", requesterId)
+                        .getResultStream()
+                        .map(ItemMapper::toItemDtoForRequest)
+                        .toList().size());
+    }
+
+    @Test
+    void getItemRequest() throws Exception {
+        compare("getItemRequest", ITEMS_PER_REQUEST,
+                () -> itemDao.findAllItemsByItemRequestId(requestId).size(),
+                () -> entityManager.createQuery(REQUEST_ITEMS_ENTITIES, Item.class)
+                        .setParameter("id", requestId)
+                        .getResultStream()
+                        .map(ItemMapper::toItemDtoForRequest)
+                        .toList().size());
+    }
+
+    // Варианты возвращают число прочитанных строк: так проверяется, что оба читают одно и то же.
+    private void compare(String name, int expected, Supplier<Integer> projection, Supplier<Integer> entities)
+            throws Exception {
+        String projectionName = name + ": проекция в DTO";
+        String entitiesName = name + ": сущности и маппер";
+        Map<String, Benchmark.Action> variants = new LinkedHashMap<>();
+        variants.put(projectionName, () -> assertEquals(expected, read(projection)));
+        variants.put(entitiesName, () -> assertEquals(expected, read(entities)));
+
+        Map<String, Benchmark.Result> results = Benchmark.compare(1, variants);
+
+        assertTrue(results.get(projectionName).getBytesPerOp() < results.get(entitiesName).getBytesPerOp());
+    }
+
+    private int read(Supplier<Integer> query) {
+        return Objects.requireNonNull(readOnly.execute(status -> query.get()));
+    }
+}
@@ -0,0 +1,144 @@
+package ru.practicum.shareit.request;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.event.dto.DomainEvent;
+import ru.practicum.shareit.event.dto.ItemEventPayload;
+import ru.practicum.shareit.event.dto.ItemRequestEventPayload;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ItemRequestMatcherTest {
+
+    @Mock
+    private ItemDao itemDao;
+
+    @Mock
+    private ItemRequestDao itemRequestDao;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ItemRequestMatcher matcher;
+
+    @BeforeEach
+    void setUp() {
+        matcher = new ItemRequestMatcher(itemDao, itemRequestDao, objectMapper, 3, 0.2, 2);
+    }
+
+    @Test
+    void suggestItemsShouldRankAvailableItemsOfOtherUsersBySimilarity() throws Exception {
+        publishRequest(1L, 10L, "Нужна аккумуляторная дрель, на выходные");
+        publishItem(100L, 20L, "Дрель", "Аккумуляторная дрель с набором бит", true);
+        publishItem(101L, 20L, "Дрель ударная", "Сетевая, мощная", true);
+        publishItem(102L, 20L, "Дрель", "Аккумуляторная, сейчас в ремонте", false);
+        publishItem(103L, 10L, "Аккумуляторная дрель", "Своя же вещь автора запроса", true);
+        publishItem(104L, 20L, "Палатка", "Четырёхместная", true);
+
+        List<Long> suggested = List.copyOf(matcher.suggestItems(1L, 10).keySet());
+
+        assertEquals(List.of(100L, 101L), suggested);
+        assertEquals(List.of(100L), List.copyOf(matcher.suggestItems(1L, 1).keySet()));
+    }
+
+    @Test
+    void matchRequestsShouldFollowItemUpdatesAndDeletes() throws Exception {
+        publishRequest(1L, 10L, "Ищу палатку для похода");
+        publishRequest(2L, 20L, "Палатку хочу свою не предлагать");
+        publishItem(100L, 20L, "Дрель", "Мощная", true);
+
+        assertTrue(matcher.matchRequests(100L, 10).isEmpty());
+
+        publishItem(100L, 20L, "Палатку", "Для похода", true);
+        assertEquals(List.of(1L), List.copyOf(matcher.matchRequests(100L, 10).keySet()));
+
+        matcher.onEvent(event(EventType.ITEM_REQUEST_DELETED, 1L, "{}"));
+        assertTrue(matcher.matchRequests(100L, 10).isEmpty());
+
+        matcher.onEvent(event(EventType.ITEM_DELETED, 100L, "{}"));
+        assertTrue(matcher.matchRequests(100L, 10).isEmpty());
+    }
+
+    @Test
+    void warmUpShouldLoadBothIndexesPageByPage() {
+        when(itemDao.findEventPayloadsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new ItemEventPayload(1L, 20L, "Палатка", "Туристическая", true, null),
+                new ItemEventPayload(2L, 20L, "Дрель", "Ударная", true, null)));
+        when(itemDao.findEventPayloadsAfter(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        when(itemRequestDao.findEventPayloadsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new ItemRequestEventPayload(5L, 10L, "Нужна туристическая палатка")));
+
+        matcher.warmUp();
+
+        assertEquals(List.of(1L), List.copyOf(matcher.suggestItems(5L, 10).keySet()));
+        verify(itemDao, times(2)).findEventPayloadsAfter(anyLong(), any(Pageable.class));
+        verify(itemRequestDao, times(1)).findEventPayloadsAfter(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void evictUserShouldRemoveItemsAndRequestsOfUserWithoutEvents() throws Exception {
+        publishRequest(1L, 10L, "Ищу палатку для похода");
+        publishRequest(2L, 30L, "Тоже ищу палатку для похода");
+        publishItem(100L, 20L, "Палатка", "Для похода", true);
+        publishItem(101L, 10L, "Палатка", "Для похода", true);
+
+        matcher.evictUser(10L);
+
+        assertEquals(List.of(2L), List.copyOf(matcher.matchRequests(100L, 1).keySet()));
+        assertTrue(matcher.matchRequests(101L, 10).isEmpty());
+        assertTrue(matcher.suggestItems(1L, 10).isEmpty());
+    }
+
+    @Test
+    void warmUpShouldNotRestoreEntriesRemovedWhileLoading() throws Exception {
+        publishItem(2L, 30L, "Дрель", "Ударная", true);
+        when(itemDao.findEventPayloadsAfter(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            // Удаления приходят, пока страница уже прочитана, но ещё не попала в индекс.
+            matcher.onEvent(event(EventType.ITEM_DELETED, 1L, "{}"));
+            matcher.evictUser(30L);
+            return List.of(new ItemEventPayload(1L, 20L, "Палатка", "Туристическая", true, null),
+                    new ItemEventPayload(2L, 30L, "Дрель", "Ударная", true, null));
+        });
+        when(itemDao.findEventPayloadsAfter(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        when(itemRequestDao.findEventPayloadsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new ItemRequestEventPayload(5L, 10L, "Нужна туристическая палатка или дрель")));
+
+        matcher.warmUp();
+
+        assertTrue(matcher.suggestItems(5L, 10).isEmpty());
+
+        publishItem(3L, 20L, "Палатка", "Туристическая", true);
+        matcher.onEvent(event(EventType.ITEM_DELETED, 3L, "{}"));
+        publishItem(3L, 20L, "Палатка", "Туристическая", true);
+        assertEquals(List.of(3L), List.copyOf(matcher.suggestItems(5L, 10).keySet()));
+    }
+
+    private void publishItem(Long itemId, Long ownerId, String name, String description, boolean available)
+            throws Exception {
+        ItemEventPayload payload = new ItemEventPayload(itemId, ownerId, name, description, available, null);
+        matcher.onEvent(event(EventType.ITEM_CREATED, itemId, objectMapper.writeValueAsString(payload)));
+    }
+
+    private void publishRequest(Long requestId, Long requesterId, String description) throws Exception {
+        ItemRequestEventPayload payload = new ItemRequestEventPayload(requestId, requesterId, description);
+        matcher.onEvent(event(EventType.ITEM_REQUEST_CREATED, requestId, objectMapper.writeValueAsString(payload)));
+    }
+
+    private DomainEvent event(EventType type, Long aggregateId, String payload) {
+        return new DomainEvent(1L, type.getAggregateType(), aggregateId, type, payload, LocalDateTime.now());
+    }
+}
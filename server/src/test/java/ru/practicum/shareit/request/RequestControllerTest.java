@@ -14,6 +14,7 @@ import ru.practicum.shareit.item.dto.ItemDtoForRequest;
 import ru.practicum.shareit.request.controller.ItemRequestController;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItem;
+import ru.practicum.shareit.request.dto.ItemSuggestionDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
 import java.time.LocalDateTime;
@@ -134,4 +135,19 @@ class RequestControllerTest {
 
         verify(itemRequestService, times(1)).deleteItemRequest(userId, requestId);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getSuggestionsShouldReturnScoredItems() throws Exception {
+        when(itemRequestService.getSuggestions(1L, 5))
+                .thenReturn(List.of(new ItemSuggestionDto(2L, "Tool", "Description", 3L, 0.75)));
+
+        mockMvc.perform(get("/requests/{requestId}/suggestions", 1L)
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2L))
+                .andExpect(jsonPath("$[0].ownerId").value(3L))
+                .andExpect(jsonPath("$[0].score").value(0.75));
+
+        verify(itemRequestService, times(1)).getSuggestions(1L, 5);
+    }
+}
@@ -4,8 +4,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.event.dto.ItemRequestEventPayload;
 import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.model.User;
@@ -18,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
 @ActiveProfiles("test")
+@Import(EntityCacheConfig.class)
 class RequestDaoTest {
 
     @Autowired
@@ -51,14 +57,14 @@ class RequestDaoTest {
 
     @Test
     void findAllOwnerRequestShouldReturnRequestsForOwnerSortedByCreatedDesc() {
-        Collection<ItemRequest> result = itemRequestDao.findAllOwnerRequest(user1.getId());
+        Collection<ItemRequestDto> result = itemRequestDao.findAllOwnerRequest(user1.getId());
 
         assertEquals(2, result.size());
-        List<ItemRequest> resultList = List.copyOf(result);
+        List<ItemRequestDto> resultList = List.copyOf(result);
         assertEquals(request2.getId(), resultList.get(0).getId());
         assertEquals(request1.getId(), resultList.get(1).getId());
         assertTrue(resultList.get(0).getCreated().isAfter(resultList.get(1).getCreated()));
-        assertFalse(result.contains(request3));
+        assertFalse(result.stream().anyMatch(dto -> dto.getId().equals(request3.getId())));
     }
 
     @Test
@@ -66,19 +72,18 @@ class RequestDaoTest {
         Long nonExistentUserId = 999L;
 
 
-        Collection<ItemRequest> result = itemRequestDao.findAllOwnerRequest(nonExistentUserId);
+        Collection<ItemRequestDto> result = itemRequestDao.findAllOwnerRequest(nonExistentUserId);
 
         assertTrue(result.isEmpty());
     }
 
     @Test
     void findAllByNotRequesterIdShouldReturnRequestsFromOtherUsersSortedByCreatedDesc() {
-        Collection<ItemRequest> result = itemRequestDao.findAllByNotRequesterId(user1.getId());
+        Collection<ItemRequestDto> result = itemRequestDao.findAllByNotRequesterId(user1.getId());
 
         assertEquals(1, result.size());
-        assertTrue(result.contains(request3));
-        assertFalse(result.contains(request1));
-        assertFalse(result.contains(request2));
+        assertEquals(request3.getId(), result.iterator().next().getId());
+        assertEquals(request3.getDescription(), result.iterator().next().getDescription());
     }
 
     @Test
@@ -86,14 +91,25 @@ class RequestDaoTest {
         User user3 = new User(null, "User3", "user3@example.com");
         user3 = userDao.save(user3);
 
-        Collection<ItemRequest> result = itemRequestDao.findAllByNotRequesterId(user3.getId());
+        Collection<ItemRequestDto> result = itemRequestDao.findAllByNotRequesterId(user3.getId());
 
         assertEquals(3, result.size());
-        List<ItemRequest> resultList = List.copyOf(result);
+        List<ItemRequestDto> resultList = List.copyOf(result);
         assertEquals(request3.getId(), resultList.get(0).getId()); // Самый новый
         assertEquals(request2.getId(), resultList.get(1).getId());
         assertEquals(request1.getId(), resultList.get(2).getId());
         assertTrue(resultList.get(0).getCreated().isAfter(resultList.get(1).getCreated()));
         assertTrue(resultList.get(1).getCreated().isAfter(resultList.get(2).getCreated()));
     }
+
+    @Test
+    void findEventPayloadsAfterShouldReturnRequestsInIdOrder() {
+        List<ItemRequestEventPayload> result = itemRequestDao.findEventPayloadsAfter(request1.getId(),
+                PageRequest.of(0, 10));
+
+        assertEquals(List.of(request2.getId(), request3.getId()),
+                result.stream().map(ItemRequestEventPayload::getRequestId).toList());
+        assertEquals(user2.getId(), result.getLast().getRequesterId());
+        assertEquals("Request 3", result.getLast().getDescription());
+    }
 }
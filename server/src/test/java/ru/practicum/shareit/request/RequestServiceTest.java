@@ -5,21 +5,32 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.common.ParallelQueries;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dao.ItemRequestDao;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoWithItem;
+import ru.practicum.shareit.request.dto.ItemSuggestionDto;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.service.ItemRequestServiceImpl;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +48,15 @@ class RequestServiceTest {
     @Mock
     private UserDao userDao;
 
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private ItemRequestMatcher itemRequestMatcher;
+
+    @Spy
+    private ParallelQueries parallelQueries = new ParallelQueries(mock(PlatformTransactionManager.class), true);
+
     @InjectMocks
     private ItemRequestServiceImpl itemRequestService;
 
@@ -66,6 +86,7 @@ class RequestServiceTest {
         assertEquals(itemRequest.getCreated(), result.getCreated());
         verify(userDao, times(1)).findById(1L);
         verify(itemRequestDao, times(1)).save(any(ItemRequest.class));
+        verify(outboxPublisher, times(1)).publish(eq(EventType.ITEM_REQUEST_CREATED), eq(itemRequest.getId()), any());
     }
 
     @Test
@@ -81,7 +102,7 @@ class RequestServiceTest {
     @Test
     void getItemRequestShouldReturnDtoWithItemsWhenValid() {
         when(itemRequestDao.findById(1L)).thenReturn(Optional.of(itemRequest));
-        when(itemDao.findAllItemsByItemRequestId(1L)).thenReturn(List.of(item));
+        when(itemDao.findAllItemsByItemRequestId(1L)).thenReturn(List.of(ItemMapper.toItemDtoForRequest(item)));
 
         ItemRequestDtoWithItem result = itemRequestService.getItemRequest(1L);
 
@@ -116,8 +137,10 @@ class RequestServiceTest {
     @Test
     void getAllOwnerRequestShouldReturnRequestsWithItemsWhenValid() {
         when(userDao.findById(1L)).thenReturn(Optional.of(user));
-        when(itemRequestDao.findAllOwnerRequest(1L)).thenReturn(List.of(itemRequest));
-        when(itemDao.findAllItemsByItemsRequestIds(List.of(1L))).thenReturn(List.of(item));
+        when(itemRequestDao.findAllOwnerRequest(1L))
+                .thenReturn(List.of(ItemRequestMapper.toItemRequestDto(itemRequest)));
+        when(itemDao.findAllItemsByRequesterId(1L))
+                .thenReturn(List.of(ItemMapper.toItemDtoForRequest(item)));
 
         List<ItemRequestDtoWithItem> result = (List<ItemRequestDtoWithItem>) itemRequestService
                 .getAllOwnerRequest(1L);
@@ -133,14 +156,14 @@ class RequestServiceTest {
         assertEquals(user.getId(), dto.getItems().getFirst().getOwnerId());
         verify(userDao, times(1)).findById(1L);
         verify(itemRequestDao, times(1)).findAllOwnerRequest(1L);
-        verify(itemDao, times(1)).findAllItemsByItemsRequestIds(List.of(1L));
+        verify(itemDao, times(1)).findAllItemsByRequesterId(1L);
     }
 
     @Test
     void getAllOwnerRequestShouldReturnEmptyListWhenNoRequests() {
         when(userDao.findById(1L)).thenReturn(Optional.of(user));
         when(itemRequestDao.findAllOwnerRequest(1L)).thenReturn(Collections.emptyList());
-        when(itemDao.findAllItemsByItemsRequestIds(Collections.emptyList())).thenReturn(Collections.emptyList());
+        when(itemDao.findAllItemsByRequesterId(1L)).thenReturn(Collections.emptyList());
 
         List<ItemRequestDtoWithItem> result = (List<ItemRequestDtoWithItem>) itemRequestService
                 .getAllOwnerRequest(1L);
@@ -148,13 +171,21 @@ class RequestServiceTest {
         assertTrue(result.isEmpty());
         verify(userDao, times(1)).findById(1L);
         verify(itemRequestDao, times(1)).findAllOwnerRequest(1L);
-        verify(itemDao, times(1)).findAllItemsByItemsRequestIds(Collections.emptyList());
+        verify(itemDao, times(1)).findAllItemsByRequesterId(1L);
+    }
+
+    @Test
+    void getAllOwnerRequestShouldThrowNotFoundExceptionWhenUserDoesNotExist() {
+        when(userDao.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> itemRequestService.getAllOwnerRequest(1L));
     }
 
     @Test
     void getAllRequestShouldReturnAllRequestsWhenValid() {
         when(userDao.findById(1L)).thenReturn(Optional.of(user));
-        when(itemRequestDao.findAllByNotRequesterId(1L)).thenReturn(List.of(itemRequest));
+        when(itemRequestDao.findAllByNotRequesterId(1L))
+                .thenReturn(List.of(ItemRequestMapper.toItemRequestDto(itemRequest)));
 
         List<ItemRequestDto> result = (List<ItemRequestDto>) itemRequestService.getAllRequest(1L);
 
@@ -177,6 +208,8 @@ class RequestServiceTest {
         verify(userDao, times(1)).findById(1L);
         verify(itemRequestDao, times(1)).findById(1L);
         verify(itemRequestDao, times(1)).deleteById(1L);
+        verify(itemRequestMatcher).evictRequest(1L);
+        verify(outboxPublisher, times(1)).publish(eq(EventType.ITEM_REQUEST_DELETED), eq(1L), any());
     }
 
     @Test
@@ -189,4 +222,29 @@ class RequestServiceTest {
         assertEquals("Запрос c id 1 не найден.", exception.getMessage());
         verify(itemRequestDao, never()).deleteById(any());
     }
+
+    @Test
+    void getSuggestionsShouldKeepMatcherOrderAndSkipDeletedItems() {
+        Item other = new Item(2L, "Other tool", "Other description", true, user, null);
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        scores.put(2L, 0.9);
+        scores.put(3L, 0.7);
+        scores.put(1L, 0.5);
+        when(itemRequestDao.existsById(1L)).thenReturn(true);
+        when(itemRequestMatcher.suggestItems(1L, 20)).thenReturn(scores);
+        when(itemDao.findAllById(scores.keySet())).thenReturn(List.of(item, other));
+
+        List<ItemSuggestionDto> result = itemRequestService.getSuggestions(1L, 20);
+
+        assertEquals(List.of(2L, 1L), result.stream().map(ItemSuggestionDto::getId).toList());
+        assertEquals(0.9, result.getFirst().getScore());
+    }
+
+    @Test
+    void getSuggestionsShouldThrowNotFoundExceptionWhenRequestNotFound() {
+        when(itemRequestDao.existsById(1L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> itemRequestService.getSuggestions(1L, 20));
+        verify(itemRequestMatcher, never()).suggestItems(anyLong(), anyInt());
+    }
 }
@@ -0,0 +1,139 @@
+package ru.practicum.shareit.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.dto.RequestBookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingEventStream;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.event.service.OutboxPublisher;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.dao.CommentDao;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.dao.UserDao;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EntityCacheConfig.class, JacksonAutoConfiguration.class, BookingServiceImpl.class,
+        BookingIntervalIndex.class, ItemBookingSummaryUpdater.class, OutboxPublisher.class, BookingEventStream.class})
+class TombstoneVisibilityTest {
+
+    private static final LocalDateTime START = LocalDateTime.now().plusDays(1);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private ItemDao itemDao;
+
+    @Autowired
+    private ItemRequestDao itemRequestDao;
+
+    @Autowired
+    private BookingDao bookingDao;
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User owner;
+    private User booker;
+    private Item item;
+    private ItemRequest request;
+    private Booking booking;
+    private Comment comment;
+
+    @BeforeEach
+    void setUp() {
+        owner = userDao.save(new User(null, "Owner", "owner@example.com"));
+        booker = userDao.save(new User(null, "Booker", "booker@example.com"));
+        request = entityManager.persist(new ItemRequest(null, "Нужна дрель", owner, LocalDateTime.now()));
+        item = entityManager.persist(new Item(null, "Дрель", "Мощная дрель", true, owner, null));
+        booking = entityManager.persist(new Booking(null, START, START.plusDays(1), item, booker, Status.APPROVED));
+        comment = entityManager.persist(new Comment(null, "Отличная", item, booker, LocalDateTime.now()));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void dataOfTombstonedOwnerShouldBeHiddenFromQueries() {
+        userDao.markDeleted(owner.getId());
+
+        assertTrue(itemDao.findById(item.getId()).isEmpty());
+        assertTrue(itemDao.findByNameContainingOrDescriptionContaining("дрель").isEmpty());
+        assertTrue(itemRequestDao.findById(request.getId()).isEmpty());
+        assertTrue(itemRequestDao.findAllByNotRequesterId(booker.getId()).isEmpty());
+        assertTrue(bookingDao.findById(booking.getId()).isEmpty());
+        assertTrue(bookingDao.findAllUserBookingByUserId(booker.getId()).isEmpty());
+        assertTrue(commentDao.findById(comment.getId()).isEmpty());
+        assertTrue(bookingDao.findApprovedIntervalsByItemId(item.getId()).isEmpty());
+    }
+
+    @Test
+    void bookingsAndCommentsOfTombstonedBookerShouldBeHiddenFromOwner() {
+        userDao.markDeleted(booker.getId());
+
+        assertTrue(itemDao.findById(item.getId()).isPresent());
+        assertTrue(bookingDao.findById(booking.getId()).isEmpty());
+        assertTrue(commentDao.findById(comment.getId()).isEmpty());
+        assertEquals(0, commentDao.countByItemId(item.getId()));
+    }
+
+    @Test
+    void createBookingShouldRejectItemOfTombstonedOwner() {
+        User another = userDao.save(new User(null, "Another", "another@example.com"));
+        userDao.markDeleted(owner.getId());
+
+        assertThrows(NotFoundException.class, () -> bookingService.createBooking(
+                new RequestBookingDto(item.getId(), START.plusDays(5), START.plusDays(6)), another.getId()));
+        assertEquals(List.of(), List.copyOf(bookingDao.findAllUserBookingByUserId(another.getId())));
+    }
+
+    @Test
+    void nativeUpdatesShouldNotTouchTombstonedUserOrTheirItems() {
+        userDao.markDeleted(owner.getId());
+
+        assertTrue(userDao.updateColumns(owner.getId(), Map.of("name", "Renamed")).isEmpty());
+        assertTrue(userDao.updateColumns(owner.getId(), Map.of()).isEmpty());
+        assertTrue(itemDao.updateOwnedColumns(item.getId(), owner.getId(), Map.of("name", "Перфоратор")).isEmpty());
+        assertTrue(itemDao.updateOwnedColumns(item.getId(), owner.getId(), Map.of()).isEmpty());
+        assertEquals("Owner", entityManager.getEntityManager().createNativeQuery(
+                "SELECT name FROM users WHERE id = :id").setParameter("id", owner.getId()).getSingleResult());
+    }
+
+    @Test
+    void findItemIdsWithBookingsOfShouldSeeTombstonedData() {
+        userDao.markDeleted(owner.getId());
+
+        assertEquals(List.of(item.getId()), List.copyOf(userDao.findItemIdsWithBookingsOf(owner.getId())));
+        assertEquals(List.of(item.getId()), List.copyOf(userDao.findItemIdsWithBookingsOf(booker.getId())));
+    }
+}
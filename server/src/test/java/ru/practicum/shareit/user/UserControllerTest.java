@@ -5,10 +5,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
-import ru.practicum.shareit.TestErrorHandler;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.practicum.shareit.exception.AlreadyExistException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
@@ -20,13 +19,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = UserController.class)
-@Import(TestErrorHandler.class)
 class UserControllerTest {
 
     @Autowired
@@ -43,7 +42,7 @@ class UserControllerTest {
     @Test
     void findAllShouldReturnListOfUsers() throws Exception {
         List<UserDto> users = List.of(userDto);
-        when(userService.getAllUser()).thenReturn(users);
+        when(userService.getAllUser(0L, 100)).thenReturn(users);
 
         mockMvc.perform(get("/users")
                         .contentType(MediaType.APPLICATION_JSON))
@@ -52,12 +51,12 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[0].name").value("User1"))
                 .andExpect(jsonPath("$[0].email").value("user1@example.com"));
 
-        verify(userService, times(1)).getAllUser();
+        verify(userService, times(1)).getAllUser(0L, 100);
     }
 
     @Test
     void findAllShouldReturnEmptyListWhenNoUsers() throws Exception {
-        when(userService.getAllUser()).thenReturn(Collections.emptyList());
+        when(userService.getAllUser(0L, 100)).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/users")
                         .contentType(MediaType.APPLICATION_JSON))
@@ -65,7 +64,40 @@ class UserControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$").isEmpty());
 
-        verify(userService, times(1)).getAllUser();
+        verify(userService, times(1)).getAllUser(0L, 100);
+    }
+
+    @Test
+    void findAllShouldPassKeysetParameters() throws Exception {
+        when(userService.getAllUser(10L, 2)).thenReturn(List.of(userDto));
+
+        mockMvc.perform(get("/users")
+                        .param("afterId", "10")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L));
+
+        verify(userService, times(1)).getAllUser(10L, 2);
+    }
+
+    @Test
+    void exportUsersShouldStreamUsersAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<UserDto> consumer = invocation.getArgument(0);
+            consumer.accept(userDto);
+            consumer.accept(new UserDto(2L, "User2", "user2@example.com"));
+            return null;
+        }).when(userService).exportUsers(any());
+
+        MvcResult result = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1,\"name\":\"User1\",\"email\":\"user1@example.com\"}\n" +
+                        "{\"id\":2,\"name\":\"User2\",\"email\":\"user2@example.com\"}"));
     }
 
     @Test
@@ -202,4 +234,42 @@ class UserControllerTest {
 
         verify(userService, times(1)).deleteUser(1L);
     }
+
+    @Test
+    void deleteUserAsyncShouldTombstoneAndReturnAccepted() throws Exception {
+        mockMvc.perform(delete("/users/1")
+                        .param("async", "true"))
+                .andExpect(status().isAccepted());
+
+        verify(userService, times(1)).markUserDeleted(1L);
+        verify(userService, never()).deleteUser(anyLong());
+    }
+
+    @Test
+    void createBatchShouldReturnCreatedUsers() throws Exception {
+        List<UserDto> users = List.of(new UserDto(null, "User1", "user1@example.com"));
+        when(userService.createUsers(anyList())).thenReturn(List.of(userDto));
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(users)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$[0].email").value("user1@example.com"));
+
+        verify(userService, times(1)).createUsers(anyList());
+    }
+
+    @Test
+    void findUsersShouldReturnUsersByIdsInsteadOfAllUsers() throws Exception {
+        when(userService.getUsers(List.of(1L, 2L))).thenReturn(List.of(userDto));
+
+        mockMvc.perform(get("/users")
+                        .param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        verify(userService, never()).getAllUser(any(), anyInt());
+    }
 }
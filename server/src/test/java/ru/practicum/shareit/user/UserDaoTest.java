@@ -1,24 +1,54 @@
 package ru.practicum.shareit.user;
 
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.config.EntityCacheConfig;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingSummary;
+import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.dao.UserDao;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.PurgeStep;
 import ru.practicum.shareit.user.model.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
 @ActiveProfiles("test")
+@Import(EntityCacheConfig.class)
 class UserDaoTest {
 
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     void findByIdShouldReturnUserWhenUserExists() {
         User user = new User(null, "User1", "user1@example.com");
@@ -130,4 +160,162 @@ class UserDaoTest {
 
         assertFalse(exists);
     }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void findByIdShouldBeServedFromSecondLevelCache() {
+        User savedUser = userDao.save(new User(null, "User1", "user1@example.com"));
+        try {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            userDao.findById(savedUser.getId());
+            statistics.clear();
+
+            Optional<User> result = userDao.findById(savedUser.getId());
+
+            assertTrue(result.isPresent());
+            assertEquals("User1", result.get().getName());
+            assertEquals(1, statistics.getSecondLevelCacheHitCount());
+            assertEquals(0, statistics.getPrepareStatementCount());
+        } finally {
+            userDao.deleteById(savedUser.getId());
+        }
+    }
+
+    @Test
+    void findByIdShouldNotReturnStaleUserAfterUpdate() {
+        User savedUser = entityManager.persistFlushFind(new User(null, "User1", "user1@example.com"));
+        entityManager.clear();
+        User cachedUser = userDao.findById(savedUser.getId()).orElseThrow();
+        cachedUser.setName("Updated");
+        userDao.saveAndFlush(cachedUser);
+        entityManager.clear();
+
+        Optional<User> result = userDao.findById(savedUser.getId());
+
+        assertTrue(result.isPresent());
+        assertEquals("Updated", result.get().getName());
+    }
+
+    @Test
+    void findExistingEmailsShouldReturnOnlyTakenEmails() {
+        userDao.save(new User(null, "User1", "user1@example.com"));
+
+        Collection<String> result = userDao.findExistingEmails(List.of("user1@example.com", "free@example.com"));
+
+        assertEquals(List.of("user1@example.com"), List.copyOf(result));
+    }
+
+    @Test
+    void findPageAfterShouldReturnNextPageOrderedById() {
+        User user1 = userDao.save(new User(null, "User1", "user1@example.com"));
+        User user2 = userDao.save(new User(null, "User2", "user2@example.com"));
+        User user3 = userDao.save(new User(null, "User3", "user3@example.com"));
+
+        List<User> firstPage = userDao.findPageAfter(0L, PageRequest.of(0, 2));
+        List<User> secondPage = userDao.findPageAfter(firstPage.getLast().getId(), PageRequest.of(0, 2));
+
+        assertEquals(List.of(user1.getId(), user2.getId()), firstPage.stream().map(User::getId).toList());
+        assertEquals(List.of(user3.getId()), secondPage.stream().map(User::getId).toList());
+    }
+
+    @Test
+    void streamAllShouldReturnUsersWithoutManagingEntities() {
+        userDao.save(new User(null, "User1", "user1@example.com"));
+        userDao.save(new User(null, "User2", "user2@example.com"));
+        entityManager.flush();
+        entityManager.clear();
+
+        try (Stream<UserDto> users = userDao.streamAll()) {
+            assertEquals(List.of("user1@example.com", "user2@example.com"),
+                    users.map(UserDto::getEmail).toList());
+        }
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void updateColumnsShouldUpdateOnlyPassedColumnsAndReturnNewState() {
+        User saved = userDao.save(new User(null, "User1", "user1@example.com"));
+        entityManager.flush();
+        entityManager.clear();
+
+        User result = userDao.updateColumns(saved.getId(), Map.of("name", "Updated")).orElseThrow();
+
+        assertEquals("Updated", result.getName());
+        assertEquals("user1@example.com", result.getEmail());
+        entityManager.clear();
+        assertEquals("Updated", userDao.findById(saved.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void updateColumnsShouldReturnEmptyWhenUserDoesNotExist() {
+        assertTrue(userDao.updateColumns(999L, Map.of("name", "Updated")).isEmpty());
+        assertTrue(userDao.updateColumns(999L, Map.of()).isEmpty());
+    }
+
+    @Test
+    void updateColumnsShouldFailOnEmailConstraint() {
+        User first = userDao.save(new User(null, "User1", "user1@example.com"));
+        userDao.save(new User(null, "User2", "user2@example.com"));
+        entityManager.flush();
+        entityManager.clear();
+
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> userDao.updateColumns(first.getId(), Map.of("email", "user2@example.com")));
+        assertTrue(exception.getMessage().toLowerCase().contains(User.EMAIL_CONSTRAINT));
+    }
+
+    @Test
+    void markDeletedShouldHideUserFromQueries() {
+        User saved = userDao.save(new User(null, "User1", "user1@example.com"));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(userDao.markDeleted(saved.getId()));
+        assertFalse(userDao.markDeleted(saved.getId()));
+
+        assertTrue(userDao.findById(saved.getId()).isEmpty());
+        assertFalse(userDao.existsByEmail("user1@example.com"));
+        assertEquals(List.of(saved.getId()), userDao.findDeletedIds(10));
+        assertEquals(1, userDao.countDeleted());
+    }
+
+    @Test
+    void purgeChunkShouldRemoveDependentRowsAndKeepForeignItems() {
+        User deleted = userDao.save(new User(null, "Deleted", "deleted@example.com"));
+        User other = userDao.save(new User(null, "Other", "other@example.com"));
+        ItemRequest request = entityManager.persist(new ItemRequest(null, "Request", deleted, LocalDateTime.now()));
+        Item ownItem = entityManager.persist(new Item(null, "Own", "Description", true, deleted, null));
+        Item foreignItem = entityManager.persist(new Item(null, "Foreign", "Description", true, other, request));
+        entityManager.persist(new Booking(null, LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2),
+                foreignItem, deleted, Status.WAITING));
+        entityManager.persist(new Booking(null, LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2),
+                ownItem, other, Status.WAITING));
+        entityManager.persist(new Comment(null, "Comment", ownItem, other, LocalDateTime.now()));
+        entityManager.persist(new ItemBookingSummary(ownItem.getId(), null, null, null));
+        entityManager.flush();
+        entityManager.clear();
+        userDao.markDeleted(deleted.getId());
+
+        assertEquals(1, userDao.purgeChunk(deleted.getId(), PurgeStep.BOOKINGS, 1));
+        assertEquals(1, userDao.purgeChunk(deleted.getId(), PurgeStep.BOOKINGS, 1));
+        assertEquals(0, userDao.purgeChunk(deleted.getId(), PurgeStep.BOOKINGS, 1));
+        for (PurgeStep step : PurgeStep.values()) {
+            int rows;
+            do {
+                rows = userDao.purgeChunk(deleted.getId(), step, 1);
+            } while (rows > 0 && step != PurgeStep.USER);
+        }
+        entityManager.clear();
+
+        assertTrue(userDao.findDeletedIds(10).isEmpty());
+        assertNull(entityManager.find(Item.class, ownItem.getId()));
+        assertNull(entityManager.find(ItemRequest.class, request.getId()));
+        Item remaining = entityManager.find(Item.class, foreignItem.getId());
+        assertNotNull(remaining);
+        assertNull(remaining.getRequest());
+        assertEquals(0L, entityManager.getEntityManager()
+                .createQuery("SELECT COUNT(b) FROM Booking b", Long.class).getSingleResult());
+        assertEquals(0L, entityManager.getEntityManager()
+                .createQuery("SELECT COUNT(c) FROM Comment c", Long.class).getSingleResult());
+    }
 }
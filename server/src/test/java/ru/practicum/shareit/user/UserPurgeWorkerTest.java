@@ -0,0 +1,92 @@
+package ru.practicum.shareit.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
+import ru.practicum.shareit.user.dao.UserDao;
+import ru.practicum.shareit.user.model.PurgeStep;
+import ru.practicum.shareit.user.service.UserPurgeWorker;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserPurgeWorkerTest {
+
+    @Mock
+    private UserDao userDao;
+
+    @Mock
+    private ItemViewCache itemViewCache;
+
+    @Mock
+    private ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Mock
+    private ItemRequestMatcher itemRequestMatcher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserPurgeWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        worker = new UserPurgeWorker(userDao, itemViewCache, itemBookingSummaryUpdater, bookingIntervalIndex,
+                itemRequestMatcher, meterRegistry, 10, 2);
+    }
+
+    @Test
+    void purgeShouldDeleteInChunksUntilStepIsExhaustedAndRemoveUserLast() {
+        when(userDao.countDeleted()).thenReturn(1L);
+        when(userDao.findDeletedIds(10)).thenReturn(List.of(5L));
+        when(userDao.purgeChunk(eq(5L), any(PurgeStep.class), eq(2))).thenReturn(0);
+        when(userDao.purgeChunk(5L, PurgeStep.BOOKINGS, 2)).thenReturn(2, 2, 1);
+        when(userDao.purgeChunk(5L, PurgeStep.USER, 2)).thenReturn(1);
+        when(userDao.findItemIdsWithBookingsOf(5L)).thenReturn(List.of(7L));
+
+        worker.purge();
+
+        InOrder inOrder = inOrder(userDao);
+        inOrder.verify(userDao, times(3)).purgeChunk(5L, PurgeStep.BOOKINGS, 2);
+        inOrder.verify(userDao).purgeChunk(5L, PurgeStep.ITEMS, 2);
+        inOrder.verify(userDao).purgeChunk(5L, PurgeStep.USER, 2);
+        verify(itemBookingSummaryUpdater).refreshAll(List.of(7L));
+        verify(bookingIntervalIndex).evictAfterCompletion(List.of(7L));
+        verify(itemRequestMatcher).evictUser(5L);
+        verify(itemViewCache).evictAll();
+        assertEquals(5.0, meterRegistry.get("shareit.user-purge.rows").tag("step", "bookings").counter().count());
+        assertEquals(1.0, meterRegistry.get("shareit.user-purge.completed").counter().count());
+        assertEquals(0.0, meterRegistry.get("shareit.user-purge.pending").gauge().value());
+    }
+
+    @Test
+    void purgeShouldContinueWithNextUserWhenOneFails() {
+        when(userDao.countDeleted()).thenReturn(2L);
+        when(userDao.findDeletedIds(10)).thenReturn(List.of(5L, 6L));
+        when(userDao.purgeChunk(eq(5L), any(PurgeStep.class), anyInt())).thenThrow(new IllegalStateException("lock"));
+        when(userDao.purgeChunk(eq(6L), any(PurgeStep.class), anyInt())).thenReturn(0);
+
+        worker.purge();
+
+        verify(userDao).purgeChunk(6L, PurgeStep.USER, 2);
+        assertEquals(1.0, meterRegistry.get("shareit.user-purge.completed").counter().count());
+        assertEquals(1.0, meterRegistry.get("shareit.user-purge.pending").gauge().value());
+        assertEquals(1.0, meterRegistry.get("shareit.user-purge.failed").counter().count());
+    }
+}
@@ -1,25 +1,49 @@
 package ru.practicum.shareit.user;
 
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.booking.dao.BookingDao;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingIntervalIndex;
+import ru.practicum.shareit.event.dto.BookingEventPayload;
+import ru.practicum.shareit.event.dto.ItemEventPayload;
+import ru.practicum.shareit.event.dto.ItemRequestEventPayload;
+import ru.practicum.shareit.event.model.EventType;
+import ru.practicum.shareit.event.service.OutboxPublisher;
 import ru.practicum.shareit.exception.AlreadyExistException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dao.ItemDao;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemBookingSummaryUpdater;
+import ru.practicum.shareit.item.service.ItemViewCache;
+import ru.practicum.shareit.request.dao.ItemRequestDao;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
 import ru.practicum.shareit.user.dao.UserDao;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserServiceImpl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -30,6 +54,33 @@ class UserServiceTest {
     @Mock
     private UserDao userDao;
 
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private ItemViewCache itemViewCache;
+
+    @Mock
+    private ItemBookingSummaryUpdater itemBookingSummaryUpdater;
+
+    @Mock
+    private ItemDao itemDao;
+
+    @Mock
+    private ItemRequestDao itemRequestDao;
+
+    @Mock
+    private BookingDao bookingDao;
+
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Mock
+    private ItemRequestMatcher itemRequestMatcher;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -67,27 +118,39 @@ class UserServiceTest {
     @Test
     void getAllUserShouldReturnListOfUserDtos() {
         List<User> users = List.of(user);
-        when(userDao.findAll()).thenReturn(users);
+        when(userDao.findPageAfter(0L, PageRequest.of(0, 100))).thenReturn(users);
 
-        List<UserDto> result = (List<UserDto>) userService.getAllUser();
+        List<UserDto> result = userService.getAllUser(0L, 100);
 
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(userDto.getId(), result.getFirst().getId());
         assertEquals(userDto.getName(), result.getFirst().getName());
         assertEquals(userDto.getEmail(), result.getFirst().getEmail());
-        verify(userDao, times(1)).findAll();
+        verify(userDao, never()).findAll();
     }
 
     @Test
     void getAllUserShouldReturnEmptyListWhenNoUsers() {
-        when(userDao.findAll()).thenReturn(Collections.emptyList());
+        when(userDao.findPageAfter(5L, PageRequest.of(0, 10))).thenReturn(Collections.emptyList());
 
-        List<UserDto> result = (List<UserDto>) userService.getAllUser();
+        List<UserDto> result = userService.getAllUser(5L, 10);
 
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(userDao, times(1)).findAll();
+    }
+
+    @Test
+    void exportUsersShouldPassEveryUserToConsumerAndCloseStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(userDao.streamAll()).thenReturn(Stream.of(userDto, new UserDto(2L, "User2", "user2@example.com"))
+                .onClose(() -> closed.set(true)));
+        List<UserDto> exported = new ArrayList<>();
+
+        userService.exportUsers(exported::add);
+
+        assertEquals(List.of(1L, 2L), exported.stream().map(UserDto::getId).toList());
+        assertTrue(closed.get());
     }
 
     @Test
@@ -123,19 +186,99 @@ class UserServiceTest {
     @Test
     void deleteUserShouldCallDeleteById() {
         doNothing().when(userDao).deleteById(1L);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Cache cache = mock(Cache.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        when(itemBookingSummaryUpdater.findItemIdsBookedBy(1L)).thenReturn(List.of(7L));
+        when(userDao.findItemIdsWithBookingsOf(1L)).thenReturn(List.of(7L, 8L));
 
         userService.deleteUser(1L);
 
-        verify(userDao, times(1)).deleteById(1L);
+        InOrder inOrder = inOrder(userDao, itemBookingSummaryUpdater);
+        inOrder.verify(userDao, times(1)).deleteById(1L);
+        inOrder.verify(userDao).flush();
+        inOrder.verify(itemBookingSummaryUpdater).refreshAll(List.of(7L));
+        verify(bookingIntervalIndex).evictAfterCompletion(List.of(7L, 8L));
+        verify(itemRequestMatcher).evictUser(1L);
+        verify(cache).evict(Item.class);
+        verify(cache).evictDefaultQueryRegion();
+        verify(itemViewCache).evictAll();
+    }
+
+    @Test
+    void deleteUserShouldPublishEventsForCascadedRows() {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(mock(Cache.class));
+        BookingEventPayload booking = new BookingEventPayload(3L, 2L, 1L, 4L, null, null, Status.APPROVED);
+        ItemEventPayload item = new ItemEventPayload(2L, 1L, "Дрель", "Мощная", true, null);
+        ItemRequestEventPayload request = new ItemRequestEventPayload(5L, 1L, "Нужна пила");
+        when(bookingDao.findEventPayloadsByUserId(1L)).thenReturn(List.of(booking));
+        when(itemDao.findEventPayloadsByOwnerId(1L)).thenReturn(List.of(item));
+        when(itemRequestDao.findEventPayloadsByRequesterId(1L)).thenReturn(List.of(request));
+
+        userService.deleteUser(1L);
+
+        InOrder inOrder = inOrder(outboxPublisher, userDao);
+        inOrder.verify(outboxPublisher).publish(EventType.BOOKING_DELETED, 3L, booking);
+        inOrder.verify(outboxPublisher).publish(EventType.ITEM_DELETED, 2L, item);
+        inOrder.verify(outboxPublisher).publish(EventType.ITEM_REQUEST_DELETED, 5L, request);
+        inOrder.verify(userDao).deleteById(1L);
+    }
+
+    @Test
+    void markUserDeletedShouldTombstoneUser() {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Cache cache = mock(Cache.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        when(userDao.markDeleted(1L)).thenReturn(true);
+
+        userService.markUserDeleted(1L);
+
+        verify(userDao, never()).deleteById(anyLong());
+    }
+
+    @Test
+    void markUserDeletedShouldPublishEventsAndRefreshDerivedDataOfHiddenRows() {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Cache cache = mock(Cache.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        BookingEventPayload booking = new BookingEventPayload(3L, 2L, 4L, 1L, null, null, Status.APPROVED);
+        when(bookingDao.findEventPayloadsByUserId(1L)).thenReturn(List.of(booking));
+        when(itemBookingSummaryUpdater.findItemIdsBookedBy(1L)).thenReturn(List.of(2L));
+        when(userDao.findItemIdsWithBookingsOf(1L)).thenReturn(List.of(2L, 9L));
+        when(userDao.markDeleted(1L)).thenReturn(true);
+
+        userService.markUserDeleted(1L);
+
+        // Пометка скрывает данные пользователя, поэтому события собираются до неё, а сводки пересчитываются после.
+        InOrder inOrder = inOrder(outboxPublisher, userDao, itemBookingSummaryUpdater);
+        inOrder.verify(outboxPublisher).publish(EventType.BOOKING_DELETED, 3L, booking);
+        inOrder.verify(userDao).markDeleted(1L);
+        inOrder.verify(itemBookingSummaryUpdater).refreshAll(List.of(2L));
+        verify(bookingIntervalIndex).evictAfterCompletion(List.of(2L, 9L));
+        verify(itemRequestMatcher).evictUser(1L);
+        verify(cache).evict(Item.class);
+        verify(itemViewCache).evictAll();
+    }
+
+    @Test
+    void markUserDeletedShouldThrowNotFoundExceptionWhenUserDoesNotExist() {
+        when(userDao.markDeleted(1L)).thenReturn(false);
+
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> userService.markUserDeleted(1L));
+        assertEquals("Пользователь не найден.", exception.getMessage());
     }
 
     @Test
     void updateUserShouldUpdateNameAndReturnUserDto() {
         Map<String, String> update = new HashMap<>();
         update.put("name", "Updated User");
-        when(userDao.findById(1L)).thenReturn(Optional.of(user));
-        when(userDao.save(any(User.class))).thenReturn(new User(1L, "Updated User",
-                "user1@example.com"));
+        when(userDao.updateColumns(1L, Map.of("name", "Updated User")))
+                .thenReturn(Optional.of(new User(1L, "Updated User", "user1@example.com")));
 
         UserDto result = userService.updateUser(update, 1L);
 
@@ -143,17 +286,17 @@ class UserServiceTest {
         assertEquals(1L, result.getId());
         assertEquals("Updated User", result.getName());
         assertEquals("user1@example.com", result.getEmail());
-        verify(userDao, times(1)).findById(1L);
-        verify(userDao, times(1)).save(any(User.class));
+        verify(userDao, never()).findById(anyLong());
+        verify(userDao, never()).save(any(User.class));
+        verify(itemViewCache).evictAll();
     }
 
     @Test
     void updateUserShouldUpdateEmailAndReturnUserDto() {
         Map<String, String> update = new HashMap<>();
         update.put("email", "updated@example.com");
-        when(userDao.findById(1L)).thenReturn(Optional.of(user));
-        when(userDao.existsByEmailAndIdNot("updated@example.com", 1L)).thenReturn(false);
-        when(userDao.save(any(User.class))).thenReturn(new User(1L, "User1", "updated@example.com"));
+        when(userDao.updateColumns(1L, Map.of("email", "updated@example.com")))
+                .thenReturn(Optional.of(new User(1L, "User1", "updated@example.com")));
 
         UserDto result = userService.updateUser(update, 1L);
 
@@ -161,21 +304,19 @@ class UserServiceTest {
         assertEquals(1L, result.getId());
         assertEquals("User1", result.getName());
         assertEquals("updated@example.com", result.getEmail());
-        verify(userDao, times(1)).findById(1L);
-        verify(userDao, times(1)).existsByEmailAndIdNot("updated@example.com", 1L);
-        verify(userDao, times(1)).save(any(User.class));
+        verify(userDao, never()).existsByEmailAndIdNot(anyString(), anyLong());
+        verify(itemViewCache, never()).evictAll();
     }
 
     @Test
     void updateUserShouldThrowNotFoundExceptionWhenUserDoesNotExist() {
         Map<String, String> update = new HashMap<>();
         update.put("name", "Updated User");
-        when(userDao.findById(1L)).thenReturn(Optional.empty());
+        when(userDao.updateColumns(1L, Map.of("name", "Updated User"))).thenReturn(Optional.empty());
 
         NotFoundException exception = assertThrows(NotFoundException.class, () -> userService
                 .updateUser(update, 1L));
         assertEquals("Пользователь не найден.", exception.getMessage());
-        verify(userDao, times(1)).findById(1L);
         verify(userDao, never()).save(any(User.class));
     }
 
@@ -183,40 +324,88 @@ class UserServiceTest {
     void updateUserShouldThrowValidationExceptionWhenNameIsBlank() {
         Map<String, String> update = new HashMap<>();
         update.put("name", " ");
-        when(userDao.findById(1L)).thenReturn(Optional.of(user));
 
         ValidationException exception = assertThrows(ValidationException.class, () -> userService
                 .updateUser(update, 1L));
         assertEquals("В запросе на обновление имени была передана пустая строчка", exception.getMessage());
-        verify(userDao, times(1)).findById(1L);
-        verify(userDao, never()).save(any(User.class));
+        verify(userDao, never()).updateColumns(anyLong(), anyMap());
     }
 
     @Test
     void updateUserShouldThrowValidationExceptionWhenEmailIsBlank() {
         Map<String, String> update = new HashMap<>();
         update.put("email", " ");
-        when(userDao.findById(1L)).thenReturn(Optional.of(user));
 
         ValidationException exception = assertThrows(ValidationException.class, () -> userService
                 .updateUser(update, 1L));
         assertEquals("В запросе на обновление имейла была передана пустая строчка", exception.getMessage());
-        verify(userDao, times(1)).findById(1L);
-        verify(userDao, never()).save(any(User.class));
+        verify(userDao, never()).updateColumns(anyLong(), anyMap());
     }
 
     @Test
-    void updateUserShouldThrowAlreadyExistExceptionWhenEmailExists() {
+    void updateUserShouldThrowAlreadyExistExceptionWhenEmailConstraintIsViolated() {
         Map<String, String> update = new HashMap<>();
         update.put("email", "user2@example.com");
-        when(userDao.findById(1L)).thenReturn(Optional.of(user));
-        when(userDao.existsByEmailAndIdNot("user2@example.com", 1L)).thenReturn(true);
+        when(userDao.updateColumns(1L, Map.of("email", "user2@example.com")))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                        new ConstraintViolationException("Unique index violation", null, "UQ_USERS_EMAIL_INDEX_4")));
 
         AlreadyExistException exception = assertThrows(AlreadyExistException.class, () -> userService
                 .updateUser(update, 1L));
         assertEquals("Пользователь с email user2@example.com уже существует", exception.getMessage());
-        verify(userDao, times(1)).findById(1L);
-        verify(userDao, times(1)).existsByEmailAndIdNot("user2@example.com", 1L);
-        verify(userDao, never()).save(any(User.class));
+    }
+
+    @Test
+    void updateUserShouldRethrowOtherIntegrityViolations() {
+        Map<String, String> update = new HashMap<>();
+        update.put("name", "Updated User");
+        when(userDao.updateColumns(1L, Map.of("name", "Updated User")))
+                .thenThrow(new DataIntegrityViolationException("value too long"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.updateUser(update, 1L));
+    }
+
+    @Test
+    void createUsersShouldCheckEmailsOnceAndSaveAll() {
+        List<UserDto> userDtos = List.of(new UserDto(null, "User1", "user1@example.com"),
+                new UserDto(null, "User2", "user2@example.com"));
+        when(userDao.findExistingEmails(anySet())).thenReturn(Collections.emptyList());
+        when(userDao.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<UserDto> result = userService.createUsers(userDtos);
+
+        assertEquals(2, result.size());
+        verify(userDao, times(1)).findExistingEmails(anySet());
+        verify(userDao, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void createUsersShouldThrowAlreadyExistExceptionWhenEmailRepeated() {
+        List<UserDto> userDtos = List.of(new UserDto(null, "User1", "user1@example.com"),
+                new UserDto(null, "User2", "user1@example.com"));
+
+        AlreadyExistException exception = assertThrows(AlreadyExistException.class,
+                () -> userService.createUsers(userDtos));
+        assertEquals("Email user1@example.com повторяется в запросе.", exception.getMessage());
+        verify(userDao, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createUsersShouldThrowAlreadyExistExceptionWhenEmailTaken() {
+        List<UserDto> userDtos = List.of(new UserDto(null, "User1", "user1@example.com"));
+        when(userDao.findExistingEmails(anySet())).thenReturn(List.of("user1@example.com"));
+
+        assertThrows(AlreadyExistException.class, () -> userService.createUsers(userDtos));
+        verify(userDao, never()).saveAll(anyList());
+    }
+
+    @Test
+    void getUsersShouldReturnFoundUsersInRequestOrder() {
+        User other = new User(2L, "User2", "user2@example.com");
+        when(userDao.findAllById(List.of(2L, 3L, 1L))).thenReturn(List.of(user, other));
+
+        List<UserDto> result = userService.getUsers(List.of(2L, 3L, 1L));
+
+        assertEquals(List.of(2L, 1L), result.stream().map(UserDto::getId).toList());
     }
 }